@@ -0,0 +1,215 @@
+package com.Liyp.clonesmp.bench;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.BanList;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.persistence.PersistentDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.Liyp.clonesmp.LifeCrystalItem;
+import com.Liyp.clonesmp.MegaHeadListener;
+import com.Liyp.clonesmp.bench.standin.Proxies;
+
+/**
+ * Crafting previews: the Mega Head pattern check and the Life Crystal recipe
+ * check, measured as events per second
+ *
+ * legacyMegaHead is a copy of the preview handler before the memo and the single
+ * meta read per head; it runs on the same grids as a baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CraftPreviewBenchmark {
+    private PluginFixture fixture;
+    private MegaHeadListener megaHeads;
+    private LifeCrystalItem crystals;
+    private PrepareItemCraftEvent junk;
+    private PrepareItemCraftEvent megaHead;
+    private PrepareItemCraftEvent[] megaHeadChurn;
+    private PrepareItemCraftEvent lifeCrystal;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("deprecation")
+    public void setUp() throws Exception {
+        fixture = new PluginFixture(Collections.emptyMap());
+        megaHeads = fixture.server.getListener(MegaHeadListener.class);
+        crystals = fixture.plugin.getLifeCrystalManager();
+
+        Player viewer = fixture.server.join("Crafter");
+        UUID[] owners = PluginFixture.uuids(8);
+        for (int i = 0; i < owners.length; i++) {
+            fixture.server.remember(owners[i], PluginFixture.name(i));
+            fixture.plugin.getBanCache().markBanned(owners[i]);
+            // The legacy preview checked the name ban list instead
+            Bukkit.getBanList(BanList.Type.NAME).addBan(PluginFixture.name(i), null, (Date) null, null);
+        }
+
+        // Most grids the server previews are not Mega Heads at all
+        ItemStack[] dirt = new ItemStack[9];
+        for (int i = 0; i < 9; i++) {
+            dirt[i] = new ItemStack(Material.DIRT);
+        }
+        junk = event(viewer, dirt, null);
+
+        megaHead = event(viewer, megaHeadGrid(owners[0]), null);
+
+        // Alternating grids so every preview misses the memo
+        megaHeadChurn = new PrepareItemCraftEvent[owners.length];
+        for (int i = 0; i < owners.length; i++) {
+            megaHeadChurn[i] = event(viewer, megaHeadGrid(owners[i]), null);
+        }
+
+        ItemStack[] crystal = new ItemStack[9];
+        for (int i = 0; i < 9; i++) {
+            crystal[i] = new ItemStack(i == 4 ? Material.PLAYER_HEAD : Material.END_CRYSTAL);
+        }
+        Recipe recipe = new ShapedRecipe(crystals.getLifeCrystalKey(), crystals.createLifeCrystal());
+        lifeCrystal = event(viewer, crystal, recipe);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ItemStack junkGrid() {
+        megaHeads.onPrepareCraftMegaHead(junk);
+        return junk.getInventory().getResult();
+    }
+
+    @Benchmark
+    public ItemStack megaHeadRepeated() {
+        megaHeads.onPrepareCraftMegaHead(megaHead);
+        return megaHead.getInventory().getResult();
+    }
+
+    @Benchmark
+    public ItemStack megaHeadChanging() {
+        PrepareItemCraftEvent event = megaHeadChurn[next++ & (megaHeadChurn.length - 1)];
+        megaHeads.onPrepareCraftMegaHead(event);
+        return event.getInventory().getResult();
+    }
+
+    @Benchmark
+    public ItemStack legacyMegaHead() {
+        legacyPreview(megaHead);
+        return megaHead.getInventory().getResult();
+    }
+
+    @Benchmark
+    public ItemStack legacyJunkGrid() {
+        legacyPreview(junk);
+        return junk.getInventory().getResult();
+    }
+
+    @Benchmark
+    public ItemStack lifeCrystal() {
+        crystals.onPrepareCraft(lifeCrystal);
+        return lifeCrystal.getInventory().getResult();
+    }
+
+    private static ItemStack[] megaHeadGrid(UUID owner) {
+        OfflinePlayer player = Bukkit.getOfflinePlayer(owner);
+        ItemStack[] matrix = new ItemStack[9];
+        for (int i = 0; i < 3; i++) {
+            ItemStack head = new ItemStack(Material.PLAYER_HEAD);
+            SkullMeta meta = (SkullMeta) head.getItemMeta();
+            meta.setOwningPlayer(player);
+            head.setItemMeta(meta);
+            matrix[i] = head;
+        }
+        return matrix;
+    }
+
+    private static PrepareItemCraftEvent event(Player viewer, ItemStack[] matrix, Recipe recipe) {
+        ItemStack[] result = new ItemStack[1];
+        CraftingInventory inventory = Proxies.create(CraftingInventory.class, new Proxies.Bodies()
+            .on("getMatrix", (p, a) -> matrix.clone())
+            .on("getResult", (p, a) -> result[0])
+            .on("setResult", (p, a) -> {
+                result[0] = (ItemStack) a[0];
+                return null;
+            })
+            .returning("getRecipe", recipe)
+            .returning("getSize", 10));
+        InventoryView view = Proxies.create(InventoryView.class, new Proxies.Bodies()
+            .returning("getTopInventory", inventory)
+            .returning("getPlayer", viewer));
+        return new PrepareItemCraftEvent(inventory, view, false);
+    }
+
+    /**
+     * The Mega Head preview as it was, reading each head's meta and owner
+     * again for every preview and checking the name ban list
+     */
+    @SuppressWarnings("deprecation")
+    private void legacyPreview(PrepareItemCraftEvent event) {
+        CraftingInventory inv = event.getInventory();
+        ItemStack[] matrix = inv.getMatrix();
+        for (int i = 0; i < 3; i++) {
+            if (matrix[i] == null || matrix[i].getType() != Material.PLAYER_HEAD) return;
+        }
+        SkullMeta sm0 = (SkullMeta) matrix[0].getItemMeta();
+        SkullMeta sm1 = (SkullMeta) matrix[1].getItemMeta();
+        SkullMeta sm2 = (SkullMeta) matrix[2].getItemMeta();
+        if (sm0 == null || sm1 == null || sm2 == null) return;
+        OfflinePlayer p0 = sm0.getOwningPlayer();
+        OfflinePlayer p1 = sm1.getOwningPlayer();
+        OfflinePlayer p2 = sm2.getOwningPlayer();
+        if (p0 == null || p1 == null || p2 == null) return;
+        UUID u = p0.getUniqueId();
+        if (!u.equals(p1.getUniqueId()) || !u.equals(p2.getUniqueId())) return;
+
+        SkullMeta again = (SkullMeta) matrix[0].getItemMeta();
+        if (again == null || again.getOwningPlayer() == null) return;
+        OfflinePlayer owner = again.getOwningPlayer();
+        if (owner.getName() == null || !Bukkit.getBanList(BanList.Type.NAME).isBanned(owner.getName())) {
+            inv.setResult(null);
+            return;
+        }
+
+        ItemStack mega = new ItemStack(Material.PLAYER_HEAD);
+        SkullMeta meta = (SkullMeta) mega.getItemMeta();
+        meta.setOwningPlayer(owner);
+        meta.setDisplayName(ChatColor.RED + "Mega Head of " + owner.getName());
+        meta.setLore(Arrays.asList(
+            ChatColor.GOLD + "Crafted by teammates",
+            ChatColor.GRAY + "Break with Unbreaking III pickaxe to unban"));
+        meta.getPersistentDataContainer().set(fixture.plugin.getMegaHeadKey(), PersistentDataType.STRING,
+                                              owner.getUniqueId().toString());
+        mega.setItemMeta(meta);
+        inv.setResult(mega);
+    }
+}
@@ -0,0 +1,77 @@
+package com.Liyp.clonesmp.bench;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.Liyp.clonesmp.DeathListener;
+import com.Liyp.clonesmp.LifeCrystalItem;
+
+/**
+ * Building the plugin's items: a player's head as dropped on death and a Life
+ * Crystal, cloned from a cached template and built from scratch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemBuildBenchmark {
+    private PluginFixture fixture;
+    private LifeCrystalItem crystals;
+    private DeathListener deaths;
+    private Method createPlayerHead;
+    private Player player;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new PluginFixture(Collections.emptyMap());
+        crystals = fixture.plugin.getLifeCrystalManager();
+        deaths = fixture.server.getListener(DeathListener.class);
+        createPlayerHead = DeathListener.class.getDeclaredMethod("createPlayerHead", Player.class);
+        createPlayerHead.setAccessible(true);
+        player = fixture.server.join("Victim");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ItemStack lifeCrystal() {
+        return crystals.createLifeCrystal();
+    }
+
+    @Benchmark
+    public ItemStack lifeCrystalCold() {
+        fixture.plugin.getItemTemplates().invalidate();
+        return crystals.createLifeCrystal();
+    }
+
+    @Benchmark
+    public Object playerHead() throws Exception {
+        return createPlayerHead.invoke(deaths, player);
+    }
+
+    @Benchmark
+    public Object playerHeadCold() throws Exception {
+        fixture.plugin.getItemTemplates().invalidate(player.getUniqueId());
+        return createPlayerHead.invoke(deaths, player);
+    }
+}
@@ -0,0 +1,89 @@
+package com.Liyp.clonesmp.bench;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.Liyp.clonesmp.LivesStore;
+
+/**
+ * Lives read/modify/write: the LivesStore against the YamlConfiguration
+ * "deaths.&lt;uuid&gt;" lookups the plugin used before it
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LivesStoreBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int players;
+
+    private UUID[] uuids;
+    private String[] paths;
+    private LivesStore store;
+    private YamlConfiguration yaml;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        uuids = PluginFixture.uuids(players);
+        paths = new String[players];
+        store = new LivesStore(players);
+        yaml = new YamlConfiguration();
+        for (int i = 0; i < players; i++) {
+            paths[i] = "deaths." + uuids[i];
+            store.setDeaths(uuids[i], i % 3);
+            yaml.set(paths[i], i % 3);
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = i + 1 == players ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public int storeGet() {
+        return store.getDeaths(uuids[nextIndex()]);
+    }
+
+    @Benchmark
+    public int storeAdd() {
+        return store.addDeaths(uuids[nextIndex()], 1);
+    }
+
+    @Benchmark
+    public int yamlGet() {
+        return yaml.getInt("deaths." + uuids[nextIndex()], 0);
+    }
+
+    @Benchmark
+    public int yamlAdd() {
+        // As the old death handler did: build the path, read, then write back
+        String path = "deaths." + uuids[nextIndex()];
+        int deaths = yaml.getInt(path, 0) + 1;
+        yaml.set(path, deaths);
+        return deaths;
+    }
+
+    @Benchmark
+    public int yamlGetPrebuiltPath() {
+        // Path strings excluded, to separate map lookups from string building
+        return yaml.getInt(paths[nextIndex()], 0);
+    }
+}
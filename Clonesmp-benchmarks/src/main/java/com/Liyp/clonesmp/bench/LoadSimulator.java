@@ -0,0 +1,467 @@
+package com.Liyp.clonesmp.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.command.CommandSender;
+import org.bukkit.damage.DamageSource;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.inventory.CraftingInventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import com.Liyp.clonesmp.CloneSMP;
+import com.Liyp.clonesmp.Metrics;
+import com.Liyp.clonesmp.bench.standin.Proxies;
+import com.Liyp.clonesmp.bench.standin.StandInServer;
+
+/**
+ * Headless load test: the plugin's listeners and commands driven by synthetic
+ * players on the stand-in server, one simulated tick at a time
+ *
+ * Each tick sends that tick's share of deaths, crafting grid changes, Life
+ * Crystal uses and admin lookups, then runs the scheduler as the server would.
+ * Reports tick time, allocation and data written per phase. With --ramp the
+ * event rates double every phase until ticks go over budget.
+ *
+ * Run with, e.g.:
+ *   java -cp target/benchmarks.jar com.Liyp.clonesmp.bench.LoadSimulator --mix=all --online=500 --historical=1000000
+ */
+public final class LoadSimulator {
+    private static final long TICK_BUDGET_NANOS = 50_000_000L;
+
+    /** Events per tick for each kind of load */
+    private static final class Mix {
+        double deaths;
+        double crafts;
+        double crystals;
+        double lookups;
+
+        Mix(double deaths, double crafts, double crystals, double lookups) {
+            this.deaths = deaths;
+            this.crafts = crafts;
+            this.crystals = crystals;
+            this.lookups = lookups;
+        }
+
+        Mix scaled(double factor) {
+            return new Mix(deaths * factor, crafts * factor, crystals * factor, lookups * factor);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "deaths %.2f, crafts %.1f, crystals %.1f, lookups %.1f per tick",
+                                 deaths, crafts, crystals, lookups);
+        }
+    }
+
+    private static final Map<String, Mix> MIXES = new LinkedHashMap<>();
+
+    static {
+        MIXES.put("steady", new Mix(0.05, 5, 0.5, 0.5));
+        MIXES.put("mass-deaths", new Mix(25, 5, 0.5, 0.5));
+        MIXES.put("craft-churn", new Mix(0.05, 250, 0.5, 0.5));
+        MIXES.put("crystal-spam", new Mix(0.05, 5, 100, 0.5));
+        MIXES.put("lookups", new Mix(0.05, 5, 0.5, 50));
+        MIXES.put("all", new Mix(25, 250, 100, 50));
+    }
+
+    private final StandInServer server = StandInServer.get();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final int onlineTarget;
+    private final int historical;
+    private final String storage;
+    private CloneSMP plugin;
+    private File dataFolder;
+    private UUID[] uuids;
+    private String[] names;
+    private final List<Player> online = new ArrayList<>();
+    private final Map<UUID, PrepareItemCraftEvent> grids = new HashMap<>();
+    private ItemStack[][] gridPool;
+    private ItemStack crystal;
+    private final double[] carry = new double[4];
+    private int nextHistorical;
+
+    private final LongAdder lookupNanos = new LongAdder();
+    private final AtomicInteger lookupsAnswered = new AtomicInteger();
+    private int lookupsSent;
+    private int joins;
+
+    private LoadSimulator(int onlineTarget, int historical, String storage) {
+        this.onlineTarget = onlineTarget;
+        this.historical = historical;
+        this.storage = storage;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unknown argument: " + arg);
+            int eq = arg.indexOf('=');
+            options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        if (options.containsKey("help")) {
+            System.out.println("Options: --mix=" + String.join("|", MIXES.keySet())
+                + " --online=500 --historical=1000000 --storage=yaml|sqlite|mmap|sharded"
+                + " --warmup=200 --phase-ticks=600 --phases=3 --ramp --profile-latency-ms=100"
+                + " --deaths=N --crafts=N --crystals=N --lookups=N (events per tick)");
+            return;
+        }
+
+        Mix base = MIXES.get(options.getOrDefault("mix", "steady"));
+        if (base == null) throw new IllegalArgumentException("Unknown mix: " + options.get("mix"));
+        Mix mix = base.scaled(1);
+        mix.deaths = Double.parseDouble(options.getOrDefault("deaths", String.valueOf(mix.deaths)));
+        mix.crafts = Double.parseDouble(options.getOrDefault("crafts", String.valueOf(mix.crafts)));
+        mix.crystals = Double.parseDouble(options.getOrDefault("crystals", String.valueOf(mix.crystals)));
+        mix.lookups = Double.parseDouble(options.getOrDefault("lookups", String.valueOf(mix.lookups)));
+
+        StandInServer.get().setProfileLatency(Long.parseLong(options.getOrDefault("profile-latency-ms", "100")));
+        LoadSimulator simulator = new LoadSimulator(
+            Integer.parseInt(options.getOrDefault("online", "500")),
+            Integer.parseInt(options.getOrDefault("historical", "1000000")),
+            options.getOrDefault("storage", "yaml"));
+        simulator.run(mix,
+            Integer.parseInt(options.getOrDefault("warmup", "200")),
+            Integer.parseInt(options.getOrDefault("phase-ticks", "600")),
+            Integer.parseInt(options.getOrDefault("phases", options.containsKey("ramp") ? "8" : "3")),
+            options.containsKey("ramp"));
+        System.exit(0);
+    }
+
+    private void run(Mix mix, int warmupTicks, int phaseTicks, int phases, boolean ramp) throws Exception {
+        long setupStart = System.nanoTime();
+        setUp();
+        System.out.println("Mix: " + mix);
+        System.out.printf(Locale.ROOT, "Set up %d historical players, %d online, %s storage in %s%n",
+                          historical, online.size(), storage, Metrics.formatMillis(System.nanoTime() - setupStart));
+
+        try {
+            for (int i = 0; i < warmupTicks; i++) {
+                tick(mix);
+            }
+            plugin.getMetrics().reset();
+
+            System.out.println();
+            System.out.println("phase  rate  tick p50    p99       max       >50ms  alloc/tick  alloc MB/s  written    lookups  joins");
+            int factor = 1;
+            for (int phase = 1; phase <= phases; phase++) {
+                Mix current = mix.scaled(factor);
+                boolean over = runPhase(phase, factor, current, phaseTicks);
+                if (ramp && over) {
+                    System.out.println("Over the tick budget at " + current);
+                    break;
+                }
+                if (ramp) factor *= 2;
+            }
+
+            System.out.println();
+            printHandlerTimes();
+        } finally {
+            server.disable(plugin);
+            server.getScheduler().shutdown();
+            StandInServer.deleteTree(dataFolder);
+        }
+    }
+
+    private void setUp() throws Exception {
+        dataFolder = Files.createTempDirectory("clonesmp-load").toFile();
+        Map<String, Object> config = new HashMap<>();
+        config.put("storage.type", storage);
+        plugin = server.enable(dataFolder, config);
+
+        // Past players: most have died once or twice, a few are already out
+        int maxLives = plugin.getMaxLives();
+        uuids = PluginFixture.uuids(historical);
+        names = new String[historical];
+        for (int i = 0; i < historical; i++) {
+            names[i] = PluginFixture.name(i);
+            server.remember(uuids[i], names[i]);
+            plugin.getNameIndex().record(uuids[i], names[i]);
+            int deaths = random.nextInt(100) < 2 ? maxLives : random.nextInt(maxLives);
+            if (deaths > 0) plugin.getLives().setDeaths(uuids[i], deaths);
+            if (deaths >= maxLives) plugin.getBanCache().markBanned(uuids[i]);
+        }
+        plugin.saveData();
+
+        // Grids players cycle through: junk, Mega Heads of eliminated players, mixed heads
+        List<ItemStack[]> pool = new ArrayList<>();
+        ItemStack[] junk = new ItemStack[9];
+        Arrays.fill(junk, new ItemStack(Material.OAK_PLANKS));
+        pool.add(junk);
+        for (int i = 0; i < 32; i++) {
+            UUID owner = uuids[random.nextInt(historical)];
+            UUID other = uuids[random.nextInt(historical)];
+            pool.add(headRow(owner, owner, owner));
+            pool.add(headRow(owner, owner, other));
+        }
+        gridPool = pool.toArray(new ItemStack[0][]);
+        crystal = plugin.getLifeCrystalManager().createLifeCrystal();
+
+        while (online.size() < onlineTarget) {
+            join();
+        }
+        joins = 0;
+    }
+
+    private boolean runPhase(int phase, int factor, Mix mix, int ticks) throws IOException {
+        long[] tickNanos = new long[ticks];
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long mainAllocStart = threads.getCurrentThreadAllocatedBytes();
+        long allAllocStart = allocatedByAllThreads(threads);
+        long writtenStart = bytesWritten();
+        long wallStart = System.nanoTime();
+        lookupsSent = 0;
+        lookupsAnswered.set(0);
+        lookupNanos.reset();
+        joins = 0;
+
+        for (int i = 0; i < ticks; i++) {
+            tickNanos[i] = tick(mix);
+        }
+
+        double seconds = (System.nanoTime() - wallStart) / 1e9;
+        long mainAlloc = threads.getCurrentThreadAllocatedBytes() - mainAllocStart;
+        long allAlloc = allocatedByAllThreads(threads) - allAllocStart;
+        long written = bytesWritten() - writtenStart;
+
+        Arrays.sort(tickNanos);
+        int over = 0;
+        for (long nanos : tickNanos) {
+            if (nanos > TICK_BUDGET_NANOS) over++;
+        }
+        int answered = lookupsAnswered.get();
+        System.out.printf(Locale.ROOT, "%-6d %-5s %-11s %-9s %-9s %-6d %-11s %-11.1f %-10s %-8s %d%n",
+                          phase, "x" + factor,
+                          Metrics.formatMillis(tickNanos[ticks / 2]),
+                          Metrics.formatMillis(tickNanos[(int) (ticks * 0.99)]),
+                          Metrics.formatMillis(tickNanos[ticks - 1]),
+                          over,
+                          bytes(mainAlloc / ticks),
+                          allAlloc / seconds / (1024 * 1024),
+                          written < 0 ? "n/a" : bytes(written),
+                          answered + "/" + lookupsSent + (answered == 0 ? "" : " " + Metrics.formatMillis(lookupNanos.sum() / answered)),
+                          joins);
+        return tickNanos[(int) (ticks * 0.99)] > TICK_BUDGET_NANOS;
+    }
+
+    /**
+     * Send one tick's events and run the scheduler
+     *
+     * @return How long the tick took
+     */
+    private long tick(Mix mix) {
+        long start = System.nanoTime();
+        for (int i = count(0, mix.deaths); i > 0; i--) {
+            die(online.get(random.nextInt(online.size())));
+        }
+        for (int i = count(1, mix.crafts); i > 0; i--) {
+            craft(online.get(random.nextInt(online.size())));
+        }
+        for (int i = count(2, mix.crystals); i > 0; i--) {
+            useCrystal(online.get(random.nextInt(online.size())));
+        }
+        for (int i = count(3, mix.lookups); i > 0; i--) {
+            lookup();
+        }
+        server.getScheduler().tick();
+
+        // Eliminated players were kicked; others join in their place
+        online.removeIf(player -> {
+            if (player.isOnline()) return false;
+            grids.remove(player.getUniqueId());
+            return true;
+        });
+        while (online.size() < onlineTarget) {
+            join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private int count(int kind, double perTick) {
+        double due = carry[kind] + perTick;
+        int whole = (int) due;
+        carry[kind] = due - whole;
+        return whole;
+    }
+
+    private void join() {
+        // The next past player who is still in the game
+        UUID uuid;
+        String name;
+        do {
+            int i = nextHistorical++ % historical;
+            uuid = uuids[i];
+            name = names[i];
+        } while (plugin.getBanCache().isBanned(uuid) || Bukkit.getPlayer(uuid) != null);
+
+        // The full login sequence, so lazy storage reads the record as on a real server
+        server.callEvent(new AsyncPlayerPreLoginEvent(name, InetAddress.getLoopbackAddress(), uuid, false));
+        Player player = server.join(uuid, name);
+        server.callEvent(new PlayerLoginEvent(player, "localhost", InetAddress.getLoopbackAddress()));
+        server.callEvent(new PlayerJoinEvent(player, name + " joined the game"));
+        online.add(player);
+        joins++;
+    }
+
+    private void die(Player player) {
+        List<ItemStack> drops = new ArrayList<>();
+        DamageSource source = Proxies.create(DamageSource.class, new Proxies.Bodies());
+        server.callEvent(new PlayerDeathEvent(player, source, drops, 0, player.getName() + " died"));
+    }
+
+    private void craft(Player player) {
+        PrepareItemCraftEvent event = grids.computeIfAbsent(player.getUniqueId(), uuid -> craftingGrid(player));
+        ItemStack[] matrix = event.getInventory().getMatrix();
+        ItemStack[] next = gridPool[random.nextInt(gridPool.length)];
+        System.arraycopy(next, 0, matrix, 0, 9);
+        server.callEvent(event);
+
+        // Now and then the player walks away from the table
+        if (random.nextInt(20) == 0) {
+            server.callEvent(new InventoryCloseEvent(event.getView()));
+            grids.remove(player.getUniqueId());
+        }
+    }
+
+    private void useCrystal(Player player) {
+        // At 2 of 3 lives, so the crystal is accepted
+        plugin.getLives().setDeaths(player.getUniqueId(), 1);
+        ItemStack item = crystal.clone();
+        player.getInventory().setItemInMainHand(item);
+        server.callEvent(new PlayerInteractEvent(player, Action.RIGHT_CLICK_AIR, item, null, null));
+    }
+
+    private void lookup() {
+        String name = names[random.nextInt(historical)];
+        long sent = System.nanoTime();
+        boolean[] answered = new boolean[1];
+        CommandSender admin = Proxies.create(CommandSender.class, new Proxies.Bodies()
+            .returning("getName", "Admin")
+            .returning("hasPermission", true)
+            .returning("isOp", true)
+            .on("sendMessage", (p, a) -> {
+                if (!answered[0]) {
+                    answered[0] = true;
+                    lookupNanos.add(System.nanoTime() - sent);
+                    lookupsAnswered.incrementAndGet();
+                }
+                return null;
+            }));
+        server.dispatch(admin, "clonesmp lives " + name);
+        lookupsSent++;
+    }
+
+    private PrepareItemCraftEvent craftingGrid(Player player) {
+        ItemStack[] matrix = new ItemStack[9];
+        ItemStack[] result = new ItemStack[1];
+        CraftingInventory inventory = Proxies.create(CraftingInventory.class, new Proxies.Bodies()
+            .returning("getMatrix", matrix)
+            .on("getResult", (p, a) -> result[0])
+            .on("setResult", (p, a) -> {
+                result[0] = (ItemStack) a[0];
+                return null;
+            })
+            .returning("getSize", 10));
+        InventoryView view = Proxies.create(InventoryView.class, new Proxies.Bodies()
+            .returning("getTopInventory", inventory)
+            .returning("getPlayer", player));
+        return new PrepareItemCraftEvent(inventory, view, false);
+    }
+
+    private static ItemStack[] headRow(UUID... owners) {
+        ItemStack[] matrix = new ItemStack[9];
+        for (int i = 0; i < owners.length; i++) {
+            ItemStack head = new ItemStack(Material.PLAYER_HEAD);
+            SkullMeta meta = (SkullMeta) head.getItemMeta();
+            meta.setOwningPlayer(Bukkit.getOfflinePlayer(owners[i]));
+            head.setItemMeta(meta);
+            matrix[i] = head;
+        }
+        return matrix;
+    }
+
+    private void printHandlerTimes() {
+        Metrics metrics = plugin.getMetrics();
+        System.out.println("handler             calls      p50        p99        max");
+        for (Metrics.Timer timer : Metrics.Timer.values()) {
+            Metrics.Histogram histogram = metrics.get(timer);
+            if (histogram.getCount() == 0) continue;
+            System.out.printf(Locale.ROOT, "%-19s %-10d %-10s %-10s %s%n", timer.getId(), histogram.getCount(),
+                              Metrics.formatMillis(histogram.getPercentileNanos(0.5)),
+                              Metrics.formatMillis(histogram.getPercentileNanos(0.99)),
+                              Metrics.formatMillis(histogram.getMaxNanos()));
+        }
+        System.out.println("Messages sent: " + server.getMessagesSent());
+        System.out.println("Profile lookups: " + server.getProfileLookups());
+
+        File[] files = dataFolder.listFiles();
+        if (files == null) return;
+        Arrays.sort(files);
+        System.out.println();
+        System.out.println("Data folder:");
+        for (File file : files) {
+            if (file.isFile()) {
+                System.out.printf(Locale.ROOT, "  %-24s %s%n", file.getName(), bytes(file.length()));
+            }
+        }
+    }
+
+    private static long allocatedByAllThreads(com.sun.management.ThreadMXBean threads) {
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            if (allocated > 0) total += allocated;
+        }
+        return total;
+    }
+
+    /**
+     * Bytes this process has written to files, from /proc on Linux. Memory-mapped
+     * storage is counted when the kernel writes its pages back.
+     *
+     * @return Bytes written, or -1 where /proc is not available
+     */
+    private static long bytesWritten() throws IOException {
+        Path io = Paths.get("/proc/self/io");
+        if (!Files.isReadable(io)) return -1;
+        for (String line : Files.readAllLines(io)) {
+            if (line.startsWith("write_bytes:")) {
+                return Long.parseLong(line.substring("write_bytes:".length()).trim());
+            }
+        }
+        return -1;
+    }
+
+    private static String bytes(long count) {
+        if (count < 10 * 1024) return count + "B";
+        if (count < 10 * 1024 * 1024) return (count / 1024) + "KB";
+        return (count / (1024 * 1024)) + "MB";
+    }
+}
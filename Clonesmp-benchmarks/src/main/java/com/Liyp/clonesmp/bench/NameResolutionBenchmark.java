@@ -0,0 +1,90 @@
+package com.Liyp.clonesmp.bench;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.ConsoleCommandSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.Liyp.clonesmp.PlayerNameIndex;
+
+/**
+ * Offline player lookups by name: the name index on its own, and
+ * "/clonesmp lives &lt;name&gt;" end to end, from the command to the reply
+ * delivered on the main thread
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NameResolutionBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int players;
+
+    private PluginFixture fixture;
+    private PlayerNameIndex index;
+    private ConsoleCommandSender console;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        fixture = new PluginFixture(Collections.emptyMap());
+        index = fixture.plugin.getNameIndex();
+        console = Bukkit.getConsoleSender();
+        UUID[] uuids = fixture.populate(players);
+        names = new String[players];
+        for (int i = 0; i < players; i++) {
+            names[i] = PluginFixture.name(i);
+            index.record(uuids[i], names[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+
+    private String nextName() {
+        int i = next;
+        next = i + 1 == players ? 0 : i + 1;
+        return names[i];
+    }
+
+    @Benchmark
+    public UUID indexLookup() {
+        return index.getUuid(nextName());
+    }
+
+    @Benchmark
+    public UUID indexLookupOtherCase() {
+        return index.getUuid(nextName().toUpperCase());
+    }
+
+    @Benchmark
+    public long livesCommand() throws Exception {
+        long before = fixture.server.getMessagesSent();
+        fixture.server.dispatch(console, "clonesmp lives " + nextName());
+        // The lookup runs off the main thread and replies on the next tick
+        while (fixture.server.getMessagesSent() == before) {
+            fixture.server.getScheduler().awaitAsync();
+            fixture.server.getScheduler().tick();
+        }
+        return fixture.server.getMessagesSent();
+    }
+}
@@ -0,0 +1,102 @@
+package com.Liyp.clonesmp.bench;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.Liyp.clonesmp.Ranking;
+
+/**
+ * Leaderboard queries and updates on the Ranking, against sorting every death
+ * count per request
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RankingBenchmark {
+    @Param({ "100000", "1000000" })
+    public int players;
+
+    private UUID[] uuids;
+    private int[] deaths;
+    private Ranking ranking;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        uuids = PluginFixture.uuids(players);
+        deaths = new int[players];
+        ranking = new Ranking(players);
+        for (int i = 0; i < players; i++) {
+            // Most players have died once or twice, a few are out
+            deaths[i] = i % 10 == 0 ? 3 : i % 3;
+            ranking.set(uuids[i], deaths[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = i + 1 == players ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public int rank() {
+        int score = ranking.getScore(uuids[nextIndex()]);
+        return 1 + ranking.countAbove(score);
+    }
+
+    @Benchmark
+    public void top10(Blackhole blackhole) {
+        ranking.top(true, 10, (msb, lsb, score) -> blackhole.consume(msb ^ lsb ^ score));
+    }
+
+    @Benchmark
+    public int update() {
+        // A death, then a Life Crystal: the player moves between buckets and back
+        int i = nextIndex();
+        ranking.set(uuids[i], deaths[i] + 1);
+        ranking.set(uuids[i], deaths[i]);
+        return ranking.size();
+    }
+
+    @Benchmark
+    public int sortedRank() {
+        // Sorting a copy of every count per request, as a leaderboard over data.yml would
+        int[] sorted = deaths.clone();
+        Arrays.sort(sorted);
+        int score = deaths[nextIndex()];
+        int above = sorted.length - upperBound(sorted, score);
+        return 1 + above;
+    }
+
+    private static int upperBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,71 @@
+package com.Liyp.clonesmp.bench;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CloneSMP.saveData() with every storage type, for a full rewrite (all players
+ * changed) and for the usual case of a few changes since the last flush
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SaveDataBenchmark {
+    @Param({ "1000", "100000", "1000000" })
+    public int players;
+
+    @Param({ "yaml", "sqlite", "mmap", "sharded" })
+    public String storage;
+
+    @Param({ "all", "100" })
+    public String changed;
+
+    private PluginFixture fixture;
+    private UUID[] uuids;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = new PluginFixture(Map.of("storage.type", storage));
+        uuids = fixture.populate(players);
+        fixture.plugin.saveData();
+    }
+
+    @Setup(Level.Invocation)
+    public void change() {
+        round++;
+        int count = "all".equals(changed) ? players : Math.min(players, Integer.parseInt(changed));
+        int offset = (round * 7919) % players;
+        for (int i = 0; i < count; i++) {
+            fixture.plugin.getLives().setDeaths(uuids[(offset + i) % players], 1 + round % 2);
+        }
+    }
+
+    @Benchmark
+    public void saveData() {
+        fixture.plugin.saveData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close();
+    }
+}
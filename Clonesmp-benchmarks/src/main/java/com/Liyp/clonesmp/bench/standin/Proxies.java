@@ -0,0 +1,130 @@
+package com.Liyp.clonesmp.bench.standin;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Builds stand-ins for Bukkit interfaces from a few method implementations
+ *
+ * Bukkit's interfaces have hundreds of methods and the plugin uses a handful
+ * of each, so stand-ins are dynamic proxies: methods given a {@link Body} run
+ * it, and every other method returns an empty value (false, 0, null, or an
+ * empty collection). equals and hashCode are identity unless given a body.
+ */
+public final class Proxies {
+    /**
+     * The implementation of one proxied method
+     */
+    @FunctionalInterface
+    public interface Body {
+        Object invoke(Object proxy, Object[] args) throws Throwable;
+    }
+
+    /**
+     * Method bodies by method name, shared by all overloads of a name
+     */
+    public static final class Bodies {
+        private final Map<String, Body> bodies = new HashMap<>();
+
+        /**
+         * Implement a method
+         *
+         * @param name The method name
+         * @param body What it does
+         * @return This, for chaining
+         */
+        public Bodies on(String name, Body body) {
+            bodies.put(name, body);
+            return this;
+        }
+
+        /**
+         * Implement a method that returns a fixed value
+         *
+         * @param name The method name
+         * @param value The value
+         * @return This, for chaining
+         */
+        public Bodies returning(String name, Object value) {
+            return on(name, (proxy, args) -> value);
+        }
+
+        Body get(String name) {
+            return bodies.get(name);
+        }
+    }
+
+    private Proxies() {
+    }
+
+    /**
+     * Create a stand-in
+     *
+     * @param type The interface to implement
+     * @param bodies The implemented methods
+     * @param extra Further interfaces to implement, e.g. a meta subtype
+     * @return The stand-in
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T create(Class<T> type, Bodies bodies, Class<?>... extra) {
+        Class<?>[] interfaces = new Class<?>[extra.length + 1];
+        interfaces[0] = type;
+        System.arraycopy(extra, 0, interfaces, 1, extra.length);
+        return (T) Proxy.newProxyInstance(Proxies.class.getClassLoader(), interfaces, handler(bodies));
+    }
+
+    private static InvocationHandler handler(Bodies bodies) {
+        return (proxy, method, args) -> {
+            Object[] actual = args == null ? new Object[0] : args;
+            Body body = bodies.get(method.getName());
+            if (body != null) {
+                return body.invoke(proxy, actual);
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return actual.length == 1 && proxy == actual[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StandIn[" + proxy.getClass().getInterfaces()[0].getSimpleName() + "]";
+                default:
+                    return empty(method);
+            }
+        };
+    }
+
+    /**
+     * Get the empty value returned by unimplemented methods
+     *
+     * @param method The method
+     * @return Its empty value
+     */
+    static Object empty(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return '\0';
+        if (type == String.class) return "";
+        if (type == Optional.class) return Optional.empty();
+        if (type == Object.class) return null;
+        if (type.isAssignableFrom(List.class)) return Collections.emptyList();
+        if (type.isAssignableFrom(Set.class)) return Collections.emptySet();
+        if (type.isAssignableFrom(Map.class)) return Collections.emptyMap();
+        if (type.isArray()) return Array.newInstance(type.getComponentType(), 0);
+        return null;
+    }
+}
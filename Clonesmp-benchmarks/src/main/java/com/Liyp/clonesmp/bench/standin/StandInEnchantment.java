@@ -0,0 +1,73 @@
+package com.Liyp.clonesmp.bench.standin;
+
+import java.util.Locale;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.enchantments.EnchantmentTarget;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * An enchantment served by the stand-in registry
+ *
+ * Enchantment is an abstract class, so it cannot be proxied like the
+ * interfaces; its constants (e.g. UNBREAKING) are looked up in the server's
+ * registry when the class loads.
+ */
+final class StandInEnchantment extends Enchantment {
+    private final NamespacedKey key;
+
+    StandInEnchantment(NamespacedKey key) {
+        this.key = key;
+    }
+
+    @Override
+    public NamespacedKey getKey() {
+        return key;
+    }
+
+    @Override
+    public String getTranslationKey() {
+        return "enchantment." + key.getNamespace() + "." + key.getKey();
+    }
+
+    @Override
+    public String getName() {
+        return key.getKey().toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public int getMaxLevel() {
+        return 5;
+    }
+
+    @Override
+    public int getStartLevel() {
+        return 1;
+    }
+
+    @Override
+    public EnchantmentTarget getItemTarget() {
+        return EnchantmentTarget.BREAKABLE;
+    }
+
+    @Override
+    public boolean isTreasure() {
+        return false;
+    }
+
+    @Override
+    public boolean isCursed() {
+        return false;
+    }
+
+    @Override
+    public boolean conflictsWith(Enchantment other) {
+        return false;
+    }
+
+    @Override
+    public boolean canEnchantItem(ItemStack item) {
+        return true;
+    }
+}
@@ -0,0 +1,200 @@
+package com.Liyp.clonesmp.bench.standin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemFlag;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.profile.PlayerProfile;
+
+/**
+ * Item meta and persistent data stand-ins, and the item factory that makes them
+ *
+ * ItemStack itself is a plain class in the API and is used as is; it asks the
+ * server's item factory for meta. Meta here is a map-backed proxy that is
+ * copied on clone() and compared by value, as CraftBukkit's meta is, so
+ * ItemStack.getItemMeta(), setItemMeta() and isSimilar() allocate and compare
+ * much like on a real server.
+ */
+public final class StandInItems {
+    /** Gives stand-in meta and data containers access to each other's values */
+    interface Values {
+        Object standInValues();
+    }
+
+    private static final class MetaState {
+        final boolean skull;
+        String displayName;
+        List<String> lore;
+        final Map<Enchantment, Integer> enchants = new LinkedHashMap<>();
+        final Set<ItemFlag> flags = EnumSet.noneOf(ItemFlag.class);
+        PlayerProfile ownerProfile;
+        final Map<NamespacedKey, Object> data = new LinkedHashMap<>();
+
+        MetaState(boolean skull) {
+            this.skull = skull;
+        }
+
+        MetaState copy() {
+            MetaState copy = new MetaState(skull);
+            copy.displayName = displayName;
+            copy.lore = lore == null ? null : new ArrayList<>(lore);
+            copy.enchants.putAll(enchants);
+            copy.flags.addAll(flags);
+            copy.ownerProfile = ownerProfile;
+            copy.data.putAll(data);
+            return copy;
+        }
+
+        boolean isEmpty() {
+            return displayName == null && lore == null && enchants.isEmpty() && flags.isEmpty()
+                && ownerProfile == null && data.isEmpty();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MetaState)) return false;
+            MetaState other = (MetaState) o;
+            return Objects.equals(displayName, other.displayName) && Objects.equals(lore, other.lore)
+                && enchants.equals(other.enchants) && flags.equals(other.flags) && data.equals(other.data)
+                && Objects.equals(ownerProfile == null ? null : ownerProfile.getUniqueId(),
+                                  other.ownerProfile == null ? null : other.ownerProfile.getUniqueId());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(displayName, lore, enchants, data);
+        }
+    }
+
+    private final ItemFactory factory;
+
+    StandInItems() {
+        this.factory = Proxies.create(ItemFactory.class, new Proxies.Bodies()
+            .on("getItemMeta", (p, a) -> meta(new MetaState(isSkull((Material) a[0]))))
+            .returning("isApplicable", true)
+            .on("asMetaFor", (p, a) -> ((ItemMeta) a[0]).clone())
+            .on("updateMaterial", (p, a) -> a[1])
+            .on("equals", (p, a) -> {
+                if (a.length == 1) return p == a[0];
+                MetaState left = state(a[0]);
+                MetaState right = state(a[1]);
+                if (left == null) return right == null || right.isEmpty();
+                if (right == null) return left.isEmpty();
+                return left.equals(right);
+            }));
+    }
+
+    /**
+     * @return The item factory handed to ItemStack through the server
+     */
+    public ItemFactory asBukkit() {
+        return factory;
+    }
+
+    /**
+     * Create an empty persistent data container, e.g. for a player
+     *
+     * @return The container
+     */
+    public static PersistentDataContainer dataContainer() {
+        return dataContainer(new LinkedHashMap<>());
+    }
+
+    private static boolean isSkull(Material material) {
+        return material == Material.PLAYER_HEAD || material == Material.PLAYER_WALL_HEAD;
+    }
+
+    private static MetaState state(Object meta) {
+        return meta == null ? null : (MetaState) ((Values) meta).standInValues();
+    }
+
+    private static ItemMeta meta(MetaState state) {
+        PersistentDataContainer container = dataContainer(state.data);
+        Proxies.Bodies bodies = new Proxies.Bodies()
+            .returning("standInValues", state)
+            .on("hasDisplayName", (p, a) -> state.displayName != null)
+            .on("getDisplayName", (p, a) -> state.displayName)
+            .on("setDisplayName", (p, a) -> {
+                state.displayName = (String) a[0];
+                return null;
+            })
+            .on("hasLore", (p, a) -> state.lore != null)
+            .on("getLore", (p, a) -> state.lore == null ? null : new ArrayList<>(state.lore))
+            .on("setLore", (p, a) -> {
+                @SuppressWarnings("unchecked")
+                List<String> lore = (List<String>) a[0];
+                state.lore = lore == null ? null : new ArrayList<>(lore);
+                return null;
+            })
+            .on("hasEnchants", (p, a) -> !state.enchants.isEmpty())
+            .on("hasEnchant", (p, a) -> state.enchants.containsKey(a[0]))
+            .on("getEnchantLevel", (p, a) -> state.enchants.getOrDefault(a[0], 0))
+            .on("getEnchants", (p, a) -> Collections.unmodifiableMap(new HashMap<>(state.enchants)))
+            .on("addEnchant", (p, a) -> state.enchants.put((Enchantment) a[0], (Integer) a[1]) == null)
+            .on("removeEnchant", (p, a) -> state.enchants.remove(a[0]) != null)
+            .on("addItemFlags", (p, a) -> {
+                Collections.addAll(state.flags, (ItemFlag[]) a[0]);
+                return null;
+            })
+            .on("hasItemFlag", (p, a) -> state.flags.contains(a[0]))
+            .on("getItemFlags", (p, a) -> Collections.unmodifiableSet(EnumSet.copyOf(state.flags)))
+            .returning("getPersistentDataContainer", container)
+            .on("clone", (p, a) -> meta(state.copy()))
+            .on("equals", (p, a) -> a[0] instanceof Values && state.equals(state(a[0])))
+            .on("hashCode", (p, a) -> state.hashCode());
+
+        if (!state.skull) {
+            return Proxies.create(ItemMeta.class, bodies, Damageable.class, Values.class);
+        }
+        bodies.on("hasOwner", (p, a) -> state.ownerProfile != null)
+              .on("getOwnerProfile", (p, a) -> state.ownerProfile)
+              .on("setOwnerProfile", (p, a) -> {
+                  state.ownerProfile = (PlayerProfile) a[0];
+                  return null;
+              })
+              .on("getOwningPlayer", (p, a) -> state.ownerProfile == null ? null
+                                                : Bukkit.getOfflinePlayer(state.ownerProfile.getUniqueId()))
+              .on("setOwningPlayer", (p, a) -> {
+                  OfflinePlayer owner = (OfflinePlayer) a[0];
+                  state.ownerProfile = owner == null ? null : Bukkit.createPlayerProfile(owner.getUniqueId(), owner.getName());
+                  return true;
+              })
+              .on("getOwner", (p, a) -> state.ownerProfile == null ? null : state.ownerProfile.getName());
+        return Proxies.create(ItemMeta.class, bodies, SkullMeta.class, Damageable.class, Values.class);
+    }
+
+    private static PersistentDataContainer dataContainer(Map<NamespacedKey, Object> values) {
+        return Proxies.create(PersistentDataContainer.class, new Proxies.Bodies()
+            .returning("standInValues", values)
+            .on("set", (p, a) -> {
+                values.put((NamespacedKey) a[0], a[2]);
+                return null;
+            })
+            .on("has", (p, a) -> values.containsKey(a[0]))
+            .on("get", (p, a) -> values.get(a[0]))
+            .on("getOrDefault", (p, a) -> values.getOrDefault(a[0], a[2]))
+            .on("remove", (p, a) -> {
+                values.remove(a[0]);
+                return null;
+            })
+            .on("getKeys", (p, a) -> Collections.unmodifiableSet(values.keySet()))
+            .on("isEmpty", (p, a) -> values.isEmpty()), Values.class);
+    }
+}
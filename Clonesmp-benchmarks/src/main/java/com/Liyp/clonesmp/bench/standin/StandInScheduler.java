@@ -0,0 +1,219 @@
+package com.Liyp.clonesmp.bench.standin;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * A scheduler whose main thread is whoever calls {@link #tick()}
+ *
+ * Sync tasks wait in a queue ordered by due tick and run when the harness
+ * advances the clock, in the order Bukkit would run them. Async tasks run on a
+ * small pool of daemon threads, and async timers use wall-clock time (50ms a tick).
+ * {@link #awaitAsync()} waits for async work, e.g. a name lookup, to finish.
+ */
+public final class StandInScheduler {
+    private final class Task implements BukkitTask, Comparable<Task> {
+        final int id = ids.incrementAndGet();
+        final Plugin owner;
+        final Runnable runnable;
+        final long period;
+        final boolean sync;
+        long due;
+        volatile boolean cancelled;
+        ScheduledFuture<?> future;
+
+        Task(Plugin owner, Runnable runnable, long due, long period, boolean sync) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.due = due;
+            this.period = period;
+            this.sync = sync;
+        }
+
+        @Override
+        public int getTaskId() {
+            return id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return owner;
+        }
+
+        @Override
+        public boolean isSync() {
+            return sync;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return due != other.due ? Long.compare(due, other.due) : Integer.compare(id, other.id);
+        }
+    }
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private final ExecutorService async = Executors.newFixedThreadPool(4, daemon("StandIn Async"));
+    private final ScheduledExecutorService asyncTimers = Executors.newSingleThreadScheduledExecutor(daemon("StandIn Async Timer"));
+    private final BukkitScheduler proxy;
+    private volatile long currentTick;
+
+    StandInScheduler() {
+        this.proxy = Proxies.create(BukkitScheduler.class, new Proxies.Bodies()
+            .on("runTask", (p, a) -> sync((Plugin) a[0], (Runnable) a[1], 0, -1))
+            .on("runTaskLater", (p, a) -> sync((Plugin) a[0], (Runnable) a[1], (Long) a[2], -1))
+            .on("runTaskTimer", (p, a) -> sync((Plugin) a[0], (Runnable) a[1], (Long) a[2], (Long) a[3]))
+            .on("runTaskAsynchronously", (p, a) -> async((Plugin) a[0], (Runnable) a[1], 0, -1))
+            .on("runTaskLaterAsynchronously", (p, a) -> async((Plugin) a[0], (Runnable) a[1], (Long) a[2], -1))
+            .on("runTaskTimerAsynchronously", (p, a) -> async((Plugin) a[0], (Runnable) a[1], (Long) a[2], (Long) a[3]))
+            .on("cancelTasks", (p, a) -> {
+                cancelAll();
+                return null;
+            }));
+    }
+
+    /**
+     * @return The BukkitScheduler handed to the plugin
+     */
+    public BukkitScheduler asBukkit() {
+        return proxy;
+    }
+
+    /**
+     * Advance the clock by one tick and run every sync task that is due
+     *
+     * @return Number of tasks run
+     */
+    public int tick() {
+        long now = ++currentTick;
+        int ran = 0;
+        while (true) {
+            Task task;
+            synchronized (queue) {
+                task = queue.peek();
+                if (task == null || task.due > now) break;
+                queue.poll();
+            }
+            if (task.cancelled) continue;
+
+            task.runnable.run();
+            ran++;
+            if (task.period > 0 && !task.cancelled) {
+                task.due = now + task.period;
+                synchronized (queue) {
+                    queue.add(task);
+                }
+            }
+        }
+        return ran;
+    }
+
+    /**
+     * @return Ticks run so far
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * @return Sync tasks waiting to run, including repeating ones
+     */
+    public int pending() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Wait until the async pool has run everything submitted so far
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void awaitAsync() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Cancel every task and stop the async threads
+     */
+    public void shutdown() {
+        cancelAll();
+        async.shutdownNow();
+        asyncTimers.shutdownNow();
+    }
+
+    private void cancelAll() {
+        synchronized (queue) {
+            for (Task task : queue) {
+                task.cancel();
+            }
+            queue.clear();
+        }
+    }
+
+    private BukkitTask sync(Plugin owner, Runnable runnable, long delay, long period) {
+        Task task = new Task(owner, runnable, currentTick + Math.max(1, delay), period < 0 ? -1 : Math.max(1, period), true);
+        synchronized (queue) {
+            queue.add(task);
+        }
+        return task;
+    }
+
+    private BukkitTask async(Plugin owner, Runnable runnable, long delay, long period) {
+        Task task = new Task(owner, runnable, 0, period, false);
+        Runnable submit = () -> {
+            inFlight.incrementAndGet();
+            async.execute(() -> {
+                try {
+                    if (!task.cancelled) runnable.run();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        };
+        if (period > 0) {
+            task.future = asyncTimers.scheduleAtFixedRate(submit, delay * 50, Math.max(1, period) * 50, TimeUnit.MILLISECONDS);
+        } else if (delay > 0) {
+            task.future = asyncTimers.schedule(submit, delay * 50, TimeUnit.MILLISECONDS);
+        } else {
+            submit.run();
+        }
+        return task;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
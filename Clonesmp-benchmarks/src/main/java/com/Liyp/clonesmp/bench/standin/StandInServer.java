@@ -0,0 +1,657 @@
+package com.Liyp.clonesmp.bench.standin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.BanEntry;
+import org.bukkit.BanList;
+import org.bukkit.Bukkit;
+import org.bukkit.Keyed;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Registry;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.ban.ProfileBanList;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.bukkit.profile.PlayerProfile;
+import org.bukkit.profile.PlayerTextures;
+
+import com.Liyp.clonesmp.CloneSMP;
+import com.Liyp.clonesmp.ProfileResolver;
+
+/**
+ * A server made of stand-ins, enough to enable CloneSMP outside Minecraft
+ *
+ * Covers what the plugin touches: scheduler, item factory, registries, ban
+ * lists, recipes, players and offline players, commands and event dispatch.
+ * Skin textures are resolved by a stand-in for the session server that answers
+ * on its own thread after a set latency, never on the caller's.
+ * The thread that creates the server is its main thread. Bukkit only accepts
+ * one server per JVM, so there is one instance, created by {@link #get()};
+ * JMH runs every benchmark in its own JVM.
+ */
+public final class StandInServer {
+    private static StandInServer instance;
+
+    private final Server server;
+    private final StandInScheduler scheduler = new StandInScheduler();
+    private final StandInItems items = new StandInItems();
+    private final Logger logger = Logger.getLogger("StandInServer");
+    private final Thread mainThread;
+    private final Map<UUID, Player> online = new LinkedHashMap<>();
+    private final Map<UUID, OfflinePlayer> offline = new ConcurrentHashMap<>();
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Set<UUID> profileBans = ConcurrentHashMap.newKeySet();
+    private final Set<String> nameBans = ConcurrentHashMap.newKeySet();
+    private final Map<NamespacedKey, Object> recipes = new HashMap<>();
+    private final Map<Class<?>, Registry<?>> registries = new ConcurrentHashMap<>();
+    private final Map<String, PluginCommand> commands = new HashMap<>();
+    private final Map<Class<?>, Object> services = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder profileLookups = new LongAdder();
+    private final ScheduledExecutorService sessionServer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "StandIn Session Server");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long profileLatencyMillis = 100;
+    private final ConsoleCommandSender console;
+    private final World world;
+    private Plugin plugin;
+
+    private StandInServer() {
+        this.mainThread = Thread.currentThread();
+        logger.setLevel(Level.WARNING);
+        this.console = Proxies.create(ConsoleCommandSender.class, new Proxies.Bodies()
+            .returning("getName", "CONSOLE")
+            .returning("hasPermission", true)
+            .returning("isOp", true)
+            .on("sendMessage", (p, a) -> {
+                messages.increment();
+                return null;
+            }));
+        this.world = Proxies.create(World.class, new Proxies.Bodies().returning("getName", "world"));
+        this.server = Proxies.create(Server.class, serverBodies());
+        Bukkit.setServer(server);
+    }
+
+    /**
+     * Get the server, creating it and registering it with Bukkit on first use
+     *
+     * @return The server
+     */
+    public static synchronized StandInServer get() {
+        if (instance == null) {
+            instance = new StandInServer();
+        }
+        return instance;
+    }
+
+    /**
+     * @return The scheduler; call {@link StandInScheduler#tick()} to advance the server
+     */
+    public StandInScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return Messages sent to players, the console and broadcasts so far
+     */
+    public long getMessagesSent() {
+        return messages.sum();
+    }
+
+    /**
+     * @return Profiles the plugin has looked up so far
+     */
+    public long getProfileLookups() {
+        return profileLookups.sum();
+    }
+
+    /**
+     * Set how long a profile lookup takes to answer
+     *
+     * @param millis Latency of the stand-in session server (100 ms by default)
+     */
+    public void setProfileLatency(long millis) {
+        this.profileLatencyMillis = millis;
+    }
+
+    /**
+     * @return Logger the plugin's logger writes to (WARNING and above by default)
+     */
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Enable CloneSMP in a data folder, as the server would on startup
+     *
+     * @param dataFolder The plugin folder (created if missing)
+     * @param config Values to override in the default config.yml, e.g. "storage.type"
+     * @return The enabled plugin
+     * @throws Exception If the plugin could not be constructed or enabled
+     */
+    public CloneSMP enable(File dataFolder, Map<String, Object> config) throws Exception {
+        dataFolder.mkdirs();
+        YamlConfiguration yaml;
+        try (InputStream in = CloneSMP.class.getClassLoader().getResourceAsStream("config.yml")) {
+            yaml = YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        for (Map.Entry<String, Object> entry : config.entrySet()) {
+            yaml.set(entry.getKey(), entry.getValue());
+        }
+        yaml.save(new File(dataFolder, "config.yml"));
+
+        PluginDescriptionFile description;
+        try (InputStream in = CloneSMP.class.getClassLoader().getResourceAsStream("plugin.yml")) {
+            description = new PluginDescriptionFile(in);
+        }
+
+        @SuppressWarnings("deprecation")
+        JavaPluginLoader loader = new JavaPluginLoader(server);
+        Constructor<CloneSMP> constructor = CloneSMP.class.getDeclaredConstructor(
+            JavaPluginLoader.class, PluginDescriptionFile.class, File.class, File.class, ProfileResolver.class);
+        constructor.setAccessible(true);
+        CloneSMP created = constructor.newInstance(loader, description, dataFolder, new File(dataFolder, "CloneSMP.jar"),
+                                                   (ProfileResolver) this::resolveProfile);
+
+        plugin = created;
+        created.onLoad();
+        setEnabled(created, true);
+        return created;
+    }
+
+    /**
+     * Disable the plugin as the server would on shutdown, and drop its tasks and listeners
+     *
+     * @param plugin The plugin
+     * @throws Exception If the plugin could not be disabled
+     */
+    public void disable(JavaPlugin plugin) throws Exception {
+        setEnabled(plugin, false);
+        scheduler.asBukkit().cancelTasks(plugin);
+        synchronized (listeners) {
+            listeners.clear();
+        }
+        this.plugin = null;
+    }
+
+    private static void setEnabled(JavaPlugin plugin, boolean enabled) throws Exception {
+        Method method = JavaPlugin.class.getDeclaredMethod("setEnabled", boolean.class);
+        method.setAccessible(true);
+        method.invoke(plugin, enabled);
+    }
+
+    /**
+     * Connect a player
+     *
+     * @param name The player name
+     * @return The online player, with every permission
+     */
+    public Player join(String name) {
+        return join(name, permission -> true);
+    }
+
+    /**
+     * Connect a player
+     *
+     * @param name The player name
+     * @param permissions Which permissions the player has
+     * @return The online player
+     */
+    public Player join(String name, Predicate<String> permissions) {
+        UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        return join(uuid, name, permissions);
+    }
+
+    /**
+     * Connect a player with a known UUID, e.g. one made known by {@link #remember}
+     *
+     * @param uuid The player's UUID
+     * @param name The player name
+     * @return The online player, with every permission
+     */
+    public Player join(UUID uuid, String name) {
+        return join(uuid, name, permission -> true);
+    }
+
+    private Player join(UUID uuid, String name, Predicate<String> permissions) {
+        names.put(uuid, name);
+        Player player = player(uuid, name, permissions);
+        synchronized (online) {
+            online.put(uuid, player);
+        }
+        return player;
+    }
+
+    /**
+     * Disconnect a player
+     *
+     * @param player The player
+     */
+    public void quit(Player player) {
+        synchronized (online) {
+            online.remove(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Make a player known to the server without connecting them, as after a past visit
+     *
+     * @param uuid The player's UUID
+     * @param name The player's name
+     */
+    public void remember(UUID uuid, String name) {
+        names.put(uuid, name);
+    }
+
+    /**
+     * Get a listener the plugin registered, to call its handlers directly
+     *
+     * @param type The listener class
+     * @return The listener
+     * @throws IllegalStateException If no listener of the class is registered
+     */
+    public <T extends Listener> T getListener(Class<T> type) {
+        synchronized (listeners) {
+            for (Listener listener : listeners) {
+                if (type.isInstance(listener)) return type.cast(listener);
+            }
+        }
+        throw new IllegalStateException("No " + type.getSimpleName() + " registered");
+    }
+
+    /**
+     * Send an event to the registered listeners in priority order, as the plugin manager would
+     *
+     * @param event The event
+     */
+    public void callEvent(Event event) {
+        List<Listener> current;
+        synchronized (listeners) {
+            current = new ArrayList<>(listeners);
+        }
+        List<Object[]> handlers = new ArrayList<>();
+        for (Listener listener : current) {
+            for (Method method : listener.getClass().getMethods()) {
+                EventHandler annotation = method.getAnnotation(EventHandler.class);
+                if (annotation == null || method.getParameterCount() != 1) continue;
+                if (!method.getParameterTypes()[0].isInstance(event)) continue;
+                handlers.add(new Object[] { listener, method, annotation });
+            }
+        }
+        handlers.sort(Comparator.comparingInt(h -> ((EventHandler) h[2]).priority().getSlot()));
+        for (Object[] handler : handlers) {
+            EventHandler annotation = (EventHandler) handler[2];
+            if (annotation.ignoreCancelled() && event instanceof Cancellable && ((Cancellable) event).isCancelled()) continue;
+            try {
+                ((Method) handler[1]).invoke(handler[0], event);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Listener failed on " + event.getEventName(), e);
+            }
+        }
+    }
+
+    /**
+     * Dispatch a command to the plugin as the given sender
+     *
+     * @param sender The sender
+     * @param line The command line without the slash, e.g. "clonesmp lives Steve"
+     * @return The executor's result
+     */
+    public boolean dispatch(CommandSender sender, String line) {
+        String[] parts = line.split(" ");
+        PluginCommand command = commands.get(parts[0].toLowerCase());
+        if (command == null) return false;
+        String[] args = new String[parts.length - 1];
+        System.arraycopy(parts, 1, args, 0, args.length);
+        return command.getExecutor().onCommand(sender, command, parts[0], args);
+    }
+
+    private Proxies.Bodies serverBodies() {
+        return new Proxies.Bodies()
+            .returning("getName", "StandIn")
+            .returning("getVersion", "StandIn (MC: 1.21)")
+            .returning("getBukkitVersion", "1.21-R0.1-SNAPSHOT")
+            .on("getLogger", (p, a) -> logger)
+            .on("getScheduler", (p, a) -> scheduler.asBukkit())
+            .on("getItemFactory", (p, a) -> items.asBukkit())
+            .on("getConsoleSender", (p, a) -> console)
+            .on("isPrimaryThread", (p, a) -> Thread.currentThread() == mainThread)
+            .on("getWorlds", (p, a) -> List.of(world))
+            .on("getPluginManager", (p, a) -> pluginManager())
+            .on("getServicesManager", (p, a) -> servicesManager())
+            .on("getPluginCommand", (p, a) -> command((String) a[0]))
+            .on("getRegistry", (p, a) -> registry((Class<?>) a[0]))
+            .on("getOnlinePlayers", (p, a) -> {
+                synchronized (online) {
+                    return Collections.unmodifiableCollection(new ArrayList<>(online.values()));
+                }
+            })
+            .on("getPlayer", (p, a) -> a[0] instanceof UUID ? onlinePlayer((UUID) a[0]) : onlinePlayer((String) a[0], false))
+            .on("getPlayerExact", (p, a) -> onlinePlayer((String) a[0], true))
+            .on("getOfflinePlayer", (p, a) -> a[0] instanceof UUID ? offlinePlayer((UUID) a[0])
+                                              : offlinePlayer(UUID.nameUUIDFromBytes(("OfflinePlayer:" + a[0]).getBytes(StandardCharsets.UTF_8))))
+            .on("getOfflinePlayers", (p, a) -> {
+                List<OfflinePlayer> players = new ArrayList<>();
+                for (UUID uuid : names.keySet()) {
+                    players.add(offlinePlayer(uuid));
+                }
+                return players.toArray(new OfflinePlayer[0]);
+            })
+            .on("createPlayerProfile", (p, a) -> {
+                UUID uuid = a.length > 0 && a[0] instanceof UUID ? (UUID) a[0] : null;
+                String name = a.length > 1 ? (String) a[1] : a.length == 1 && a[0] instanceof String ? (String) a[0] : null;
+                return profile(uuid, name);
+            })
+            .on("getBanList", (p, a) -> ((BanList.Type) a[0]) == BanList.Type.PROFILE ? profileBanList() : nameBanList())
+            .on("addRecipe", (p, a) -> {
+                synchronized (recipes) {
+                    recipes.put(((Keyed) a[0]).getKey(), a[0]);
+                }
+                return true;
+            })
+            .on("removeRecipe", (p, a) -> {
+                synchronized (recipes) {
+                    return recipes.remove(a[0]) != null;
+                }
+            })
+            .on("broadcastMessage", (p, a) -> {
+                int count;
+                synchronized (online) {
+                    count = online.size();
+                }
+                messages.add(count + 1);
+                return count;
+            });
+    }
+
+    private PluginManager pluginManager() {
+        return Proxies.create(PluginManager.class, new Proxies.Bodies()
+            .on("registerEvents", (p, a) -> {
+                synchronized (listeners) {
+                    listeners.add((Listener) a[0]);
+                }
+                return null;
+            })
+            .on("callEvent", (p, a) -> {
+                callEvent((Event) a[0]);
+                return null;
+            })
+            .on("isPluginEnabled", (p, a) -> plugin != null && plugin.isEnabled()));
+    }
+
+    private ServicesManager servicesManager() {
+        return Proxies.create(ServicesManager.class, new Proxies.Bodies()
+            .on("register", (p, a) -> {
+                services.put((Class<?>) a[0], a[1]);
+                return null;
+            })
+            .on("unregister", (p, a) -> {
+                services.remove((Class<?>) a[0], a[1]);
+                return null;
+            })
+            .on("load", (p, a) -> services.get((Class<?>) a[0])));
+    }
+
+    private PluginCommand command(String name) {
+        String label = name.contains(":") ? name.substring(name.indexOf(':') + 1) : name;
+        return commands.computeIfAbsent(label, key -> {
+            try {
+                Constructor<PluginCommand> constructor = PluginCommand.class.getDeclaredConstructor(String.class, Plugin.class);
+                constructor.setAccessible(true);
+                return constructor.newInstance(key, plugin);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Registry<?> registry(Class<?> type) {
+        return registries.computeIfAbsent(type, t -> {
+            Map<NamespacedKey, Object> entries = new ConcurrentHashMap<>();
+            return Proxies.create(Registry.class, new Proxies.Bodies()
+                .on("get", (p, a) -> entries.computeIfAbsent((NamespacedKey) a[0], key -> entry(t, key)))
+                .on("match", (p, a) -> {
+                    NamespacedKey key = NamespacedKey.fromString(((String) a[0]).toLowerCase());
+                    return key == null ? null : entries.computeIfAbsent(key, k -> entry(t, k));
+                })
+                .on("iterator", (p, a) -> entries.values().iterator())
+                .on("stream", (p, a) -> entries.values().stream()));
+        });
+    }
+
+    private static Object entry(Class<?> type, NamespacedKey key) {
+        if (type == Enchantment.class) return new StandInEnchantment(key);
+        if (type.isInterface()) {
+            return Proxies.create(type, new Proxies.Bodies().returning("getKey", key), Keyed.class);
+        }
+        return null;
+    }
+
+    private Player onlinePlayer(UUID uuid) {
+        synchronized (online) {
+            return online.get(uuid);
+        }
+    }
+
+    private Player onlinePlayer(String name, boolean exact) {
+        synchronized (online) {
+            for (Player player : online.values()) {
+                if (exact ? player.getName().equalsIgnoreCase(name) : player.getName().toLowerCase().startsWith(name.toLowerCase())) {
+                    return player;
+                }
+            }
+        }
+        return null;
+    }
+
+    private OfflinePlayer offlinePlayer(UUID uuid) {
+        return offline.computeIfAbsent(uuid, id -> Proxies.create(OfflinePlayer.class, new Proxies.Bodies()
+            .returning("getUniqueId", id)
+            .on("getName", (p, a) -> names.get(id))
+            .on("isOnline", (p, a) -> onlinePlayer(id) != null)
+            .on("getPlayer", (p, a) -> onlinePlayer(id))
+            .on("hasPlayedBefore", (p, a) -> names.containsKey(id))
+            .on("isBanned", (p, a) -> profileBans.contains(id))
+            .on("getPlayerProfile", (p, a) -> profile(id, names.get(id)))
+            .on("equals", (p, a) -> a[0] instanceof OfflinePlayer && id.equals(((OfflinePlayer) a[0]).getUniqueId()))
+            .on("hashCode", (p, a) -> id.hashCode())));
+    }
+
+    private Player player(UUID uuid, String name, Predicate<String> permissions) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("mainHand", null);
+        PlayerInventory inventory = Proxies.create(PlayerInventory.class, new Proxies.Bodies()
+            .on("getItemInMainHand", (p, a) -> {
+                ItemStack item = (ItemStack) state.get("mainHand");
+                return item != null ? item : new ItemStack(org.bukkit.Material.AIR);
+            })
+            .on("setItemInMainHand", (p, a) -> {
+                state.put("mainHand", a[0]);
+                return null;
+            })
+            .on("addItem", (p, a) -> {
+                ItemStack[] added = (ItemStack[]) a[0];
+                if (added.length > 0 && state.get("mainHand") == null) {
+                    state.put("mainHand", added[0]);
+                }
+                return new HashMap<Integer, ItemStack>();
+            }));
+        org.bukkit.persistence.PersistentDataContainer data = StandInItems.dataContainer();
+        PlayerProfile profile = profile(uuid, name);
+        Location location = new Location(world, 0, 64, 0);
+
+        return Proxies.create(Player.class, new Proxies.Bodies()
+            .returning("getUniqueId", uuid)
+            .returning("getName", name)
+            .returning("getDisplayName", name)
+            .returning("getPlayerProfile", profile)
+            .returning("getInventory", inventory)
+            .returning("getPersistentDataContainer", data)
+            .returning("getWorld", world)
+            .on("getLocation", (p, a) -> location.clone())
+            .returning("isOp", true)
+            .on("hasPermission", (p, a) -> a[0] instanceof String ? permissions.test((String) a[0]) : true)
+            .on("isOnline", (p, a) -> onlinePlayer(uuid) != null)
+            .on("sendMessage", (p, a) -> {
+                messages.increment();
+                return null;
+            })
+            .on("kickPlayer", (p, a) -> {
+                synchronized (online) {
+                    online.remove(uuid);
+                }
+                return null;
+            })
+            .on("getServer", (p, a) -> server)
+            .on("equals", (p, a) -> a[0] instanceof OfflinePlayer && uuid.equals(((OfflinePlayer) a[0]).getUniqueId()))
+            .on("hashCode", (p, a) -> uuid.hashCode()));
+    }
+
+    private PlayerProfile profile(UUID uuid, String name) {
+        Map<String, Object> skin = new HashMap<>();
+        PlayerTextures textures = Proxies.create(PlayerTextures.class, new Proxies.Bodies()
+            .on("getSkin", (p, a) -> skin.get("skin"))
+            .on("setSkin", (p, a) -> {
+                skin.put("skin", a[0]);
+                return null;
+            })
+            .on("isEmpty", (p, a) -> skin.isEmpty()));
+        PlayerProfile[] self = new PlayerProfile[1];
+        self[0] = Proxies.create(PlayerProfile.class, new Proxies.Bodies()
+            .returning("getUniqueId", uuid)
+            .returning("getName", name)
+            .returning("getTextures", textures)
+            .returning("isComplete", uuid != null && name != null)
+            // Lookups go through resolveProfile, which the plugin is given instead
+            .on("update", (p, a) -> CompletableFuture.failedFuture(new UnsupportedOperationException("No session server")))
+            .on("clone", (p, a) -> self[0])
+            .on("equals", (p, a) -> a[0] instanceof PlayerProfile && java.util.Objects.equals(uuid, ((PlayerProfile) a[0]).getUniqueId()))
+            .on("hashCode", (p, a) -> uuid == null ? 0 : uuid.hashCode()));
+        return self[0];
+    }
+
+    /**
+     * Answer a profile lookup from the stand-in session server, with a skin for every player
+     */
+    private CompletableFuture<PlayerProfile> resolveProfile(UUID uuid, String name) {
+        profileLookups.increment();
+        CompletableFuture<PlayerProfile> result = new CompletableFuture<>();
+        sessionServer.schedule(() -> {
+            PlayerProfile profile = profile(uuid, name != null ? name : names.get(uuid));
+            try {
+                profile.getTextures().setSkin(new URL("http://textures.minecraft.net/texture/" + uuid.toString().replace("-", "")));
+                result.complete(profile);
+            } catch (MalformedURLException e) {
+                result.completeExceptionally(e);
+            }
+        }, profileLatencyMillis, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    private ProfileBanList profileBanList() {
+        return Proxies.create(ProfileBanList.class, new Proxies.Bodies()
+            .on("addBan", (p, a) -> {
+                profileBans.add(((PlayerProfile) a[0]).getUniqueId());
+                return null;
+            })
+            .on("pardon", (p, a) -> {
+                profileBans.remove(((PlayerProfile) a[0]).getUniqueId());
+                return null;
+            })
+            .on("isBanned", (p, a) -> profileBans.contains(((PlayerProfile) a[0]).getUniqueId()))
+            .on("getEntries", (p, a) -> {
+                Set<BanEntry<PlayerProfile>> entries = new HashSet<>();
+                for (UUID uuid : profileBans) {
+                    PlayerProfile target = profile(uuid, names.get(uuid));
+                    @SuppressWarnings("unchecked")
+                    BanEntry<PlayerProfile> entry = Proxies.create(BanEntry.class, new Proxies.Bodies()
+                        .returning("getBanTarget", target)
+                        .returning("getTarget", target.getName()));
+                    entries.add(entry);
+                }
+                return entries;
+            }));
+    }
+
+    @SuppressWarnings("rawtypes")
+    private BanList nameBanList() {
+        return Proxies.create(BanList.class, new Proxies.Bodies()
+            .on("addBan", (p, a) -> {
+                nameBans.add(String.valueOf(a[0]));
+                return null;
+            })
+            .on("pardon", (p, a) -> {
+                nameBans.remove(String.valueOf(a[0]));
+                return null;
+            })
+            .on("isBanned", (p, a) -> nameBans.contains(String.valueOf(a[0]))));
+    }
+
+    /**
+     * Delete a directory tree, e.g. a benchmark's data folder
+     *
+     * @param dir The directory
+     * @throws IOException If a file could not be deleted
+     */
+    public static void deleteTree(File dir) throws IOException {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        if (dir.exists() && !dir.delete()) {
+            throw new IOException("Could not delete " + dir);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.Liyp.clonesmp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Collects death and Life Crystal announcements and sends them as one digest
+ *
+ * Announcements made within the configured window (by default, the same tick)
+ * are buffered and sent together once it ends, so a mass death sends each
+ * player one message instead of one per death. A single announcement keeps its
+ * usual wording. Players only receive the kinds they have permission for
+ * (clonesmp.announcements.deaths / .crystals) and nothing if they muted
+ * announcements with /clonesmp announcements off. Only the main server thread
+ * may use this class.
+ */
+public class Announcer {
+    private static final int MAX_NAMES = 10;
+    private static final int DEATHS = 1;
+    private static final int CRYSTALS = 2;
+
+    private final CloneSMP plugin;
+    private final NamespacedKey mutedKey;
+    private final Map<UUID, Announcement> deaths = new LinkedHashMap<>();
+    private final Map<UUID, Announcement> crystals = new LinkedHashMap<>();
+    private BukkitTask flushTask;
+
+    private static final class Announcement {
+        final String name;
+        int lives;
+
+        Announcement(String name, int lives) {
+            this.name = name;
+            this.lives = lives;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     */
+    public Announcer(CloneSMP plugin) {
+        this.plugin = plugin;
+        this.mutedKey = new NamespacedKey(plugin, "announcements_muted");
+    }
+
+    /**
+     * Announce that a player died
+     *
+     * @param player The player who died
+     * @param livesLeft Lives the player has left
+     */
+    public void announceDeath(Player player, int livesLeft) {
+        queue(deaths, player, livesLeft);
+    }
+
+    /**
+     * Announce that a player used a Life Crystal
+     *
+     * @param player The player who used the crystal
+     * @param lives Lives the player has now
+     */
+    public void announceCrystal(Player player, int lives) {
+        queue(crystals, player, lives);
+    }
+
+    /**
+     * Check if a player muted announcements
+     *
+     * @param player The player
+     * @return True if the player receives no announcements
+     */
+    public boolean isMuted(Player player) {
+        return player.getPersistentDataContainer().has(mutedKey, PersistentDataType.BYTE);
+    }
+
+    /**
+     * Mute or unmute announcements for a player. Stored with the player's data.
+     *
+     * @param player The player
+     * @param muted True to stop receiving announcements
+     */
+    public void setMuted(Player player, boolean muted) {
+        if (muted) {
+            player.getPersistentDataContainer().set(mutedKey, PersistentDataType.BYTE, (byte) 1);
+        } else {
+            player.getPersistentDataContainer().remove(mutedKey);
+        }
+    }
+
+    /**
+     * Send anything still buffered, e.g. on shutdown
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        flush();
+    }
+
+    private void queue(Map<UUID, Announcement> pending, Player player, int lives) {
+        // A player who dies twice in one window is listed once, with their latest count
+        Announcement existing = pending.get(player.getUniqueId());
+        if (existing != null) {
+            existing.lives = lives;
+        } else {
+            pending.put(player.getUniqueId(), new Announcement(player.getName(), lives));
+        }
+
+        if (flushTask == null) {
+            flushTask = Bukkit.getScheduler().runTaskLater(plugin, this::flush,
+                                                           plugin.getSettings().getAnnouncementWindowTicks());
+        }
+    }
+
+    private void flush() {
+        flushTask = null;
+        if (deaths.isEmpty() && crystals.isEmpty()) return;
+
+        String deathDigest = deaths.isEmpty() ? null : deathDigest();
+        String crystalDigest = crystals.isEmpty() ? null : crystalDigest();
+        deaths.clear();
+        crystals.clear();
+
+        // One message per recipient, built once for each combination of kinds
+        String[] messages = new String[4];
+        messages[DEATHS] = deathDigest;
+        messages[CRYSTALS] = crystalDigest;
+        messages[DEATHS | CRYSTALS] = deathDigest == null ? crystalDigest
+                                    : crystalDigest == null ? deathDigest
+                                    : deathDigest + "\n" + crystalDigest;
+
+        plugin.getLog().info(Channel.ANNOUNCEMENTS, "{}", ChatColor.stripColor(messages[DEATHS | CRYSTALS]));
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            int kinds = 0;
+            if (deathDigest != null && player.hasPermission("clonesmp.announcements.deaths")) kinds |= DEATHS;
+            if (crystalDigest != null && player.hasPermission("clonesmp.announcements.crystals")) kinds |= CRYSTALS;
+            if (kinds != 0 && !isMuted(player)) {
+                player.sendMessage(messages[kinds]);
+            }
+        }
+    }
+
+    private String deathDigest() {
+        if (deaths.size() == 1) {
+            Announcement a = deaths.values().iterator().next();
+            return ChatColor.RED + a.name + ChatColor.YELLOW + " has " + ChatColor.RED + a.lives + ChatColor.YELLOW + " lives remaining!";
+        }
+        return digest(ChatColor.RED.toString() + deaths.size() + ChatColor.YELLOW + " players died: ", deaths, ChatColor.RED);
+    }
+
+    private String crystalDigest() {
+        if (crystals.size() == 1) {
+            Announcement a = crystals.values().iterator().next();
+            return ChatColor.LIGHT_PURPLE + a.name + ChatColor.GREEN + " used a Life Crystal and now has " +
+                   ChatColor.GOLD + a.lives + ChatColor.GREEN + " lives!";
+        }
+        return digest(ChatColor.LIGHT_PURPLE.toString() + crystals.size() + ChatColor.GREEN + " players used Life Crystals: ",
+                      crystals, ChatColor.GOLD);
+    }
+
+    private static String digest(String header, Map<UUID, Announcement> pending, ChatColor countColor) {
+        StringBuilder out = new StringBuilder(header);
+        int listed = 0;
+        for (Announcement a : pending.values()) {
+            if (listed == MAX_NAMES) {
+                out.append(ChatColor.GRAY).append(" and ").append(pending.size() - listed).append(" more");
+                break;
+            }
+            if (listed > 0) {
+                out.append(ChatColor.GRAY).append(", ");
+            }
+            out.append(ChatColor.WHITE).append(a.name).append(ChatColor.GRAY).append(" (")
+               .append(countColor).append(a.lives).append(ChatColor.GRAY).append(a.lives == 1 ? " life)" : " lives)");
+            listed++;
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package com.Liyp.clonesmp;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.BanEntry;
+import org.bukkit.BanList;
+import org.bukkit.Bukkit;
+import org.bukkit.ban.ProfileBanList;
+import org.bukkit.profile.PlayerProfile;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * In-memory set of banned player UUIDs
+ *
+ * Answers "is this player banned?" with a hash lookup instead of asking the
+ * server's ban list by name, which breaks when a player changes their name.
+ * Updated directly when CloneSMP bans or pardons someone, and reconciled with
+ * the server's ban list at startup and periodically so bans and pardons made
+ * by other means (commands, expiry, other plugins) are picked up. Players whose
+ * ban is still queued in the {@link EliminationQueue} stay banned here until it
+ * is applied.
+ */
+public class BanCache {
+    private static final long RECONCILE_INTERVAL_TICKS = 20L * 60 * 5;
+
+    private final CloneSMP plugin;
+    private final Set<UUID> banned = ConcurrentHashMap.newKeySet();
+    private BukkitTask reconcileTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     */
+    public BanCache(CloneSMP plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Load the server's ban list and start periodic reconciliation
+     */
+    public void start() {
+        reconcile();
+        reconcileTask = Bukkit.getScheduler().runTaskTimer(plugin, this::reconcile,
+                RECONCILE_INTERVAL_TICKS, RECONCILE_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stop periodic reconciliation
+     */
+    public void shutdown() {
+        if (reconcileTask != null) {
+            reconcileTask.cancel();
+            reconcileTask = null;
+        }
+    }
+
+    /**
+     * Check if a player is banned
+     *
+     * @param uuid The player's UUID
+     * @return True if the player is banned
+     */
+    public boolean isBanned(UUID uuid) {
+        return banned.contains(uuid);
+    }
+
+    /**
+     * Get the number of banned players
+     *
+     * @return Banned player count
+     */
+    public int size() {
+        return banned.size();
+    }
+
+    /**
+     * Record that a player was banned
+     *
+     * @param uuid The player's UUID
+     */
+    public void markBanned(UUID uuid) {
+        banned.add(uuid);
+    }
+
+    /**
+     * Record that a player was pardoned
+     *
+     * @param uuid The player's UUID
+     */
+    public void markPardoned(UUID uuid) {
+        banned.remove(uuid);
+    }
+
+    /**
+     * Replace the cached state with the server's ban list, keeping bans that are
+     * queued but not applied yet. Must be called on the main thread.
+     */
+    public void reconcile() {
+        ProfileBanList banList = Bukkit.getBanList(BanList.Type.PROFILE);
+        Set<UUID> current = new HashSet<>();
+        for (BanEntry<PlayerProfile> entry : banList.getEntries()) {
+            PlayerProfile profile = entry.getBanTarget();
+            UUID uuid = profile == null ? null : profile.getUniqueId();
+            if (uuid == null && profile != null && profile.getName() != null) {
+                // Name-only entry; the index also knows former names
+                uuid = plugin.getNameIndex().getUuid(profile.getName());
+            }
+            if (uuid != null) {
+                current.add(uuid);
+            }
+        }
+
+        // Pardoned or expired elsewhere; queued bans are not on the list yet
+        EliminationQueue eliminations = plugin.getEliminations();
+        banned.removeIf(uuid -> !current.contains(uuid) && (eliminations == null || !eliminations.isPending(uuid)));
+        banned.addAll(current);
+    }
+}
@@ -2,12 +2,19 @@ package com.Liyp.clonesmp;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.logging.Level;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
 
 /**
  * CloneSMP - A survival plugin that implements a lives system with player heads
@@ -20,139 +27,410 @@ import org.bukkit.plugin.java.JavaPlugin;
  * - Life Crystals can be crafted to gain an extra life
  */
 public class CloneSMP extends JavaPlugin {
+    private static final String[] STORAGE_TYPES = { "yaml", "sqlite", "mmap", "sharded" };
+    
     private static CloneSMP instance;
-    private File dataFile;
-    private YamlConfiguration dataConfig;
+    private LivesStore lives;
+    private DataSaver dataSaver;
+    private LivesStorage storage;
+    private PlayerRecords records;
     private File configFile;
     private NamespacedKey megaHeadKey;
     private LifeCrystalItem lifeCrystalItem;
+    private PlayerNameIndex nameIndex;
+    private BanCache banCache;
+    private MegaHeadIndex megaHeads;
+    private DeathHistory history;
+    private Leaderboards leaderboards;
+    private EliminationQueue eliminations;
+    private ProfileCache profileCache;
+    private Announcer announcer;
+    private LivesHud hud;
+    private LivesService api;
+    private PluginLog log;
+    private Metrics metrics;
+    private MetricsServer metricsServer;
+    private final ItemTemplates itemTemplates = new ItemTemplates();
+    private final ProfileResolver profileResolver;
     
-    // Default configuration values
-    private int maxLives = 3;
-    private boolean broadcastDeaths = true;
-    private boolean dropHeadOnDeath = true;
-    private boolean lifeCrystalsEnabled = true;
+    // Current configuration, replaced as a whole on reload
+    private volatile Settings settings;
+
+    public CloneSMP() {
+        super();
+        this.profileResolver = ProfileResolver.DEFAULT;
+    }
+
+    /**
+     * Create the plugin outside a server's plugin loader, e.g. for the benchmarks
+     * 
+     * @param loader The loader
+     * @param description The plugin.yml description
+     * @param dataFolder The plugin folder
+     * @param file The plugin jar
+     * @param profileResolver Looks up skin textures in place of the session server
+     */
+    protected CloneSMP(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file,
+                       ProfileResolver profileResolver) {
+        super(loader, description, dataFolder, file);
+        this.profileResolver = profileResolver;
+    }
 
     @Override
     public void onEnable() {
         instance = this;
         
-        // Enhanced console logging
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fPlugin is starting up...");
+        // Console logging, written by a background thread
+        log = new PluginLog(getLogger());
+        log.start();
+        log.info(Channel.CORE, "Plugin is starting up...");
         
         try {
             megaHeadKey = new NamespacedKey(this, "mega_head");
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fCreated MegaHead NamespacedKey");
 
             // Initialize config files
             setupConfigs();
+            dataSaver.start(settings.getFlushIntervalTicks());
+            
+            // Player name lookups for offline players
+            nameIndex = new PlayerNameIndex(this, new File(getDataFolder(), "names.txt"));
+            nameIndex.start();
+            lives.forEach((msb, lsb, deaths) -> {
+                if (deaths >= getMaxLives()) {
+                    nameIndex.setEliminated(new UUID(msb, lsb), true);
+                }
+            });
+            lives.addListener((uuid, oldDeaths, newDeaths) -> nameIndex.setEliminated(uuid, newDeaths >= getMaxLives()));
+            
+            // Death, lives and Life Crystal leaderboards, updated as lives change
+            leaderboards = new Leaderboards(this, lives, new File(getDataFolder(), "crystals.dat"));
+            leaderboards.start();
+            lives.addListener(leaderboards);
+            
+            if (storage.isLazy()) {
+                // Most records are only on disk; find eliminated players and rank everyone in the background
+                Leaderboards.Loader ranked = leaderboards.loader();
+                Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+                    try {
+                        storage.scan((msb, lsb, deaths) -> {
+                            if (deaths >= getMaxLives()) {
+                                nameIndex.setEliminated(new UUID(msb, lsb), true);
+                            }
+                            ranked.add(msb, lsb, deaths);
+                        });
+                    } catch (IOException e) {
+                        log.warning(Channel.STORAGE, "Could not scan {} for eliminated players", storage.getFile().getName(), e);
+                    }
+                    Bukkit.getScheduler().runTask(this, ranked::install);
+                });
+            }
+            
+            // Deaths, Life Crystals, resets and unbans per player, for /clonesmp history
+            history = new DeathHistory(this, new File(getDataFolder(), "history"));
+            
+            // Skin textures for player heads, resolved in the background
+            profileCache = new ProfileCache(this, new File(getDataFolder(), "profiles.txt"), profileResolver);
+            profileCache.start();
+            
+            // Ban state for Mega Head checks, kept in sync with the server ban list
+            banCache = new BanCache(this);
+            banCache.start();
+            
+            // Where Mega Heads are placed, so ordinary head breaks skip the block state
+            megaHeads = new MegaHeadIndex(this, new File(getDataFolder(), "megaheads.txt"));
+            megaHeads.start();
+            
+            // Bans and kicks for players out of lives, applied once per tick
+            eliminations = new EliminationQueue(this, new File(getDataFolder(), "eliminations.log"));
+            eliminations.start();
+            
+            // Death and Life Crystal announcements, sent as one digest per tick
+            announcer = new Announcer(this);
+            
+            // Lives in the sidebar, tab list or action bar, updated once per tick as they change
+            hud = new LivesHud(this, lives);
+            hud.apply(settings);
+            lives.addListener(hud);
+            
+            // Handler timings for /clonesmp stats and the optional metrics endpoint
+            metrics = new Metrics(this);
+            metrics.start();
+            updateMetricsServer(settings);
+            
+            // Lives for other plugins: CloneSMPApi through the ServicesManager
+            api = new LivesService(this, lives, records);
+            lives.addListener(api);
+            getServer().getServicesManager().register(CloneSMPApi.class, api, this, ServicePriority.Normal);
             
             // Register commands
             getCommand("clonesmp").setExecutor(new CommandHandler(this));
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fRegistered commands");
             
             // Register listeners
             getServer().getPluginManager().registerEvents(new DeathListener(), this);
             getServer().getPluginManager().registerEvents(new MegaHeadListener(), this);
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fRegistered event listeners");
+            getServer().getPluginManager().registerEvents(megaHeads, this);
+            getServer().getPluginManager().registerEvents(nameIndex, this);
+            getServer().getPluginManager().registerEvents(profileCache, this);
+            getServer().getPluginManager().registerEvents(records, this);
+            getServer().getPluginManager().registerEvents(hud, this);
             
             // Initialize Life Crystal feature if enabled
-            if (lifeCrystalsEnabled) {
+            if (settings.areLifeCrystalsEnabled()) {
                 lifeCrystalItem = new LifeCrystalItem(this);
-                Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLife Crystal feature enabled");
             }
 
-            // Send console messages in multiple formats to ensure visibility
-            getLogger().info("====== CloneSMP Enabled ======");
-            getLogger().info("Players have " + maxLives + " lives before being banned");
-            
-            // Direct console messages that should be more visible
-            Bukkit.getConsoleSender().sendMessage("§e====== §a[CloneSMP] §2ENABLED §e======");
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fPlayers have §e" + maxLives + " §flives before being banned");
-            if (lifeCrystalsEnabled) {
-                Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fPlayers can use Life Crystals to get extra lives (max: §e" + 
-                                                      getConfig().getInt("max-life-crystals", 5) + "§f)");
+            log.info(Channel.CORE, "====== CloneSMP Enabled ======");
+            log.info(Channel.CORE, "Players have {} lives before being banned", settings.getMaxLives());
+            if (settings.areLifeCrystalsEnabled()) {
+                log.info(Channel.CORE, "Players can use Life Crystals to get extra lives (max: {})", settings.getMaxLifeCrystals());
             }
-            
-            // Try severe logging level as well
-            getLogger().log(Level.SEVERE, "CloneSMP Plugin Enabled Successfully");
         } catch (Exception e) {
             // Catch any startup errors and log them
-            getLogger().log(Level.SEVERE, "Error during plugin startup", e);
-            Bukkit.getConsoleSender().sendMessage("§c[CloneSMP] §4ERROR: §fFailed to start plugin: " + e.getMessage());
-            e.printStackTrace();
+            log.severe(Channel.CORE, "Error during plugin startup", e);
         }
     }
 
     @Override
     public void onDisable() {
         try {
-            saveData();
-            getLogger().info("====== CloneSMP Disabled ======");
-            Bukkit.getConsoleSender().sendMessage("§e====== §c[CloneSMP] §4DISABLED §e======");
+            if (api != null) {
+                getServer().getServicesManager().unregister(CloneSMPApi.class, api);
+                api = null;
+            }
+            if (metricsServer != null) {
+                metricsServer.shutdown();
+                metricsServer = null;
+            }
+            if (metrics != null) {
+                metrics.shutdown();
+            }
+            if (hud != null) {
+                hud.shutdown();
+            }
+            if (announcer != null) {
+                announcer.shutdown();
+            }
+            if (eliminations != null) {
+                eliminations.shutdown();
+            }
+            if (megaHeads != null) {
+                megaHeads.shutdown();
+            }
+            if (banCache != null) {
+                banCache.shutdown();
+            }
+            if (profileCache != null) {
+                profileCache.shutdown();
+            }
+            if (nameIndex != null) {
+                nameIndex.shutdown();
+            }
+            if (records != null) {
+                records.shutdown();
+            }
+            if (history != null) {
+                history.shutdown();
+            }
+            if (leaderboards != null) {
+                leaderboards.shutdown();
+            }
+            if (dataSaver != null) {
+                dataSaver.shutdown();
+                log.info(Channel.STORAGE, "Saved plugin data");
+            }
+            log.info(Channel.CORE, "====== CloneSMP Disabled ======");
         } catch (Exception e) {
-            getLogger().log(Level.SEVERE, "Error during plugin shutdown", e);
-            Bukkit.getConsoleSender().sendMessage("§c[CloneSMP] §4ERROR: §fFailed during shutdown: " + e.getMessage());
+            log.severe(Channel.CORE, "Error during plugin shutdown", e);
+        } finally {
+            if (log != null) {
+                log.shutdown();
+            }
         }
     }
 
     /**
      * Set up configuration and data files
      */
-    private void setupConfigs() {
+    private void setupConfigs() throws IOException {
         // Create plugin folder if it doesn't exist
         if (!getDataFolder().exists()) {
             getDataFolder().mkdirs();
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fCreated plugin directory");
+            log.info(Channel.CORE, "Created plugin directory");
         }
         
         // Plugin config setup (config.yml)
         configFile = new File(getDataFolder(), "config.yml");
         if (!configFile.exists()) {
             saveDefaultConfig();
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fCreated default config.yml");
+            log.info(Channel.CORE, "Created default config.yml");
+        }
+        
+        // Parse config values once into a settings snapshot
+        saveDefaultConfig();
+        settings = Settings.parse(getConfig());
+        log.configure(settings);
+        logSettings(settings);
+        
+        // Lives storage setup (data.yml, lives.db, lives.dat or players/)
+        setupStorage();
+    }
+    
+    /**
+     * Open the configured lives storage and load it, migrating from the
+     * other storage type on first start. Journaled changes are replayed on
+     * top of the migrated lives, so they win over the older storage.
+     */
+    private void setupStorage() throws IOException {
+        storage = createStorage(settings.getStorageType());
+        
+        boolean firstStart = !storage.getFile().exists();
+        storage.open();
+        lives = new LivesStore();
+        if (storage.isLazy()) {
+            log.info(Channel.STORAGE, "Lives are loaded from {} as players join", storage.getFile().getName());
         } else {
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLoaded existing config.yml");
+            storage.load(lives);
+            log.info(Channel.STORAGE, "Loaded lives for {} players from {}", lives.size(), storage.getFile().getName());
+        }
+        
+        // Decided before the journal fills the lives store
+        LivesStorage migrateFrom = firstStart ? importStorage(storage) : null;
+        
+        LivesJournal journal = null;
+        if (settings.isJournalEnabled()) {
+            journal = new LivesJournal(new File(getDataFolder(), "journal"), log);
         }
+        dataSaver = new DataSaver(this, lives, storage, journal);
+        lives.addListener(dataSaver);
         
-        // Load config values directly from getConfig()
-        loadConfigValues();
+        if (journal != null) {
+            // Changes that were journaled but never reached storage (e.g. after a crash)
+            int replayed = journal.replay(lives, dataSaver::markDirty);
+            if (replayed > 0) {
+                log.info(Channel.STORAGE, "Replayed {} lives changes from the journal", replayed);
+            }
+            lives.addListener(journal);
+        }
+        
+        if (migrateFrom != null) {
+            finishMigration(migrateFrom, storage);
+        }
         
-        // Data file setup (data.yml)
-        dataFile = new File(getDataFolder(), "data.yml");
-        if (!dataFile.exists()) {
+        // Which records stay in memory (all of them unless the storage is lazy)
+        records = new PlayerRecords(this, lives, dataSaver, storage);
+        lives.addListener(records);
+        records.start();
+    }
+    
+    /**
+     * Load lives from another storage type whose file is still present
+     * 
+     * @param target The newly created storage
+     * @return The storage the lives were loaded from, or null if there was none
+     */
+    private LivesStorage importStorage(LivesStorage target) throws IOException {
+        for (String type : STORAGE_TYPES) {
+            if (type.equals(target.getType())) continue;
+            
+            LivesStorage source = createStorage(type);
+            if (!source.getFile().exists() || source.getFile().length() == 0) continue;
+            
+            source.open();
             try {
-                dataFile.createNewFile();
-                Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fCreated new data.yml file");
-            } catch (IOException e) {
-                getLogger().log(Level.SEVERE, "Could not create data.yml", e);
-                Bukkit.getConsoleSender().sendMessage("§c[CloneSMP] §4ERROR: §fCould not create data.yml: " + e.getMessage());
+                source.load(lives);
+            } finally {
+                source.close();
             }
-        } else {
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLoaded existing data.yml");
+            return source;
         }
+        return null;
+    }
+    
+    /**
+     * Write the imported lives to the new storage and set the old file aside
+     * 
+     * @param source The storage the lives were imported from
+     * @param target The newly created storage
+     */
+    private void finishMigration(LivesStorage source, LivesStorage target) throws IOException {
+        dataSaver.markAllDirty();
+        dataSaver.flushNow();
         
-        dataConfig = YamlConfiguration.loadConfiguration(dataFile);
+        File migrated = new File(source.getFile().getPath() + ".migrated");
+        if (!source.getFile().renameTo(migrated)) {
+            log.warning(Channel.STORAGE, "Could not rename {} after migration", source.getFile().getName());
+        }
+        log.info(Channel.STORAGE, "Migrated {} players from {} to {}", lives.size(),
+                 source.getFile().getName(), target.getFile().getName());
     }
     
     /**
-     * Load configuration values from config.yml
+     * Create a lives storage by its config name
+     * 
+     * @param type The storage type (yaml, sqlite, mmap or sharded)
+     * @return The storage, or null if the type is unknown
      */
-    private void loadConfigValues() {
-        // Generate default config if not present
-        saveDefaultConfig();
+    private LivesStorage createStorage(String type) {
+        switch (type.toLowerCase()) {
+            case "yaml":
+                return new YamlLivesStorage(new File(getDataFolder(), "data.yml"), log);
+            case "sqlite":
+                return new SqliteLivesStorage(new File(getDataFolder(), "lives.db"));
+            case "mmap":
+                return new MappedLivesStorage(new File(getDataFolder(), "lives.dat"), log);
+            case "sharded":
+                return new ShardedLivesStorage(new File(getDataFolder(), "players"));
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Start, restart or stop the metrics endpoint to match the settings
+     * 
+     * @param settings The settings
+     */
+    private void updateMetricsServer(Settings settings) {
+        if (metricsServer != null && settings.isMetricsEnabled() && metricsServer.matches(settings)) return;
         
-        // Load values
-        maxLives = getConfig().getInt("max-lives", 3);
-        broadcastDeaths = getConfig().getBoolean("broadcast-deaths", true);
-        dropHeadOnDeath = getConfig().getBoolean("drop-head-on-death", true);
-        lifeCrystalsEnabled = getConfig().getBoolean("life-crystal.enabled", true);
+        if (metricsServer != null) {
+            metricsServer.shutdown();
+            metricsServer = null;
+        }
+        if (!settings.isMetricsEnabled()) return;
         
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLoaded configuration values:");
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §f- Max Lives: §e" + maxLives);
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §f- Broadcast Deaths: §e" + broadcastDeaths);
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §f- Drop Head on Death: §e" + dropHeadOnDeath);
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §f- Life Crystals Enabled: §e" + lifeCrystalsEnabled);
+        MetricsServer server = new MetricsServer(metrics, settings.getMetricsHost(), settings.getMetricsPort());
+        try {
+            server.start();
+            metricsServer = server;
+            log.info(Channel.CORE, "Serving metrics at http://{}:{}/metrics", settings.getMetricsHost(), settings.getMetricsPort());
+        } catch (IOException e) {
+            server.shutdown();
+            log.severe(Channel.CORE, "Could not start the metrics endpoint on port {}", settings.getMetricsPort(), e);
+        }
+    }
+    
+    /**
+     * Log a settings snapshot and any problems found while parsing it
+     * 
+     * @param settings The settings
+     */
+    private void logSettings(Settings settings) {
+        log.info(Channel.CORE, "Loaded configuration values:");
+        log.info(Channel.CORE, "- Max Lives: {}", settings.getMaxLives());
+        log.info(Channel.CORE, "- Broadcast Deaths: {}", settings.shouldBroadcastDeaths());
+        log.info(Channel.CORE, "- Drop Head on Death: {}", settings.shouldDropHeadOnDeath());
+        log.info(Channel.CORE, "- Life Crystals Enabled: {}", settings.areLifeCrystalsEnabled());
+        log.info(Channel.CORE, "- Storage: {}", settings.getStorageType());
+        log.info(Channel.CORE, "- Data Flush Interval: {} ticks", settings.getFlushIntervalTicks());
+        log.info(Channel.CORE, "- Lives Journal: {}", settings.isJournalEnabled());
+        log.info(Channel.CORE, "- Lives HUD: {}", settings.getHudMode().name().toLowerCase());
+        if (settings.getStorageType().equals("sharded") || settings.getStorageType().equals("mmap")) {
+            log.info(Channel.CORE, "- Record Cache: {} players", settings.getCacheSize());
+        }
+        for (String warning : settings.getWarnings()) {
+            log.warning(Channel.CORE, "{}", warning);
+        }
     }
     
     /**
@@ -163,6 +441,14 @@ public class CloneSMP extends JavaPlugin {
         return instance;
     }
 
+    /**
+     * Get the plugin's console log
+     * @return The log
+     */
+    public PluginLog getLog() {
+        return log;
+    }
+
     /**
      * Get the NamespacedKey for Mega Head items
      * @return NamespacedKey for Mega Head
@@ -172,32 +458,165 @@ public class CloneSMP extends JavaPlugin {
     }
 
     /**
-     * Get the plugin data configuration
-     * @return YamlConfiguration for data storage
+     * Get the index used to find offline players by name
+     * @return The player name index
+     */
+    public PlayerNameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Get the cache of banned player UUIDs
+     * @return The ban cache
+     */
+    public BanCache getBanCache() {
+        return banCache;
+    }
+
+    /**
+     * Get the index of placed Mega Heads
+     * @return The Mega Head index
+     */
+    public MegaHeadIndex getMegaHeads() {
+        return megaHeads;
+    }
+
+    /**
+     * Get the per-player history of lives changes
+     * @return The death history
+     */
+    public DeathHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Get the death, lives and Life Crystal leaderboards
+     * @return The leaderboards
+     */
+    public Leaderboards getLeaderboards() {
+        return leaderboards;
+    }
+
+    /**
+     * Get the queue that bans and kicks players who used all their lives
+     * @return The elimination queue
+     */
+    public EliminationQueue getEliminations() {
+        return eliminations;
+    }
+
+    /**
+     * Get the cache of player profiles used for head textures
+     * @return The profile cache
+     */
+    public ProfileCache getProfileCache() {
+        return profileCache;
+    }
+
+    /**
+     * Get the announcer for death and Life Crystal broadcasts
+     * @return The announcer
      */
+    public Announcer getAnnouncer() {
+        return announcer;
+    }
+
+    /**
+     * Get the API offered to other plugins, also registered with the ServicesManager
+     * @return The API
+     */
+    public CloneSMPApi getApi() {
+        return api;
+    }
+
+    /**
+     * Get the lives HUD
+     * @return The HUD
+     */
+    public LivesHud getHud() {
+        return hud;
+    }
+
+    /**
+     * Get the handler timings
+     * @return The metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get the cache of prebuilt custom items
+     * @return The item templates
+     */
+    public ItemTemplates getItemTemplates() {
+        return itemTemplates;
+    }
+
+    /**
+     * Get the in-memory lives store. Changes made through it are
+     * written to the configured storage in the background. With sharded or mmap
+     * storage it only holds online and recently used players; use
+     * {@link #getRecords()} to load anyone else first.
+     * @return The lives store
+     */
+    public LivesStore getLives() {
+        return lives;
+    }
+
+    /**
+     * Get the plugin data configuration. Lives are no longer kept in a YAML
+     * document, so this builds a copy (deaths.&lt;uuid&gt;) of the lives store on
+     * every call; changes to it are not saved. With sharded or mmap storage it
+     * only holds the players in memory. Must be called on the main thread.
+     * @return YamlConfiguration with the death counts
+     * @deprecated Use {@link #getLives()}, or the {@link CloneSMPApi} service from other plugins
+     */
+    @Deprecated
     public YamlConfiguration getData() {
-        return dataConfig;
+        YamlConfiguration data = new YamlConfiguration();
+        lives.forEach((msb, lsb, deaths) -> data.set("deaths." + new UUID(msb, lsb), deaths));
+        return data;
     }
 
     /**
-     * Save the plugin data to file
+     * Get the manager that loads and evicts lives records
+     * @return The player records
+     */
+    public PlayerRecords getRecords() {
+        return records;
+    }
+
+    /**
+     * Save the plugin data to file immediately, waiting for any pending writes
      */
     public void saveData() {
+        long start = System.nanoTime();
         try {
-            dataConfig.save(dataFile);
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fSaved plugin data to data.yml");
+            dataSaver.flushNow();
+            log.fine(Channel.STORAGE, "Saved plugin data for {} players", lives.size());
         } catch (IOException e) {
-            getLogger().log(Level.SEVERE, "Could not save data.yml", e);
-            Bukkit.getConsoleSender().sendMessage("§c[CloneSMP] §4ERROR: §fCould not save data.yml: " + e.getMessage());
+            log.severe(Channel.STORAGE, "Could not save plugin data", e);
+        } finally {
+            metrics.record(Metrics.Timer.SAVE_DATA, start);
         }
     }
     
+    /**
+     * Get the current configuration. Read it once into a local variable when
+     * several values must come from the same version of config.yml.
+     * @return The settings snapshot
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+    
     /**
      * Get maximum number of lives before ban
      * @return Max lives count
      */
     public int getMaxLives() {
-        return maxLives;
+        return settings.getMaxLives();
     }
     
     /**
@@ -205,7 +624,7 @@ public class CloneSMP extends JavaPlugin {
      * @return True if deaths should be broadcast
      */
     public boolean shouldBroadcastDeaths() {
-        return broadcastDeaths;
+        return settings.shouldBroadcastDeaths();
     }
     
     /**
@@ -213,7 +632,7 @@ public class CloneSMP extends JavaPlugin {
      * @return True if heads should drop on death
      */
     public boolean shouldDropHeadOnDeath() {
-        return dropHeadOnDeath;
+        return settings.shouldDropHeadOnDeath();
     }
     
     /**
@@ -229,35 +648,63 @@ public class CloneSMP extends JavaPlugin {
      * @return True if Life Crystals are enabled
      */
     public boolean areLifeCrystalsEnabled() {
-        return lifeCrystalsEnabled;
+        return settings.areLifeCrystalsEnabled();
     }
     
     /**
-     * Reload the plugin configuration
+     * Reload config.yml. The file is read and parsed off the main thread, then the new
+     * settings replace the old ones in one step on the main thread. Lives are not touched.
+     * 
+     * @param done Called on the main thread with null once the new settings are in use,
+     *             or with the error if config.yml could not be read (the old settings stay)
      */
-    public void reloadConfigs() {
-        try {
-            reloadConfig();
-            loadConfigValues();
-            dataConfig = YamlConfiguration.loadConfiguration(dataFile);
-            
-            // Reinitialize Life Crystal feature if enabled/disabled state changed
-            boolean newLifeCrystalsEnabled = getConfig().getBoolean("life-crystal.enabled", true);
-            if (newLifeCrystalsEnabled != lifeCrystalsEnabled) {
-                lifeCrystalsEnabled = newLifeCrystalsEnabled;
-                if (lifeCrystalsEnabled) {
-                    lifeCrystalItem = new LifeCrystalItem(this);
-                    Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLife Crystal feature enabled");
-                } else {
-                    lifeCrystalItem = null;
-                    Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLife Crystal feature disabled");
-                }
+    public void reloadConfigs(Consumer<Exception> done) {
+        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
+            Settings parsed;
+            try {
+                YamlConfiguration config = new YamlConfiguration();
+                config.load(configFile);
+                parsed = Settings.parse(config);
+            } catch (IOException | InvalidConfigurationException e) {
+                log.severe(Channel.CORE, "Error reloading configuration", e);
+                Bukkit.getScheduler().runTask(this, () -> {
+                    done.accept(e);
+                });
+                return;
             }
-            
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fPlugin configuration reloaded successfully");
-        } catch (Exception e) {
-            getLogger().log(Level.SEVERE, "Error reloading configuration", e);
-            Bukkit.getConsoleSender().sendMessage("§c[CloneSMP] §4ERROR: §fFailed to reload configuration: " + e.getMessage());
+            Bukkit.getScheduler().runTask(this, () -> {
+                applySettings(parsed);
+                done.accept(null);
+            });
+        });
+    }
+    
+    /**
+     * Switch to new settings and update the parts of the plugin that depend on them
+     * 
+     * @param parsed The new settings
+     */
+    private void applySettings(Settings parsed) {
+        settings = parsed;
+        log.configure(parsed);
+        logSettings(parsed);
+        dataSaver.start(parsed.getFlushIntervalTicks());
+        itemTemplates.invalidate();
+        updateMetricsServer(parsed);
+        hud.apply(parsed);
+        
+        // Start, update or stop the Life Crystal feature
+        if (parsed.areLifeCrystalsEnabled() && lifeCrystalItem == null) {
+            lifeCrystalItem = new LifeCrystalItem(this);
+            log.info(Channel.CRYSTALS, "Life Crystal feature enabled");
+        } else if (parsed.areLifeCrystalsEnabled()) {
+            lifeCrystalItem.reload();
+        } else if (lifeCrystalItem != null) {
+            lifeCrystalItem.disable();
+            lifeCrystalItem = null;
+            log.info(Channel.CRYSTALS, "Life Crystal feature disabled");
         }
+        
+        log.info(Channel.CORE, "Plugin configuration reloaded successfully");
     }
 }
\ No newline at end of file
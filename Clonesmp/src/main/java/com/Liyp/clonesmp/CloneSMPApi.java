@@ -0,0 +1,92 @@
+package com.Liyp.clonesmp;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.plugin.Plugin;
+
+/**
+ * CloneSMP's API for other plugins, registered with the server's ServicesManager
+ *
+ * <pre>
+ * CloneSMPApi api = Bukkit.getServicesManager().load(CloneSMPApi.class);
+ * if (api != null &amp;&amp; api.getVersion() &gt;= 1) {
+ *     api.getLives(uuid).thenAccept(lives -&gt; ...);
+ * }
+ * </pre>
+ *
+ * Every method may be called from any thread and never blocks. Results complete
+ * on the main server thread, so callbacks may use the Bukkit API; never wait for
+ * a result on the main thread itself. Players who never died (or never joined)
+ * have every life. Lives are counted as in /clonesmp lives, between 0 and
+ * {@link #getMaxLives()}. Changes made through the API are saved, journaled and
+ * recorded in /clonesmp history like any other, and fire a cancellable
+ * {@link LivesChangeEvent} first; every change, whatever made it, fires a
+ * {@link LivesChangedEvent} after. Like /clonesmp reset, they only change the
+ * count: players are banned on their last death and unbanned by Mega Heads.
+ *
+ * Methods are only ever added to this interface; {@link #getVersion()} tells
+ * which were there when the running plugin was built.
+ */
+public interface CloneSMPApi {
+    /**
+     * The version of this interface
+     *
+     * 1: lives reads, bulk reads, compareAndSetLives, addLives
+     */
+    int VERSION = 1;
+
+    /**
+     * @return The API version of the running plugin, {@link #VERSION} as it was built
+     */
+    int getVersion();
+
+    /**
+     * @return Lives every player starts with, from the current config
+     */
+    int getMaxLives();
+
+    /**
+     * Get a player's lives left
+     *
+     * @param uuid The player's UUID
+     * @return The lives left, or an IOException if their record could not be read
+     */
+    CompletableFuture<Integer> getLives(UUID uuid);
+
+    /**
+     * Get many players' lives left at once. Prefer this to one call per player:
+     * players in memory are answered together, and the rest are read from storage
+     * in a single background task.
+     *
+     * @param uuids The players' UUIDs
+     * @return Lives left per player, or an IOException if records could not be read
+     */
+    CompletableFuture<Map<UUID, Integer>> getLives(Collection<UUID> uuids);
+
+    /**
+     * Set a player's lives if they still have the expected number
+     *
+     * @param source The plugin making the change, shown in the player's history
+     * @param uuid The player's UUID
+     * @param expected The lives the player must have now
+     * @param lives The new lives, between 0 and {@link #getMaxLives()}
+     * @return True if the lives were changed; false if they differed from expected
+     *         or a {@link LivesChangeEvent} was cancelled. Fails with an
+     *         IllegalArgumentException if lives is out of range.
+     */
+    CompletableFuture<Boolean> compareAndSetLives(Plugin source, UUID uuid, int expected, int lives);
+
+    /**
+     * Give or take a player's lives. The result is kept between 0 and {@link #getMaxLives()}.
+     *
+     * @param source The plugin making the change, shown in the player's history
+     * @param uuid The player's UUID
+     * @param delta Lives to add (negative to take)
+     * @return The player's lives afterwards, unchanged if a {@link LivesChangeEvent}
+     *         was cancelled
+     */
+    CompletableFuture<Integer> addLives(Plugin source, UUID uuid, int delta);
+}
@@ -1,13 +1,16 @@
 package com.Liyp.clonesmp;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
-import java.util.logging.Level;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -15,10 +18,18 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import com.Liyp.clonesmp.PluginLog.Channel;
+
 /**
  * Handles all commands for the CloneSMP plugin
  */
 public class CommandHandler implements CommandExecutor, TabCompleter {
+    private static final int MAX_NAME_COMPLETIONS = 30;
+    private static final int MAX_LISTED_MEGA_HEADS = 20;
+    private static final int TOP_SIZE = 10;
+    private static final DateTimeFormatter HISTORY_TIME =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.ROOT).withZone(ZoneId.systemDefault());
+    
     private final CloneSMP plugin;
     
     /**
@@ -44,8 +55,13 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
                     return true;
                 }
                 
-                plugin.reloadConfigs();
-                sender.sendMessage(ChatColor.GREEN + "CloneSMP configuration reloaded!");
+                plugin.reloadConfigs(error -> {
+                    if (error == null) {
+                        sender.sendMessage(ChatColor.GREEN + "CloneSMP configuration reloaded!");
+                    } else {
+                        sender.sendMessage(ChatColor.RED + "Could not reload config.yml: " + error.getMessage());
+                    }
+                });
                 return true;
                 
             case "lives":
@@ -67,33 +83,26 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
                     // Use Bukkit.getPlayer first to try to find online players
                     Player onlineTarget = Bukkit.getPlayer(args[1]);
                     if (onlineTarget != null) {
-                        showPlayerLives(sender, onlineTarget);
+                        showPlayerLives(sender, onlineTarget.getUniqueId(), onlineTarget.getName());
                         return true;
                     }
                     
-                    // For offline players, try to find by exact UUID if possible
-                    try {
-                        UUID targetUUID = UUID.fromString(args[1]);
-                        OfflinePlayer offlineTarget = Bukkit.getOfflinePlayer(targetUUID);
-                        if (offlineTarget.hasPlayedBefore()) {
-                            showPlayerLives(sender, offlineTarget);
-                            return true;
-                        }
-                    } catch (IllegalArgumentException ignored) {
-                        // Not a UUID, continue to check by name
-                    }
-                    
-                    // Last resort: try by name (with warning about potential inaccuracy)
-                    OfflinePlayer[] offlinePlayers = Bukkit.getOfflinePlayers();
-                    for (OfflinePlayer offlinePlayer : offlinePlayers) {
-                        if (offlinePlayer.getName() != null && 
-                            offlinePlayer.getName().equalsIgnoreCase(args[1])) {
-                            showPlayerLives(sender, offlinePlayer);
-                            return true;
+                    // Offline players are looked up by name or UUID in the background
+                    String query = args[1];
+                    plugin.getNameIndex().resolve(query, (uuid, name) -> {
+                        if (uuid == null) {
+                            sender.sendMessage(ChatColor.RED + "Player not found: " + query);
+                            return;
                         }
-                    }
-                    
-                    sender.sendMessage(ChatColor.RED + "Player not found: " + args[1]);
+                        // Offline players' records may have to be read first
+                        plugin.getRecords().load(uuid, error -> {
+                            if (error != null) {
+                                sender.sendMessage(ChatColor.RED + "Could not load " + name + "'s lives, see the console.");
+                            } else {
+                                showPlayerLives(sender, uuid, name);
+                            }
+                        });
+                    });
                 }
                 return true;
                 
@@ -159,6 +168,123 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
                         return true;
                 }
                 
+            case "announcements":
+                if (!(sender instanceof Player)) {
+                    sender.sendMessage(ChatColor.RED + "This command can only be used by players.");
+                    return true;
+                }
+                
+                toggleAnnouncements((Player) sender, args.length > 1 ? args[1] : null);
+                return true;
+                
+            case "stats":
+                if (!sender.hasPermission("clonesmp.admin.stats")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+                    return true;
+                }
+                
+                if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                    plugin.getMetrics().reset();
+                    sender.sendMessage(ChatColor.GREEN + "CloneSMP stats reset.");
+                } else {
+                    sendStats(sender);
+                }
+                return true;
+                
+            case "history":
+                if (args.length < 2) {
+                    sender.sendMessage(ChatColor.RED + "Usage: /clonesmp history <player> [page]");
+                    return true;
+                }
+                
+                if (!sender.getName().equalsIgnoreCase(args[1]) && !sender.hasPermission("clonesmp.admin.history")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to view other players' history.");
+                    return true;
+                }
+                
+                int page = 1;
+                if (args.length > 2) {
+                    try {
+                        page = Integer.parseInt(args[2]);
+                    } catch (NumberFormatException e) {
+                        page = 0;
+                    }
+                    if (page < 1) {
+                        sender.sendMessage(ChatColor.RED + "Invalid page: " + args[2]);
+                        return true;
+                    }
+                }
+                
+                showHistory(sender, args[1], page);
+                return true;
+                
+            case "top":
+                if (!sender.hasPermission("clonesmp.leaderboards")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+                    return true;
+                }
+                
+                Leaderboards.Board board = args.length > 1 ? parseBoard(args[1]) : Leaderboards.Board.DEATHS;
+                if (board == null) {
+                    sender.sendMessage(ChatColor.RED + "Usage: /clonesmp top [deaths|lives|crystals]");
+                    return true;
+                }
+                
+                sendTop(sender, board);
+                return true;
+                
+            case "rank":
+                if (!sender.hasPermission("clonesmp.leaderboards")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+                    return true;
+                }
+                
+                if (args.length < 2) {
+                    if (sender instanceof Player) {
+                        sendRanks(sender, ((Player) sender).getUniqueId(), sender.getName());
+                    } else {
+                        sender.sendMessage(ChatColor.RED + "Usage: /clonesmp rank <player>");
+                    }
+                    return true;
+                }
+                
+                Player rankTarget = Bukkit.getPlayer(args[1]);
+                if (rankTarget != null) {
+                    sendRanks(sender, rankTarget.getUniqueId(), rankTarget.getName());
+                    return true;
+                }
+                
+                String rankQuery = args[1];
+                plugin.getNameIndex().resolve(rankQuery, (uuid, name) -> {
+                    if (uuid == null) {
+                        sender.sendMessage(ChatColor.RED + "Player not found: " + rankQuery);
+                    } else {
+                        sendRanks(sender, uuid, name);
+                    }
+                });
+                return true;
+                
+            case "megaheads":
+                if (!sender.hasPermission("clonesmp.admin.megaheads")) {
+                    sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
+                    return true;
+                }
+                
+                if (args.length < 2) {
+                    listMegaHeads(sender, null, null);
+                    return true;
+                }
+                
+                String owner = args[1];
+                plugin.getNameIndex().resolve(owner, (uuid, name) -> {
+                    if (uuid == null) {
+                        sender.sendMessage(ChatColor.RED + "Player not found: " + owner);
+                    } else {
+                        listMegaHeads(sender, uuid, name);
+                    }
+                });
+                return true;
+                
             case "debug":
                 if (!sender.hasPermission("clonesmp.admin.debug")) {
                     sender.sendMessage(ChatColor.RED + "You don't have permission to use this command.");
@@ -197,57 +323,292 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
             target.sendMessage(ChatColor.GREEN + "You received a Life Crystal from " + sender.getName() + "!");
         }
         
-        // Log to console
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §f" + sender.getName() + " gave a Life Crystal to " + target.getName());
+        plugin.getLog().info(Channel.COMMANDS, "{} gave a Life Crystal to {}", sender.getName(), target.getName());
     }
     
     /**
-     * Send debug messages to console using various methods
+     * Turn death and Life Crystal announcements on or off for a player
      * 
-     * @param sender The command sender
+     * @param player The player
+     * @param state "on", "off", or null to toggle
      */
-    private void sendDebugMessages(CommandSender sender) {
-        sender.sendMessage(ChatColor.GREEN + "Sending debug messages to console...");
+    private void toggleAnnouncements(Player player, String state) {
+        Announcer announcer = plugin.getAnnouncer();
+        boolean muted;
+        if (state == null) {
+            muted = !announcer.isMuted(player);
+        } else if (state.equalsIgnoreCase("on") || state.equalsIgnoreCase("off")) {
+            muted = state.equalsIgnoreCase("off");
+        } else {
+            player.sendMessage(ChatColor.RED + "Usage: /clonesmp announcements [on|off]");
+            return;
+        }
         
-        // Test different logging methods
-        plugin.getLogger().info("DEBUG: CloneSMP INFO message test");
-        plugin.getLogger().warning("DEBUG: CloneSMP WARNING message test");
-        plugin.getLogger().severe("DEBUG: CloneSMP SEVERE message test");
+        announcer.setMuted(player, muted);
+        player.sendMessage(muted ? ChatColor.YELLOW + "Death and Life Crystal announcements are now hidden."
+                                 : ChatColor.GREEN + "Death and Life Crystal announcements are now shown.");
+    }
+    
+    /**
+     * Parse a leaderboard name
+     * 
+     * @param name deaths, lives or crystals
+     * @return The leaderboard, or null if the name is unknown
+     */
+    private static Leaderboards.Board parseBoard(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "deaths":
+                return Leaderboards.Board.DEATHS;
+            case "lives":
+                return Leaderboards.Board.LIVES;
+            case "crystals":
+                return Leaderboards.Board.CRYSTALS;
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Show the best players of a leaderboard
+     * 
+     * @param sender The command sender
+     * @param board The leaderboard
+     */
+    private void sendTop(CommandSender sender, Leaderboards.Board board) {
+        Leaderboards leaderboards = plugin.getLeaderboards();
+        List<Leaderboards.Entry> entries = leaderboards.top(board, TOP_SIZE);
+        sender.sendMessage(ChatColor.GOLD + "===== Most " + boardTitle(board) + " (" + leaderboards.size(board) + " players) =====");
+        if (leaderboards.isLoading()) {
+            sender.sendMessage(ChatColor.GRAY + "Still reading players from storage, the list is incomplete.");
+        }
+        if (entries.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + "Nobody is on this leaderboard yet.");
+            return;
+        }
         
-        // Log with specific levels
-        plugin.getLogger().log(Level.INFO, "DEBUG: CloneSMP explicit INFO level test");
-        plugin.getLogger().log(Level.WARNING, "DEBUG: CloneSMP explicit WARNING level test");
-        plugin.getLogger().log(Level.SEVERE, "DEBUG: CloneSMP explicit SEVERE level test");
+        for (Leaderboards.Entry entry : entries) {
+            String name = plugin.getNameIndex().getName(entry.getUuid());
+            sender.sendMessage(ChatColor.YELLOW + "#" + entry.getRank() + " " + ChatColor.WHITE +
+                               (name != null ? name : entry.getUuid().toString()) + ChatColor.GRAY + " - " +
+                               entry.getScore() + " " + boardUnit(board, entry.getScore()));
+        }
+    }
+    
+    /**
+     * Show a player's place on every leaderboard
+     * 
+     * @param sender The command sender
+     * @param uuid The player's UUID
+     * @param name The player's name
+     */
+    private void sendRanks(CommandSender sender, UUID uuid, String name) {
+        Leaderboards leaderboards = plugin.getLeaderboards();
+        sender.sendMessage(ChatColor.GOLD + "===== " + name + "'s Ranks =====");
+        for (Leaderboards.Board board : Leaderboards.Board.values()) {
+            Leaderboards.Entry entry = leaderboards.get(board, uuid);
+            if (entry == null) {
+                sender.sendMessage(ChatColor.YELLOW + boardTitle(board) + ChatColor.GRAY + " - not ranked");
+                continue;
+            }
+            sender.sendMessage(ChatColor.YELLOW + boardTitle(board) + ChatColor.WHITE + " - #" + entry.getRank() +
+                               " of " + leaderboards.size(board) + ChatColor.GRAY + " (" + entry.getScore() + " " +
+                               boardUnit(board, entry.getScore()) + ")");
+        }
+    }
+    
+    private static String boardTitle(Leaderboards.Board board) {
+        switch (board) {
+            case DEATHS:
+                return "Deaths";
+            case LIVES:
+                return "Lives";
+            default:
+                return "Life Crystals";
+        }
+    }
+    
+    private static String boardUnit(Leaderboards.Board board, int score) {
+        switch (board) {
+            case DEATHS:
+                return score == 1 ? "death" : "deaths";
+            case LIVES:
+                return score == 1 ? "life left" : "lives left";
+            default:
+                return score == 1 ? "crystal used" : "crystals used";
+        }
+    }
+    
+    /**
+     * Show a page of a player's history, read in the background
+     * 
+     * @param sender The command sender
+     * @param playerName The player's name or UUID
+     * @param page The page number, from 1 (newest events)
+     */
+    private void showHistory(CommandSender sender, String playerName, int page) {
+        Player onlineTarget = Bukkit.getPlayer(playerName);
+        PlayerNameIndex.Callback show = (uuid, name) -> {
+            if (uuid == null) {
+                sender.sendMessage(ChatColor.RED + "Player not found: " + playerName);
+                return;
+            }
+            plugin.getHistory().page(uuid, page, (result, error) -> {
+                if (error != null) {
+                    sender.sendMessage(ChatColor.RED + "Could not read " + name + "'s history, see the console.");
+                } else {
+                    sendHistoryPage(sender, name, result);
+                }
+            });
+        };
         
-        // Direct console messages
-        Bukkit.getConsoleSender().sendMessage("DEBUG: CloneSMP direct console message test");
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fColored debug message test");
-        Bukkit.getConsoleSender().sendMessage("§c[CloneSMP] §4RED §fcolored debug message test");
+        if (onlineTarget != null) {
+            show.onResolved(onlineTarget.getUniqueId(), onlineTarget.getName());
+        } else {
+            plugin.getNameIndex().resolve(playerName, show);
+        }
+    }
+    
+    /**
+     * Send one page of a player's history
+     * 
+     * @param sender The command sender
+     * @param name The player's name
+     * @param page The page
+     */
+    private void sendHistoryPage(CommandSender sender, String name, DeathHistory.Page page) {
+        if (page.getTotal() == 0) {
+            sender.sendMessage(ChatColor.YELLOW + name + " has no recorded history.");
+            return;
+        }
+        if (page.getEvents().isEmpty()) {
+            sender.sendMessage(ChatColor.RED + name + "'s history only has " + page.getPageCount() + " pages.");
+            return;
+        }
         
-        // Log exception
-        try {
-            throw new Exception("Test exception for logging");
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, "DEBUG: CloneSMP exception test", e);
+        int maxLives = plugin.getMaxLives();
+        sender.sendMessage(ChatColor.GOLD + "===== " + name + "'s History (page " + page.getNumber() + "/" +
+                           page.getPageCount() + ", " + page.getTotal() + " events) =====");
+        for (DeathHistory.Event event : page.getEvents()) {
+            StringBuilder line = new StringBuilder();
+            line.append(ChatColor.GRAY).append(HISTORY_TIME.format(Instant.ofEpochMilli(event.getTime()))).append(' ');
+            switch (event.getType()) {
+                case DEATH:
+                    line.append(ChatColor.RED).append("Died");
+                    if (event.getCause() != null) {
+                        line.append(" (").append(event.getCause().toLowerCase(Locale.ROOT).replace('_', ' ')).append(')');
+                    }
+                    if (event.getActor() != null) {
+                        line.append(", killed by ").append(event.getActor());
+                    }
+                    break;
+                case LIFE_CRYSTAL:
+                    line.append(ChatColor.LIGHT_PURPLE).append("Used a Life Crystal");
+                    break;
+                case RESET:
+                    line.append(ChatColor.GREEN).append("Lives reset by ").append(event.getActor());
+                    break;
+                case MEGA_HEAD:
+                    line.append(ChatColor.GOLD).append("Unbanned by ").append(event.getActor()).append("'s Mega Head");
+                    break;
+                case PLUGIN:
+                    line.append(ChatColor.AQUA).append("Lives changed by the ").append(event.getActor()).append(" plugin");
+                    break;
+            }
+            if (event.getWorld() != null) {
+                line.append(ChatColor.GRAY).append(" at ").append(event.getWorld()).append(' ')
+                    .append(event.getX()).append(", ").append(event.getY()).append(", ").append(event.getZ());
+            }
+            line.append(ChatColor.WHITE).append(" - ").append(Math.max(0, maxLives - event.getDeaths()))
+                .append('/').append(maxLives).append(" lives");
+            sender.sendMessage(line.toString());
+        }
+        if (page.getNumber() < page.getPageCount()) {
+            sender.sendMessage(ChatColor.GRAY + "Older events: /clonesmp history " + name + " " + (page.getNumber() + 1));
+        }
+    }
+    
+    /**
+     * List placed Mega Heads from the index, without loading any chunks
+     * 
+     * @param sender The command sender
+     * @param owner Only list this player's Mega Heads, or null for all of them
+     * @param ownerName The owner's name, or null
+     */
+    private void listMegaHeads(CommandSender sender, UUID owner, String ownerName) {
+        List<MegaHeadIndex.Placement> placements = plugin.getMegaHeads().list(owner);
+        if (placements.isEmpty()) {
+            sender.sendMessage(ChatColor.YELLOW + (owner == null ? "No Mega Heads are placed."
+                                                                 : "No Mega Heads of " + ownerName + " are placed."));
+            return;
         }
         
-        // Print plugin info
-        Bukkit.getConsoleSender().sendMessage("§e====== §a[CloneSMP DEBUG] §e======");
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fPlugin version: §e" + plugin.getDescription().getVersion());
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fServer version: §e" + Bukkit.getVersion());
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fBukkit version: §e" + Bukkit.getBukkitVersion());
+        sender.sendMessage(ChatColor.GOLD + "===== " + (owner == null ? "Mega Heads" : "Mega Heads of " + ownerName) +
+                           " (" + placements.size() + ") =====");
+        int shown = Math.min(placements.size(), MAX_LISTED_MEGA_HEADS);
+        for (int i = 0; i < shown; i++) {
+            MegaHeadIndex.Placement placement = placements.get(i);
+            String name = plugin.getNameIndex().getName(placement.getOwner());
+            sender.sendMessage(ChatColor.YELLOW + (name != null ? name : placement.getOwner().toString()) + ChatColor.WHITE +
+                               " - " + placement.getWorld() + " " + placement.getX() + ", " + placement.getY() + ", " + placement.getZ());
+        }
+        if (placements.size() > shown) {
+            sender.sendMessage(ChatColor.GRAY + "... and " + (placements.size() - shown) + " more");
+        }
+    }
+    
+    /**
+     * Test the plugin log on every channel and print the stats to the console
+     * 
+     * @param sender The command sender
+     */
+    private void sendDebugMessages(CommandSender sender) {
+        sender.sendMessage(ChatColor.GREEN + "Sending debug messages to console...");
         
-        // Test Life Crystal (if enabled)
-        if (plugin.areLifeCrystalsEnabled()) {
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLife Crystals are enabled (max: §e" + 
-                                                 plugin.getConfig().getInt("max-life-crystals", 5) + "§f)");
-        } else {
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLife Crystals are disabled");
+        // Channels set above INFO in config.yml stay silent
+        PluginLog log = plugin.getLog();
+        for (Channel channel : Channel.values()) {
+            log.info(channel, "Debug: {} channel logs at {}", channel, plugin.getSettings().getLogLevel(channel));
         }
+        log.warning(Channel.COMMANDS, "Debug: WARNING message test from {}", sender.getName());
+        log.severe(Channel.COMMANDS, "Debug: SEVERE message test", new Exception("Test exception for logging"));
+        log.info(Channel.COMMANDS, "Debug: CloneSMP {} on {}, {} log messages dropped so far",
+                 plugin.getDescription().getVersion(), Bukkit.getVersion(), log.getDropped());
+        
+        sendStats(Bukkit.getConsoleSender());
         
         sender.sendMessage(ChatColor.GREEN + "Debug messages sent! Check your console.");
     }
     
+    /**
+     * Show call counts and latency percentiles of the timed handlers
+     * 
+     * @param sender The command sender
+     */
+    private void sendStats(CommandSender sender) {
+        Metrics metrics = plugin.getMetrics();
+        long seconds = (System.currentTimeMillis() - metrics.getSince()) / 1000;
+        sender.sendMessage(ChatColor.GOLD + "===== CloneSMP Stats (" + (seconds / 60) + "m " + (seconds % 60) + "s, " +
+                           metrics.getTicks() + " ticks) =====");
+        
+        for (Metrics.Timer timer : Metrics.Timer.values()) {
+            Metrics.Histogram histogram = metrics.get(timer);
+            long count = histogram.getCount();
+            if (count == 0) {
+                sender.sendMessage(ChatColor.YELLOW + timer.getId() + ChatColor.GRAY + " - no calls");
+                continue;
+            }
+            sender.sendMessage(ChatColor.YELLOW + timer.getId() + ChatColor.WHITE + " - " + count + " calls, p50 " +
+                               Metrics.formatMillis(histogram.getPercentileNanos(0.5)) + ", p99 " +
+                               Metrics.formatMillis(histogram.getPercentileNanos(0.99)) + ", max " +
+                               Metrics.formatMillis(histogram.getMaxNanos()));
+        }
+        
+        long perTick = metrics.getNanosPerTick();
+        sender.sendMessage(ChatColor.GOLD + "Time per tick: " + ChatColor.WHITE + Metrics.formatMillis(perTick) +
+                           ChatColor.GRAY + String.format(Locale.ROOT, " (%.2f%% of a 50ms tick)", perTick / 500_000.0));
+        sender.sendMessage(ChatColor.GOLD + "Lives records in memory: " + ChatColor.WHITE + plugin.getRecords().getResidentCount());
+    }
+    
     /**
      * Send the help message to a command sender
      * 
@@ -256,6 +617,13 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
     private void sendHelpMessage(CommandSender sender) {
         sender.sendMessage(ChatColor.GOLD + "===== CloneSMP Commands =====");
         sender.sendMessage(ChatColor.YELLOW + "/clonesmp lives [player]" + ChatColor.WHITE + " - Check remaining lives");
+        sender.sendMessage(ChatColor.YELLOW + "/clonesmp announcements [on|off]" + ChatColor.WHITE + " - Show or hide death announcements");
+        sender.sendMessage(ChatColor.YELLOW + "/clonesmp history <player> [page]" + ChatColor.WHITE + " - Show deaths and other lives changes");
+        
+        if (sender.hasPermission("clonesmp.leaderboards")) {
+            sender.sendMessage(ChatColor.YELLOW + "/clonesmp top [deaths|lives|crystals]" + ChatColor.WHITE + " - Show a leaderboard");
+            sender.sendMessage(ChatColor.YELLOW + "/clonesmp rank [player]" + ChatColor.WHITE + " - Show a player's leaderboard ranks");
+        }
         
         if (plugin.areLifeCrystalsEnabled() && sender.hasPermission("clonesmp.admin.crystal")) {
             sender.sendMessage(ChatColor.YELLOW + "/clonesmp crystal <get|give> [player]" + ChatColor.WHITE + " - Manage Life Crystals");
@@ -269,6 +637,14 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
             sender.sendMessage(ChatColor.YELLOW + "/clonesmp reset <player>" + ChatColor.WHITE + " - Reset a player's lives");
         }
         
+        if (sender.hasPermission("clonesmp.admin.stats")) {
+            sender.sendMessage(ChatColor.YELLOW + "/clonesmp stats [reset]" + ChatColor.WHITE + " - Show handler timings");
+        }
+        
+        if (sender.hasPermission("clonesmp.admin.megaheads")) {
+            sender.sendMessage(ChatColor.YELLOW + "/clonesmp megaheads [player]" + ChatColor.WHITE + " - List placed Mega Heads");
+        }
+        
         if (sender.hasPermission("clonesmp.admin.debug")) {
             sender.sendMessage(ChatColor.YELLOW + "/clonesmp debug" + ChatColor.WHITE + " - Send debug messages to console");
         }
@@ -284,14 +660,15 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
      */
     private void showLives(CommandSender sender, Player player) {
         UUID uuid = player.getUniqueId();
-        int deaths = plugin.getData().getInt("deaths." + uuid, 0);
-        int maxLives = plugin.getMaxLives();
+        int deaths = plugin.getLives().getDeaths(uuid);
+        Settings settings = plugin.getSettings();
+        int maxLives = settings.getMaxLives();
         int livesLeft = Math.max(0, maxLives - deaths);
         
         sender.sendMessage(ChatColor.GOLD + "Lives: " + ChatColor.WHITE + livesLeft + "/" + maxLives);
         
-        if (plugin.areLifeCrystalsEnabled()) {
-            int maxLifeCrystals = plugin.getConfig().getInt("max-life-crystals", 5);
+        if (settings.areLifeCrystalsEnabled()) {
+            int maxLifeCrystals = settings.getMaxLifeCrystals();
             sender.sendMessage(ChatColor.LIGHT_PURPLE + "Maximum Lives with Crystals: " + 
                               ChatColor.WHITE + maxLifeCrystals);
         }
@@ -301,19 +678,20 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
      * Show a player's lives to the command sender
      * 
      * @param sender The command sender
-     * @param target The target player
+     * @param uuid The target player's UUID
+     * @param name The target player's name
      */
-    private void showPlayerLives(CommandSender sender, OfflinePlayer target) {
-        UUID uuid = target.getUniqueId();
-        int deaths = plugin.getData().getInt("deaths." + uuid, 0);
-        int maxLives = plugin.getMaxLives();
+    private void showPlayerLives(CommandSender sender, UUID uuid, String name) {
+        int deaths = plugin.getLives().getDeaths(uuid);
+        Settings settings = plugin.getSettings();
+        int maxLives = settings.getMaxLives();
         int livesLeft = Math.max(0, maxLives - deaths);
         
-        sender.sendMessage(ChatColor.GOLD + target.getName() + "'s lives: " + 
+        sender.sendMessage(ChatColor.GOLD + name + "'s lives: " + 
                           ChatColor.WHITE + livesLeft + "/" + maxLives);
         
-        if (plugin.areLifeCrystalsEnabled()) {
-            int maxLifeCrystals = plugin.getConfig().getInt("max-life-crystals", 5);
+        if (settings.areLifeCrystalsEnabled()) {
+            int maxLifeCrystals = settings.getMaxLifeCrystals();
             sender.sendMessage(ChatColor.LIGHT_PURPLE + "Maximum Lives with Crystals: " + 
                               ChatColor.WHITE + maxLifeCrystals);
         }
@@ -329,50 +707,53 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
         // First, try to find an online player
         Player onlineTarget = Bukkit.getPlayer(playerName);
         if (onlineTarget != null) {
-            resetLives(sender, onlineTarget);
+            resetLives(sender, onlineTarget.getUniqueId(), onlineTarget.getName());
             return;
         }
         
-        // Try to parse as UUID
-        try {
-            UUID targetUUID = UUID.fromString(playerName);
-            OfflinePlayer offlineTarget = Bukkit.getOfflinePlayer(targetUUID);
-            if (offlineTarget.hasPlayedBefore()) {
-                resetLives(sender, offlineTarget);
-                return;
+        // Offline players are looked up by name or UUID in the background
+        plugin.getNameIndex().resolve(playerName, (uuid, name) -> {
+            if (uuid == null) {
+                sender.sendMessage(ChatColor.RED + "Player not found: " + playerName);
+            } else {
+                resetLives(sender, uuid, name);
             }
-        } catch (IllegalArgumentException ignored) {
-            // Not a UUID, continue to search by name
-        }
-        
-        // Search through offline players
-        OfflinePlayer[] offlinePlayers = Bukkit.getOfflinePlayers();
-        for (OfflinePlayer offlinePlayer : offlinePlayers) {
-            if (offlinePlayer.getName() != null && 
-                offlinePlayer.getName().equalsIgnoreCase(playerName)) {
-                resetLives(sender, offlinePlayer);
-                return;
-            }
-        }
-        
-        sender.sendMessage(ChatColor.RED + "Player not found: " + playerName);
+        });
     }
     
     /**
      * Helper method to reset lives for a player
      * 
      * @param sender The command sender
-     * @param target The target player
+     * @param uuid The target player's UUID
+     * @param name The target player's name
+     */
+    private void resetLives(CommandSender sender, UUID uuid, String name) {
+        // Offline players' records may have to be read first
+        plugin.getRecords().load(uuid, error -> {
+            if (error != null) {
+                sender.sendMessage(ChatColor.RED + "Could not load " + name + "'s lives, see the console.");
+            } else {
+                applyReset(sender, uuid, name);
+            }
+        });
+    }
+    
+    /**
+     * Reset the lives of a player whose record is in memory
+     * 
+     * @param sender The command sender
+     * @param uuid The target player's UUID
+     * @param name The target player's name
      */
-    private void resetLives(CommandSender sender, OfflinePlayer target) {
-        UUID uuid = target.getUniqueId();
-        plugin.getData().set("deaths." + uuid, 0);
-        plugin.saveData();
+    private void applyReset(CommandSender sender, UUID uuid, String name) {
+        plugin.getLives().setDeaths(uuid, 0);
+        plugin.getHistory().record(uuid, new DeathHistory.Event(DeathHistory.Type.RESET, 0, null, null, sender.getName()));
         
-        sender.sendMessage(ChatColor.GREEN + "Reset " + target.getName() + "'s lives!");
+        sender.sendMessage(ChatColor.GREEN + "Reset " + name + "'s lives!");
         
         // If player is online, notify them
-        Player onlineTarget = target.getPlayer();
+        Player onlineTarget = Bukkit.getPlayer(uuid);
         if (onlineTarget != null && onlineTarget.isOnline()) {
             onlineTarget.sendMessage(ChatColor.GREEN + "Your lives have been reset by an admin!");
         }
@@ -381,30 +762,101 @@ public class CommandHandler implements CommandExecutor, TabCompleter {
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
-            List<String> commands = Arrays.asList("lives", "help", "reload", "reset");
+            List<String> commands = new ArrayList<>(Arrays.asList("lives", "history", "help", "reload", "reset", "announcements"));
             
             if (plugin.areLifeCrystalsEnabled() && sender.hasPermission("clonesmp.admin.crystal")) {
-                commands = Arrays.asList("lives", "help", "reload", "reset", "crystal", "debug");
+                commands.add("crystal");
+                commands.add("debug");
             } else if (sender.hasPermission("clonesmp.admin.debug")) {
-                commands = Arrays.asList("lives", "help", "reload", "reset", "debug");
+                commands.add("debug");
+            }
+            if (sender.hasPermission("clonesmp.admin.stats")) {
+                commands.add("stats");
+            }
+            if (sender.hasPermission("clonesmp.admin.megaheads")) {
+                commands.add("megaheads");
+            }
+            if (sender.hasPermission("clonesmp.leaderboards")) {
+                commands.add("top");
+                commands.add("rank");
             }
             
             return filterCompletions(commands, args[0]);
         } else if (args.length == 2) {
-            if (args[0].equalsIgnoreCase("lives") || args[0].equalsIgnoreCase("reset")) {
-                return null; // Return null for player name list (Bukkit handles this automatically)
+            if (args[0].equalsIgnoreCase("lives")) {
+                return completePlayerTarget(sender, args[1], "clonesmp.admin.lives");
+            } else if (args[0].equalsIgnoreCase("history")) {
+                return completePlayerTarget(sender, args[1], "clonesmp.admin.history");
+            } else if (args[0].equalsIgnoreCase("reset") && sender.hasPermission("clonesmp.admin.reset")) {
+                return completeResetTarget(args[1]);
             } else if (args[0].equalsIgnoreCase("crystal") && sender.hasPermission("clonesmp.admin.crystal")) {
                 return filterCompletions(Arrays.asList("get", "give"), args[1]);
+            } else if (args[0].equalsIgnoreCase("announcements")) {
+                return filterCompletions(Arrays.asList("on", "off"), args[1]);
+            } else if (args[0].equalsIgnoreCase("stats") && sender.hasPermission("clonesmp.admin.stats")) {
+                return filterCompletions(List.of("reset"), args[1]);
+            } else if (args[0].equalsIgnoreCase("top") && sender.hasPermission("clonesmp.leaderboards")) {
+                return filterCompletions(Arrays.asList("deaths", "lives", "crystals"), args[1]);
+            } else if ((args[0].equalsIgnoreCase("megaheads") && sender.hasPermission("clonesmp.admin.megaheads"))
+                       || (args[0].equalsIgnoreCase("rank") && sender.hasPermission("clonesmp.leaderboards"))) {
+                List<String> names = new ArrayList<>(MAX_NAME_COMPLETIONS);
+                plugin.getNameIndex().complete(args[1], MAX_NAME_COMPLETIONS, null, names);
+                return names;
             }
         } else if (args.length == 3) {
-            if (args[0].equalsIgnoreCase("crystal") && args[1].equalsIgnoreCase("give")) {
-                return null; // Return null for player name list (Bukkit handles this automatically)
+            if (args[0].equalsIgnoreCase("crystal") && args[1].equalsIgnoreCase("give")
+                && sender.hasPermission("clonesmp.admin.crystal")) {
+                // Crystals can only be given to online players
+                String prefix = args[2].toLowerCase();
+                List<String> names = new ArrayList<>(MAX_NAME_COMPLETIONS);
+                for (Player online : Bukkit.getOnlinePlayers()) {
+                    if (names.size() >= MAX_NAME_COMPLETIONS) break;
+                    if (online.getName().toLowerCase().startsWith(prefix)) {
+                        names.add(online.getName());
+                    }
+                }
+                return names;
             }
         }
         
         return List.of(); // Empty list for no suggestions
     }
     
+    /**
+     * Complete the player argument of /clonesmp lives or history
+     * 
+     * @param sender The command sender
+     * @param prefix The typed prefix
+     * @param permission The permission needed to name other players
+     * @return Matching player names
+     */
+    private List<String> completePlayerTarget(CommandSender sender, String prefix, String permission) {
+        if (!sender.hasPermission(permission)) {
+            // Without the admin permission only your own lives can be checked
+            if (sender instanceof Player && sender.getName().toLowerCase().startsWith(prefix.toLowerCase())) {
+                return List.of(sender.getName());
+            }
+            return List.of();
+        }
+        
+        List<String> names = new ArrayList<>(MAX_NAME_COMPLETIONS);
+        plugin.getNameIndex().complete(prefix, MAX_NAME_COMPLETIONS, null, names);
+        return names;
+    }
+    
+    /**
+     * Complete the player argument of /clonesmp reset, listing eliminated players first
+     * 
+     * @param prefix The typed prefix
+     * @return Matching player names
+     */
+    private List<String> completeResetTarget(String prefix) {
+        List<String> names = new ArrayList<>(MAX_NAME_COMPLETIONS);
+        plugin.getNameIndex().completeEliminated(prefix, MAX_NAME_COMPLETIONS, names);
+        plugin.getNameIndex().complete(prefix, MAX_NAME_COMPLETIONS, null, names);
+        return names;
+    }
+    
     /**
      * Filter a list of completions based on the current argument
      * 
@@ -0,0 +1,207 @@
+package com.Liyp.clonesmp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.ShapedRecipe;
+
+/**
+ * A shaped recipe compiled from config (a list of rows plus a character to material map)
+ *
+ * Besides building the Bukkit recipe, it keeps a bitset of every ingredient
+ * material (indexed by ordinal) so a crafting grid holding none of them is
+ * rejected with one bit test per slot, and a per-cell material table for an
+ * exact match against a grid. Instances are immutable; equal instances describe
+ * the same recipe, which lets a reload skip re-registering an unchanged recipe.
+ */
+public final class CompiledRecipe {
+    private static final int MATERIAL_COUNT = Material.values().length;
+
+    private final String[] shape;
+    private final Map<Character, Material> ingredients;
+    private final Material[] cells; // row-major, null = must be empty
+    private final int width;
+    private final int height;
+    private final long[] ingredientBits;
+
+    private CompiledRecipe(String[] shape, Map<Character, Material> ingredients) {
+        this.shape = shape;
+        this.ingredients = ingredients;
+        this.height = shape.length;
+        this.width = shape[0].length();
+        this.cells = new Material[width * height];
+        this.ingredientBits = new long[(MATERIAL_COUNT + 63) >>> 6];
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                Material material = ingredients.get(shape[row].charAt(col));
+                cells[row * width + col] = material;
+                if (material != null) {
+                    ingredientBits[material.ordinal() >>> 6] |= 1L << material.ordinal();
+                }
+            }
+        }
+    }
+
+    /**
+     * Compile a recipe from config values
+     *
+     * @param rows The shape, 1 to 3 rows of equal length (1 to 3), space for an empty cell
+     * @param section The ingredients section mapping each shape character to a material name
+     * @return The compiled recipe
+     * @throws IllegalArgumentException If the shape or an ingredient is invalid
+     */
+    public static CompiledRecipe compile(List<String> rows, ConfigurationSection section) {
+        if (section == null) {
+            throw new IllegalArgumentException("ingredients are missing");
+        }
+
+        Map<Character, Material> ingredients = new TreeMap<>();
+        for (String key : section.getKeys(false)) {
+            if (key.length() != 1) {
+                throw new IllegalArgumentException("ingredient key '" + key + "' must be a single character");
+            }
+            String name = section.getString(key);
+            Material material = name == null ? null : Material.matchMaterial(name);
+            if (material == null || material.isAir() || !material.isItem()) {
+                throw new IllegalArgumentException("ingredient " + key + " has unknown item '" + name + "'");
+            }
+            ingredients.put(key.charAt(0), material);
+        }
+        return compile(rows, ingredients);
+    }
+
+    /**
+     * Compile a recipe from a shape and ingredient materials
+     *
+     * @param rows The shape, 1 to 3 rows of equal length (1 to 3), space for an empty cell
+     * @param ingredients Material for each shape character
+     * @return The compiled recipe
+     * @throws IllegalArgumentException If the shape does not fit the ingredients
+     */
+    public static CompiledRecipe compile(List<String> rows, Map<Character, Material> ingredients) {
+        if (rows == null || rows.isEmpty() || rows.size() > 3) {
+            throw new IllegalArgumentException("recipe must have 1 to 3 rows");
+        }
+        int width = rows.get(0).length();
+        for (String row : rows) {
+            if (row.length() != width || width < 1 || width > 3) {
+                throw new IllegalArgumentException("recipe rows must all be 1 to 3 characters long");
+            }
+        }
+
+        // Keep only the ingredients the shape uses, so unused ones do not affect equality
+        Map<Character, Material> used = new TreeMap<>();
+        for (String row : rows) {
+            for (int i = 0; i < row.length(); i++) {
+                char c = row.charAt(i);
+                if (c == ' ') continue;
+                Material material = ingredients.get(c);
+                if (material == null) {
+                    throw new IllegalArgumentException("recipe uses '" + c + "' but no ingredient is defined for it");
+                }
+                used.put(c, material);
+            }
+        }
+        if (used.isEmpty()) {
+            throw new IllegalArgumentException("recipe has no ingredients");
+        }
+        return new CompiledRecipe(rows.toArray(new String[0]), used);
+    }
+
+    /**
+     * Build the Bukkit recipe to register
+     *
+     * @param key The recipe key
+     * @param result The crafted item
+     * @return The shaped recipe
+     */
+    public ShapedRecipe toShapedRecipe(NamespacedKey key, ItemStack result) {
+        ShapedRecipe recipe = new ShapedRecipe(key, result);
+        recipe.shape(shape);
+        for (Map.Entry<Character, Material> entry : ingredients.entrySet()) {
+            recipe.setIngredient(entry.getKey(), entry.getValue());
+        }
+        return recipe;
+    }
+
+    /**
+     * Check whether any item in a crafting grid is one of this recipe's ingredients,
+     * without reading item meta
+     *
+     * @param matrix The crafting matrix
+     * @return False if the grid certainly does not match
+     */
+    public boolean mayMatch(ItemStack[] matrix) {
+        for (ItemStack item : matrix) {
+            if (item == null) continue;
+            int ordinal = item.getType().ordinal();
+            if ((ingredientBits[ordinal >>> 6] & (1L << ordinal)) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a square crafting grid matches this recipe at any position,
+     * as is or mirrored, by material only
+     *
+     * @param matrix The crafting matrix (4 or 9 slots)
+     * @return True if the grid matches
+     */
+    public boolean matches(ItemStack[] matrix) {
+        if (!mayMatch(matrix)) return false;
+
+        int size = matrix.length == 4 ? 2 : 3;
+        for (int dy = 0; dy + height <= size; dy++) {
+            for (int dx = 0; dx + width <= size; dx++) {
+                if (matchesAt(matrix, size, dx, dy, false) || matchesAt(matrix, size, dx, dy, true)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAt(ItemStack[] matrix, int size, int dx, int dy, boolean mirrored) {
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int col = x - dx;
+                int row = y - dy;
+                Material expected = null;
+                if (col >= 0 && col < width && row >= 0 && row < height) {
+                    expected = cells[row * width + (mirrored ? width - 1 - col : col)];
+                }
+
+                ItemStack item = matrix[y * size + x];
+                Material actual = item == null || item.getType().isAir() ? null : item.getType();
+                if (actual != expected) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompiledRecipe)) return false;
+        CompiledRecipe other = (CompiledRecipe) o;
+        return Arrays.equals(shape, other.shape) && ingredients.equals(other.ingredients);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(Arrays.hashCode(shape), ingredients);
+    }
+
+    @Override
+    public String toString() {
+        return String.join("/", shape) + " " + ingredients;
+    }
+}
@@ -0,0 +1,116 @@
+package com.Liyp.clonesmp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Remembers the last crafting grid each player had evaluated, and its outcome
+ *
+ * PrepareItemCraftEvent fires on every change to a crafting grid, often several
+ * times for the same contents. A grid matches the remembered one when a cheap
+ * fingerprint of material types and amounts is equal and every item is similar
+ * to the remembered copy, which compares item data without cloning ItemMeta.
+ * Only the first {@code slots} slots of the matrix are considered.
+ * Only the main server thread may use this class.
+ *
+ * @param <V> The outcome type
+ */
+public final class CraftGridMemo<V> {
+    private static final class Entry<V> {
+        final int fingerprint;
+        final ItemStack[] items;
+        final V outcome;
+
+        Entry(int fingerprint, ItemStack[] items, V outcome) {
+            this.fingerprint = fingerprint;
+            this.items = items;
+            this.outcome = outcome;
+        }
+    }
+
+    private final int slots;
+    private final Map<UUID, Entry<V>> entries = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param slots Number of leading matrix slots that decide the outcome
+     */
+    public CraftGridMemo(int slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Fingerprint the considered slots by material type and amount, without reading meta
+     *
+     * @param matrix The crafting matrix
+     * @return The fingerprint
+     */
+    public int fingerprint(ItemStack[] matrix) {
+        int hash = 1;
+        for (int i = 0; i < slots; i++) {
+            ItemStack item = matrix[i];
+            hash = hash * 31 + (item == null ? 0 : (item.getType().ordinal() << 7) + item.getAmount());
+        }
+        return hash;
+    }
+
+    /**
+     * Check whether a player's grid is unchanged since it was last evaluated
+     *
+     * @param viewer The player's UUID
+     * @param matrix The crafting matrix
+     * @param fingerprint The matrix fingerprint
+     * @return True if {@link #get} returns the remembered outcome for this grid
+     */
+    public boolean matches(UUID viewer, ItemStack[] matrix, int fingerprint) {
+        Entry<V> entry = entries.get(viewer);
+        if (entry == null || entry.fingerprint != fingerprint) return false;
+
+        for (int i = 0; i < slots; i++) {
+            ItemStack remembered = entry.items[i];
+            ItemStack current = matrix[i];
+            if (remembered == null ? current != null : !remembered.isSimilar(current)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the remembered outcome of a player's last evaluated grid
+     *
+     * @param viewer The player's UUID
+     * @return The outcome, or null if nothing is remembered
+     */
+    public V get(UUID viewer) {
+        Entry<V> entry = entries.get(viewer);
+        return entry == null ? null : entry.outcome;
+    }
+
+    /**
+     * Remember the outcome of evaluating a player's grid
+     *
+     * @param viewer The player's UUID
+     * @param matrix The crafting matrix
+     * @param fingerprint The matrix fingerprint
+     * @param outcome The outcome
+     */
+    public void put(UUID viewer, ItemStack[] matrix, int fingerprint, V outcome) {
+        ItemStack[] items = new ItemStack[slots];
+        for (int i = 0; i < slots; i++) {
+            items[i] = matrix[i] == null ? null : matrix[i].clone();
+        }
+        entries.put(viewer, new Entry<>(fingerprint, items, outcome));
+    }
+
+    /**
+     * Forget a player's grid, e.g. when they close it
+     *
+     * @param viewer The player's UUID
+     */
+    public void remove(UUID viewer) {
+        entries.remove(viewer);
+    }
+}
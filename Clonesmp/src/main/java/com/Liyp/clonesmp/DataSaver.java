@@ -0,0 +1,358 @@
+package com.Liyp.clonesmp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Write-behind persistence for lives data
+ *
+ * Listens to the {@link LivesStore} and records which players changed. Once per
+ * flush interval the changed records are copied off the main thread and handed to
+ * the {@link LivesStorage} on a single background thread, so writes land in order.
+ * The storage is only touched by that thread after startup. A failed batch is kept
+ * by the writer and retried in front of the next one. When a {@link LivesJournal}
+ * is attached, its segments are compacted once the batch covering them is stored.
+ * Reads from a lazy storage also go through the writer, in order with the writes.
+ */
+public class DataSaver implements LivesStore.ChangeListener {
+    private final CloneSMP plugin;
+    private final LivesStore lives;
+    private final LivesStorage storage;
+    private final LivesJournal journal;
+    private final Set<UUID> dirty = new HashSet<>();
+    private final ExecutorService writer;
+    private BukkitTask flushTask;
+    private volatile boolean lastWriteFailed = false;
+
+    // Only touched by the writer thread
+    private final List<UUID[]> retryUuids = new ArrayList<>();
+    private final List<int[]> retryDeaths = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param lives The lives store to persist
+     * @param storage The opened storage to write to
+     * @param journal The journal to compact after each write, or null if journaling is off
+     */
+    public DataSaver(CloneSMP plugin, LivesStore lives, LivesStorage storage, LivesJournal journal) {
+        this.plugin = plugin;
+        this.lives = lives;
+        this.storage = storage;
+        this.journal = journal;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "CloneSMP-DataWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start (or restart) the periodic flush task
+     *
+     * @param intervalTicks Ticks between flushes
+     */
+    public void start(long intervalTicks) {
+        if (flushTask != null) {
+            flushTask.cancel();
+        }
+        long interval = Math.max(1L, intervalTicks);
+        flushTask = Bukkit.getScheduler().runTaskTimer(plugin, this::flush, interval, interval);
+    }
+
+    @Override
+    public void onLivesChanged(UUID uuid, int oldDeaths, int newDeaths) {
+        dirty.add(uuid);
+    }
+
+    /**
+     * Mark a player's record as changed without going through the lives store,
+     * e.g. after replaying the journal
+     *
+     * @param uuid The player's UUID
+     */
+    public void markDirty(UUID uuid) {
+        dirty.add(uuid);
+    }
+
+    /**
+     * Write every record in the lives store, e.g. after migrating from another storage.
+     * Must be called on the main thread.
+     */
+    public void markAllDirty() {
+        lives.forEach((msb, lsb, deaths) -> dirty.add(new UUID(msb, lsb)));
+    }
+
+    /**
+     * Check if a player's record has changed since the last flush
+     *
+     * @param uuid The player's UUID
+     * @return True if the next flush will write the record
+     */
+    public boolean isPending(UUID uuid) {
+        return dirty.contains(uuid);
+    }
+
+    /**
+     * Read one player's record from a lazy storage. The read runs on the writer
+     * thread after every batch queued before it, so it never sees an older value
+     * than the lives store last handed over. Safe to call from any thread.
+     *
+     * @param uuid The player's UUID
+     * @return The death count, or -1 if the player has no record
+     */
+    public CompletableFuture<Integer> read(UUID uuid) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        writer.execute(() -> {
+            try {
+                result.complete(readLatest(uuid));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Read many players' records from a lazy storage in one writer task, with the
+     * same ordering as {@link #read}. Safe to call from any thread.
+     *
+     * @param uuids The players' UUIDs
+     * @return The death counts in the same order, -1 where a player has no record
+     */
+    public CompletableFuture<int[]> readAll(UUID[] uuids) {
+        CompletableFuture<int[]> result = new CompletableFuture<>();
+        writer.execute(() -> {
+            try {
+                int[] deaths = new int[uuids.length];
+                for (int i = 0; i < uuids.length; i++) {
+                    deaths[i] = readLatest(uuids[i]);
+                }
+                result.complete(deaths);
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Read a record, preferring a batch that failed to write over storage. Runs on the writer thread.
+     */
+    private int readLatest(UUID uuid) throws IOException {
+        for (int batch = retryUuids.size() - 1; batch >= 0; batch--) {
+            UUID[] uuids = retryUuids.get(batch);
+            for (int i = uuids.length - 1; i >= 0; i--) {
+                if (uuids[i].equals(uuid)) return retryDeaths.get(batch)[i];
+            }
+        }
+        return storage.read(uuid);
+    }
+
+    /**
+     * Check if there are changes that have not been stored yet
+     *
+     * @return True if a flush would write something
+     */
+    public boolean hasPendingChanges() {
+        return !dirty.isEmpty() || lastWriteFailed;
+    }
+
+    /**
+     * Hand all pending changes to the background writer. Must be called on the main thread.
+     */
+    public void flush() {
+        if (!hasPendingChanges()) return;
+
+        int count = dirty.size();
+        UUID[] uuids = dirty.toArray(new UUID[count]);
+        int[] deaths = new int[count];
+        for (int i = 0; i < count; i++) {
+            deaths[i] = lives.getDeaths(uuids[i]);
+        }
+        dirty.clear();
+        long sealedGeneration = rotateJournal();
+
+        writer.execute(() -> write(uuids, deaths, sealedGeneration));
+    }
+
+    /**
+     * Flush pending changes and wait until they are on disk
+     *
+     * @throws IOException If a write failed
+     */
+    public void flushNow() throws IOException {
+        flush();
+        awaitWriter();
+        if (lastWriteFailed) {
+            throw new IOException("Could not write " + storage.getFile().getName() + ", see earlier errors");
+        }
+    }
+
+    /**
+     * Seal the journal segment whose records are in the batch being flushed
+     *
+     * @return The sealed generation, or -1 if nothing may be compacted
+     */
+    private long rotateJournal() {
+        if (journal == null) return -1L;
+        try {
+            return journal.rotate();
+        } catch (IOException e) {
+            plugin.getLog().severe(Channel.STORAGE, "Could not rotate lives journal", e);
+            return -1L;
+        }
+    }
+
+    /**
+     * Write a batch of changed records, preceded by any earlier batch that failed.
+     * Runs on the writer thread.
+     */
+    private void write(UUID[] uuids, int[] deaths, long sealedGeneration) {
+        retryUuids.add(uuids);
+        retryDeaths.add(deaths);
+
+        UUID[] allUuids = uuids;
+        int[] allDeaths = deaths;
+        if (retryUuids.size() > 1) {
+            int total = 0;
+            for (UUID[] batch : retryUuids) total += batch.length;
+            allUuids = new UUID[total];
+            allDeaths = new int[total];
+            int offset = 0;
+            for (int i = 0; i < retryUuids.size(); i++) {
+                int length = retryUuids.get(i).length;
+                System.arraycopy(retryUuids.get(i), 0, allUuids, offset, length);
+                System.arraycopy(retryDeaths.get(i), 0, allDeaths, offset, length);
+                offset += length;
+            }
+        }
+
+        try {
+            storage.write(allUuids, allDeaths);
+            retryUuids.clear();
+            retryDeaths.clear();
+            lastWriteFailed = false;
+        } catch (IOException e) {
+            lastWriteFailed = true;
+            plugin.getLog().severe(Channel.STORAGE, "Could not save lives to {}", storage.getFile().getName(), e);
+            keepForRetry(allUuids, allDeaths);
+            return;
+        }
+
+        if (journal != null && sealedGeneration >= 0) {
+            journal.compact(sealedGeneration);
+        }
+    }
+
+    /**
+     * Replace the failed batches with one holding each player's latest count, so
+     * repeated failures keep at most one entry per changed player. Runs on the writer thread.
+     */
+    private void keepForRetry(UUID[] uuids, int[] deaths) {
+        Map<UUID, Integer> latest = new LinkedHashMap<>(uuids.length * 4 / 3 + 1);
+        for (int i = 0; i < uuids.length; i++) {
+            latest.put(uuids[i], deaths[i]);
+        }
+        UUID[] keptUuids = latest.keySet().toArray(new UUID[0]);
+        int[] keptDeaths = new int[keptUuids.length];
+        for (int i = 0; i < keptUuids.length; i++) {
+            keptDeaths[i] = latest.get(keptUuids[i]);
+        }
+        retryUuids.clear();
+        retryDeaths.clear();
+        retryUuids.add(keptUuids);
+        retryDeaths.add(keptDeaths);
+    }
+
+    /**
+     * Stop the flush task and the writer thread after a final synchronous flush
+     *
+     * @throws IOException If the final write fails
+     */
+    public void shutdown() throws IOException {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        try {
+            flushNow();
+        } finally {
+            writer.execute(() -> {
+                try {
+                    storage.close();
+                } catch (IOException e) {
+                    plugin.getLog().warning(Channel.STORAGE, "Could not close {}", storage.getFile().getName(), e);
+                }
+            });
+            writer.shutdown();
+            try {
+                writer.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * Block until every write queued so far has completed
+     */
+    private void awaitWriter() {
+        try {
+            writer.submit(() -> { }).get(30, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            plugin.getLog().warning(Channel.STORAGE, "Timed out waiting for pending data writes", e);
+        }
+    }
+
+    /**
+     * Write a file through a temp file, fsync it and rename it over the target
+     *
+     * @param target The file to replace
+     * @param bytes The new file contents
+     * @throws IOException If the write fails
+     */
+    public static void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
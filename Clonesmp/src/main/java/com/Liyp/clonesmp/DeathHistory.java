@@ -0,0 +1,574 @@
+package com.Liyp.clonesmp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Per-player timeline of deaths, Life Crystals, resets and Mega Head unbans
+ *
+ * Each player's events are appended to history/&lt;xx&gt;/&lt;uuid&gt;.log, where xx
+ * are the first two hex digits of the UUID. Once the log holds
+ * {@link #SEGMENT_EVENTS} events they are compressed into a sealed segment
+ * (&lt;uuid&gt;.&lt;n&gt;.z) and the log starts over, so a write appends one record
+ * and at most compresses one segment, however long the history. The log's header
+ * lists how many events each sealed segment holds, which lets a page be read
+ * from only the segments it covers. Files are only touched by one background
+ * thread, in the order events happened.
+ *
+ * Log: magic, version, segment count, events per segment, then records.
+ * Sealed segment: magic, version, event count, deflated records.
+ * Record: payload length, payload, CRC32 of the payload.
+ */
+public class DeathHistory {
+    public static final int PAGE_SIZE = 10;
+    static final int SEGMENT_EVENTS = 64;
+    private static final int MAGIC = 0x43534849; // "CSHI"
+    private static final int VERSION = 1;
+    private static final int MAX_OPEN_LOGS = 256;
+    private static final int MAX_RECORD_SIZE = 4096;
+
+    /**
+     * What changed a player's lives
+     */
+    public enum Type {
+        DEATH, LIFE_CRYSTAL, RESET, MEGA_HEAD, PLUGIN
+    }
+
+    /**
+     * One entry of a player's history
+     */
+    public static final class Event {
+        private final Type type;
+        private final long time;
+        private final int deaths;
+        private final String world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final String cause;
+        private final String actor;
+
+        /**
+         * Constructor
+         *
+         * @param type What happened
+         * @param deaths The player's death count afterwards
+         * @param location Where it happened, or null
+         * @param cause The damage cause of a death, or null
+         * @param actor Who else was involved (killer, admin, Mega Head breaker), or null
+         */
+        public Event(Type type, int deaths, Location location, String cause, String actor) {
+            this(type, System.currentTimeMillis(), deaths,
+                 location == null || location.getWorld() == null ? null : location.getWorld().getName(),
+                 location == null ? 0 : location.getBlockX(),
+                 location == null ? 0 : location.getBlockY(),
+                 location == null ? 0 : location.getBlockZ(),
+                 cause, actor);
+        }
+
+        Event(Type type, long time, int deaths, String world, int x, int y, int z, String cause, String actor) {
+            this.type = type;
+            this.time = time;
+            this.deaths = deaths;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.cause = cause;
+            this.actor = actor;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public int getDeaths() {
+            return deaths;
+        }
+
+        /**
+         * @return The world name, or null if the event has no location
+         */
+        public String getWorld() {
+            return world;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+        /**
+         * @return The damage cause, or null
+         */
+        public String getCause() {
+            return cause;
+        }
+
+        /**
+         * @return The killer, admin or breaker, or null
+         */
+        public String getActor() {
+            return actor;
+        }
+    }
+
+    /**
+     * A page of a player's history, newest event first
+     */
+    public static final class Page {
+        private final List<Event> events;
+        private final int number;
+        private final int total;
+
+        Page(List<Event> events, int number, int total) {
+            this.events = events;
+            this.number = number;
+            this.total = total;
+        }
+
+        public List<Event> getEvents() {
+            return events;
+        }
+
+        /**
+         * @return The page number, from 1
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        public int getPageCount() {
+            return Math.max(1, (total + PAGE_SIZE - 1) / PAGE_SIZE);
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * Receives a page on the main thread
+     */
+    public interface Callback {
+        void onPage(Page page, IOException error);
+    }
+
+    /**
+     * What is known about a player's log without reading its records again
+     */
+    private static final class Log {
+        int[] segments;
+        int events;
+        long end;
+    }
+
+    private final CloneSMP plugin;
+    private final File directory;
+    private final ExecutorService writer;
+    private final CRC32 crc = new CRC32();
+
+    // Only touched by the writer thread
+    private final Map<UUID, Log> logs = new LinkedHashMap<UUID, Log>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Log> eldest) {
+            return size() > MAX_OPEN_LOGS;
+        }
+    };
+    private boolean failing = false;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param directory The history/ directory
+     */
+    public DeathHistory(CloneSMP plugin, File directory) {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "CloneSMP-History");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Append an event to a player's history in the background. Does nothing if
+     * history is turned off.
+     *
+     * @param uuid The player's UUID
+     * @param event The event
+     */
+    public void record(UUID uuid, Event event) {
+        if (!plugin.getSettings().isHistoryEnabled()) return;
+        try {
+            writer.execute(() -> append(uuid, event));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Read a page of a player's history in the background and deliver it on the main thread
+     *
+     * @param uuid The player's UUID
+     * @param number The page number, from 1 (newest events)
+     * @param callback Receives the page, or the read error
+     */
+    public void page(UUID uuid, int number, Callback callback) {
+        try {
+            writer.execute(() -> {
+                Page page = null;
+                IOException error = null;
+                try {
+                    page = readPage(uuid, number);
+                } catch (IOException e) {
+                    error = e;
+                    plugin.getLog().warning(Channel.STORAGE, "Could not read history of {}", uuid, e);
+                }
+                Page result = page;
+                IOException failure = error;
+                Bukkit.getScheduler().runTask(plugin, () -> callback.onPage(result, failure));
+            });
+        } catch (RejectedExecutionException e) {
+            callback.onPage(null, new IOException("History is shut down"));
+        }
+    }
+
+    /**
+     * Write the queued events and stop the background thread
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(UUID uuid, Event event) {
+        try {
+            Log log = open(uuid);
+            byte[] record = encode(event);
+            try (FileChannel channel = FileChannel.open(logFile(uuid).toPath(), StandardOpenOption.WRITE)) {
+                // Written at the end of the last whole record, over anything torn after it
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                long position = log.end;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                channel.truncate(position);
+            }
+            log.end += record.length;
+            log.events++;
+
+            if (log.events >= SEGMENT_EVENTS) {
+                seal(uuid, log);
+            }
+            failing = false;
+        } catch (IOException e) {
+            logs.remove(uuid);
+            // One message until writes work again, not one per death
+            if (!failing) {
+                plugin.getLog().severe(Channel.STORAGE, "Could not write history of {}", uuid, e);
+                failing = true;
+            }
+        }
+    }
+
+    /**
+     * Compress the events in a player's log into a new sealed segment and empty the log
+     */
+    private void seal(UUID uuid, Log log) throws IOException {
+        byte[] bytes = Files.readAllBytes(logFile(uuid).toPath());
+        int start = headerSize(log.segments.length);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) (log.end - start) / 2 + 64);
+        try {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(log.events);
+            deflater.setInput(bytes, start, (int) log.end - start);
+            deflater.finish();
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+
+        // If the server stops between these two writes, the next seal rewrites the same
+        // segment with these events and the newer ones
+        int[] segments = Arrays.copyOf(log.segments, log.segments.length + 1);
+        segments[segments.length - 1] = log.events;
+        DataSaver.writeAtomically(segmentFile(uuid, segments.length).toPath(), out.toByteArray());
+        DataSaver.writeAtomically(logFile(uuid).toPath(), header(segments));
+
+        log.segments = segments;
+        log.events = 0;
+        log.end = headerSize(segments.length);
+    }
+
+    /**
+     * Get what is known about a player's log, reading or creating it the first time
+     */
+    private Log open(UUID uuid) throws IOException {
+        Log log = logs.get(uuid);
+        if (log != null) return log;
+
+        File file = logFile(uuid);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent);
+            }
+            log = new Log();
+            log.segments = new int[0];
+            log.end = headerSize(0);
+            DataSaver.writeAtomically(file.toPath(), header(log.segments));
+            logs.put(uuid, log);
+            return log;
+        }
+
+        log = new Log();
+        log.segments = readHeader(bytes, file);
+        log.end = headerSize(log.segments.length);
+        while (true) {
+            int length = recordLength(bytes, (int) log.end);
+            if (length < 0) break;
+            log.end += length;
+            log.events++;
+        }
+        logs.put(uuid, log);
+        return log;
+    }
+
+    private Page readPage(UUID uuid, int number) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(logFile(uuid).toPath());
+        } catch (NoSuchFileException e) {
+            return new Page(Collections.emptyList(), number, 0);
+        }
+
+        int[] segments = readHeader(bytes, logFile(uuid));
+        List<Event> logEvents = decodeAll(bytes, headerSize(segments.length), bytes.length);
+        int total = logEvents.size();
+        for (int count : segments) {
+            total += count;
+        }
+
+        // Chronological index range of the page; page 1 holds the newest events
+        int to = total - (number - 1) * PAGE_SIZE;
+        int from = Math.max(0, to - PAGE_SIZE);
+        if (to <= 0) {
+            return new Page(Collections.emptyList(), number, total);
+        }
+
+        List<Event> events = new ArrayList<>(to - from);
+        int first = 0;
+        for (int i = 0; i < segments.length && first < to; i++) {
+            int last = first + segments[i];
+            if (last > from) {
+                List<Event> segment = readSegment(uuid, i + 1);
+                events.addAll(segment.subList(Math.max(0, from - first), Math.min(segment.size(), to - first)));
+            }
+            first = last;
+        }
+        if (to > first) {
+            events.addAll(logEvents.subList(Math.max(0, from - first), to - first));
+        }
+        Collections.reverse(events);
+        return new Page(events, number, total);
+    }
+
+    private List<Event> readSegment(UUID uuid, int segment) throws IOException {
+        File file = segmentFile(uuid, segment);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < 12 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a CloneSMP history segment");
+        }
+
+        Inflater inflater = new Inflater();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+        try {
+            inflater.setInput(bytes, 12, bytes.length - 12);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException(file + " is truncated");
+                }
+                out.write(chunk, 0, inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(file + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+
+        byte[] records = out.toByteArray();
+        List<Event> events = decodeAll(records, 0, records.length);
+        if (events.size() != buffer.getInt(8)) {
+            throw new IOException(file + " is corrupt");
+        }
+        return events;
+    }
+
+    /**
+     * Decode the whole records in a range, stopping at a torn or corrupt one
+     */
+    private List<Event> decodeAll(byte[] bytes, int start, int end) throws IOException {
+        List<Event> events = new ArrayList<>();
+        int offset = start;
+        while (offset < end) {
+            int length = recordLength(bytes, offset);
+            if (length < 0) break;
+            events.add(decode(bytes, offset + 4, length - 8));
+            offset += length;
+        }
+        return events;
+    }
+
+    /**
+     * @return The size of the whole record at an offset, or -1 if there is none
+     */
+    private int recordLength(byte[] bytes, int offset) {
+        if (offset + 4 > bytes.length) return -1;
+        int payload = ByteBuffer.wrap(bytes).getInt(offset);
+        if (payload <= 0 || payload > MAX_RECORD_SIZE || offset + 8 + payload > bytes.length) return -1;
+
+        crc.reset();
+        crc.update(bytes, offset + 4, payload);
+        if (ByteBuffer.wrap(bytes).getInt(offset + 4 + payload) != (int) crc.getValue()) return -1;
+        return payload + 8;
+    }
+
+    private byte[] encode(Event event) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(event.type.ordinal());
+        data.writeLong(event.time);
+        data.writeInt(event.deaths);
+        data.writeUTF(event.world != null ? event.world : "");
+        data.writeInt(event.x);
+        data.writeInt(event.y);
+        data.writeInt(event.z);
+        data.writeUTF(event.cause != null ? event.cause : "");
+        data.writeUTF(event.actor != null ? event.actor : "");
+
+        byte[] bytes = payload.toByteArray();
+        crc.reset();
+        crc.update(bytes);
+        return ByteBuffer.allocate(bytes.length + 8).putInt(bytes.length).put(bytes).putInt((int) crc.getValue()).array();
+    }
+
+    private static Event decode(byte[] bytes, int offset, int length) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes, offset, length));
+        int type = data.readUnsignedByte();
+        if (type >= Type.values().length) {
+            throw new IOException("Unknown history event type " + type);
+        }
+        long time = data.readLong();
+        int deaths = data.readInt();
+        String world = data.readUTF();
+        int x = data.readInt();
+        int y = data.readInt();
+        int z = data.readInt();
+        String cause = data.readUTF();
+        String actor = data.readUTF();
+        return new Event(Type.values()[type], time, deaths, world.isEmpty() ? null : world, x, y, z,
+                         cause.isEmpty() ? null : cause, actor.isEmpty() ? null : actor);
+    }
+
+    private static int[] readHeader(byte[] bytes, File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < 12 || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a CloneSMP history log");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " has unsupported version " + buffer.getInt(4));
+        }
+        int count = buffer.getInt(8);
+        if (count < 0 || bytes.length < headerSize(count)) {
+            throw new IOException(file + " is truncated");
+        }
+        int[] segments = new int[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = buffer.getInt(12 + i * 4);
+        }
+        return segments;
+    }
+
+    private static byte[] header(int[] segments) {
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize(segments.length));
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(segments.length);
+        for (int count : segments) {
+            buffer.putInt(count);
+        }
+        return buffer.array();
+    }
+
+    private static int headerSize(int segments) {
+        return 12 + segments * 4;
+    }
+
+    private File logFile(UUID uuid) {
+        String name = uuid.toString();
+        return new File(new File(directory, name.substring(0, 2)), name + ".log");
+    }
+
+    private File segmentFile(UUID uuid, int segment) {
+        String name = uuid.toString();
+        return new File(new File(directory, name.substring(0, 2)), name + "." + segment + ".z");
+    }
+}
@@ -4,18 +4,20 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-import org.bukkit.BanList;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SkullMeta;
-import org.bukkit.scheduler.BukkitRunnable;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
 
 /**
  * Handles player death events and implements the lives system
@@ -30,29 +32,45 @@ public class DeathListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerDeath(PlayerDeathEvent event) {
+        long start = System.nanoTime();
+        try {
+            handlePlayerDeath(event);
+        } finally {
+            plugin.getMetrics().record(Metrics.Timer.DEATH, start);
+        }
+    }
+    
+    /**
+     * Count the death, drop the head and queue the ban if it was the last life
+     * 
+     * @param event The PlayerDeathEvent
+     */
+    private void handlePlayerDeath(PlayerDeathEvent event) {
         Player player = event.getEntity();
         UUID uuid = player.getUniqueId();
 
-        // Increment death count & save
-        int deaths = plugin.getData().getInt("deaths." + uuid, 0) + 1;
+        // Increment death count (saved in the background)
+        int deaths = plugin.getLives().addDeaths(uuid, 1);
         int maxLives = plugin.getMaxLives();
         int livesLeft = maxLives - deaths;
         
-        plugin.getData().set("deaths." + uuid, deaths);
-        plugin.saveData();
+        // Where and how, for /clonesmp history (written in the background)
+        EntityDamageEvent lastDamage = player.getLastDamageCause();
+        Player killer = player.getKiller();
+        plugin.getHistory().record(uuid, new DeathHistory.Event(DeathHistory.Type.DEATH, deaths, player.getLocation(),
+                                   lastDamage != null ? lastDamage.getCause().name() : null,
+                                   killer != null ? killer.getName() : null));
 
-        // Log and possibly broadcast death
-        String deathMessage = ChatColor.RED + player.getName() + 
-                              ChatColor.YELLOW + " has " + 
-                              ChatColor.RED + livesLeft + 
-                              ChatColor.YELLOW + " lives remaining!";
-        
-        plugin.getLogger().info(player.getName() + " has died " + deaths + " times.");
+        // Log and possibly broadcast death (collected into one digest per tick)
+        plugin.getLog().info(Channel.CORE, "{} has died {} times.", player.getName(), deaths);
         
         if (plugin.shouldBroadcastDeaths()) {
-            Bukkit.broadcastMessage(deathMessage);
+            plugin.getAnnouncer().announceDeath(player, livesLeft);
         } else {
-            player.sendMessage(deathMessage);
+            player.sendMessage(ChatColor.RED + player.getName() + 
+                               ChatColor.YELLOW + " has " + 
+                               ChatColor.RED + livesLeft + 
+                               ChatColor.YELLOW + " lives remaining!");
         }
 
         // Drop a custom player head
@@ -61,9 +79,9 @@ public class DeathListener implements Listener {
             event.getDrops().add(head);
         }
 
-        // On final death → ban & kick via updated API
+        // On final death → ban & kick with the rest of this tick's eliminations
         if (deaths >= maxLives) {
-            banPlayer(player);
+            plugin.getEliminations().eliminate(player);
         }
     }
     
@@ -74,10 +92,21 @@ public class DeathListener implements Listener {
      * @return ItemStack of player head
      */
     private ItemStack createPlayerHead(Player player) {
+        return plugin.getItemTemplates().playerHead(player, this::buildPlayerHead);
+    }
+    
+    /**
+     * Build the template for a player's head
+     * 
+     * @param player The player whose head to build
+     * @return ItemStack of player head
+     */
+    private ItemStack buildPlayerHead(OfflinePlayer player) {
         ItemStack head = new ItemStack(Material.PLAYER_HEAD);
         SkullMeta meta = (SkullMeta) head.getItemMeta();
         if (meta != null) {
-            meta.setOwningPlayer(player);
+            // Cached profile only, so building a head never waits on a texture lookup
+            meta.setOwnerProfile(plugin.getProfileCache().getProfile(player.getUniqueId(), player.getName()));
             meta.setDisplayName(ChatColor.GOLD + player.getName() + "'s Head");
             
             List<String> lore = new ArrayList<>();
@@ -89,42 +118,4 @@ public class DeathListener implements Listener {
         }
         return head;
     }
-    
-    /**
-     * Ban a player who has used all their lives
-     * 
-     * @param player The player to ban
-     */
-    @SuppressWarnings("deprecation")
-    private void banPlayer(Player player) {
-        try {
-            // Use available ban method in a compatible way
-            plugin.getServer()
-                  .getBanList(BanList.Type.NAME)  // Use NAME as it's still supported
-                  .addBan(
-                      player.getName(),
-                      "You died " + plugin.getMaxLives() + " times and have been banned!",
-                      null,  // null = permanent
-                      plugin.getName()
-                  );
-                                  
-            plugin.getLogger().info("Banned player " + player.getName() + " for using all lives");
-            
-            // Kick next tick to ensure proper message delivery
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (player.isOnline()) {
-                        player.kickPlayer(
-                            ChatColor.RED + "You died " + plugin.getMaxLives() + " times and have been banned.\n" +
-                            ChatColor.YELLOW + "Have your team craft a Mega Head to unban you!"
-                        );
-                    }
-                }
-            }.runTaskLater(plugin, 1L);
-        } catch (Exception e) {
-            plugin.getLogger().severe("Failed to ban player " + player.getName() + ": " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.Liyp.clonesmp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.BanList;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.ban.ProfileBanList;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Bans and kicks players who used all their lives, in batches
+ *
+ * Eliminations are appended to eliminations.log and queued; the ban cache is
+ * updated at once so Mega Heads work immediately. One task per tick then bans
+ * every queued player by profile (UUID) in order and kicks those online, so the
+ * server's ban list is written outside the death event. Entries leave the log only
+ * after their ban is applied, and a log left behind by a crash is replayed on the
+ * next start; applying a ban twice is harmless. Only the main server thread may
+ * use this class.
+ */
+public class EliminationQueue {
+    private static final class Elimination {
+        final UUID uuid;
+        final String name;
+
+        Elimination(UUID uuid, String name) {
+            this.uuid = uuid;
+            this.name = name;
+        }
+    }
+
+    private final CloneSMP plugin;
+    private final File file;
+    private final ArrayDeque<Elimination> pending = new ArrayDeque<>();
+    private FileChannel log;
+    private BukkitTask drainTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param file The eliminations.log file
+     */
+    public EliminationQueue(CloneSMP plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+    }
+
+    /**
+     * Re-queue eliminations left in the log by a crash and open the log for appending
+     *
+     * @throws IOException If the log cannot be read or opened
+     */
+    public void start() throws IOException {
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(" ");
+                    if (parts.length != 2) continue; // torn write at the end of the log
+                    try {
+                        Elimination elimination = new Elimination(UUID.fromString(parts[0]), parts[1]);
+                        pending.add(elimination);
+                        plugin.getBanCache().markBanned(elimination.uuid);
+                    } catch (IllegalArgumentException e) {
+                        // Skip a damaged line
+                    }
+                }
+            }
+        }
+
+        log = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        rewriteLog();
+        if (!pending.isEmpty()) {
+            plugin.getLog().info(Channel.BANS, "Applying {} bans left over from the last run", pending.size());
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Apply anything still queued and close the log
+     */
+    public void shutdown() {
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        drain();
+        try {
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+        } catch (IOException e) {
+            plugin.getLog().warning(Channel.BANS, "Could not close {}", file.getName(), e);
+        }
+    }
+
+    /**
+     * Queue a player who used all their lives to be banned and kicked at the end of the tick
+     *
+     * @param player The player
+     */
+    public void eliminate(Player player) {
+        Elimination elimination = new Elimination(player.getUniqueId(), player.getName());
+        pending.add(elimination);
+        plugin.getBanCache().markBanned(elimination.uuid);
+        append(elimination);
+        scheduleDrain();
+    }
+
+    /**
+     * Drop a queued elimination that has not been applied yet, e.g. when the
+     * player is revived in the same tick
+     *
+     * @param uuid The player's UUID
+     */
+    public void cancel(UUID uuid) {
+        if (pending.removeIf(elimination -> elimination.uuid.equals(uuid))) {
+            rewriteLog();
+        }
+    }
+
+    /**
+     * Check if a player's ban is queued but not applied yet
+     *
+     * @param uuid The player's UUID
+     * @return True if the player is waiting to be banned
+     */
+    public boolean isPending(UUID uuid) {
+        for (Elimination elimination : pending) {
+            if (elimination.uuid.equals(uuid)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of eliminations waiting to be applied
+     *
+     * @return Queued eliminations
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    private void scheduleDrain() {
+        if (drainTask == null) {
+            drainTask = Bukkit.getScheduler().runTask(plugin, this::drain);
+        }
+    }
+
+    private void drain() {
+        drainTask = null;
+        if (pending.isEmpty()) return;
+
+        int maxLives = plugin.getMaxLives();
+        String reason = "You died " + maxLives + " times and have been banned!";
+        ProfileBanList banList = Bukkit.getBanList(BanList.Type.PROFILE);
+        List<Elimination> applied = new ArrayList<>(pending.size());
+        try {
+            while (!pending.isEmpty()) {
+                Elimination elimination = pending.peek();
+                banList.addBan(Bukkit.createPlayerProfile(elimination.uuid, elimination.name), reason, (Date) null, plugin.getName());
+                applied.add(pending.poll());
+            }
+        } catch (Exception e) {
+            // The rest stay in the log and are retried on the next elimination or start
+            plugin.getLog().severe(Channel.BANS, "Failed to ban player {}", pending.peek().name, e);
+        }
+
+        String kickMessage = ChatColor.RED + "You died " + maxLives + " times and have been banned.\n" +
+                             ChatColor.YELLOW + "Have your team craft a Mega Head to unban you!";
+        for (Elimination elimination : applied) {
+            Player player = Bukkit.getPlayer(elimination.uuid);
+            if (player != null && player.isOnline()) {
+                player.kickPlayer(kickMessage);
+            }
+        }
+
+        rewriteLog();
+        if (applied.size() == 1) {
+            plugin.getLog().info(Channel.BANS, "Banned player {} for using all lives", applied.get(0).name);
+        } else if (!applied.isEmpty()) {
+            plugin.getLog().info(Channel.BANS, "Banned {} players for using all lives", applied.size());
+        }
+    }
+
+    private void append(Elimination elimination) {
+        if (log == null) return;
+        try {
+            log.write(ByteBuffer.wrap(line(elimination).getBytes(StandardCharsets.UTF_8)), log.size());
+        } catch (IOException e) {
+            plugin.getLog().warning(Channel.BANS, "Could not write {}; this ban is lost if the server crashes", file.getName(), e);
+        }
+    }
+
+    /**
+     * Replace the log with the entries that are still queued
+     */
+    private void rewriteLog() {
+        if (log == null) return;
+        try {
+            StringBuilder out = new StringBuilder();
+            for (Elimination elimination : pending) {
+                out.append(line(elimination));
+            }
+            log.truncate(0);
+            log.write(ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8)), 0);
+        } catch (IOException e) {
+            // Applied entries may be replayed on the next start, which is harmless
+            plugin.getLog().warning(Channel.BANS, "Could not rewrite {}", file.getName(), e);
+        }
+    }
+
+    private static String line(Elimination elimination) {
+        return elimination.uuid + " " + elimination.name + "\n";
+    }
+}
@@ -0,0 +1,111 @@
+package com.Liyp.clonesmp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Prebuilt prototypes of the plugin's custom items
+ *
+ * Building an item means creating its ItemMeta, lore list and colored strings,
+ * so each distinct item is built once and handed out as a clone. Player heads
+ * and Mega Heads are kept per player in small LRU maps and rebuilt when the
+ * player's name changes. Prototypes never leave this class, only clones do.
+ * Only the main server thread may use this class.
+ */
+public class ItemTemplates {
+    private static final int MAX_PLAYER_TEMPLATES = 256;
+
+    private static final class Template {
+        final String name;
+        final ItemStack item;
+
+        Template(String name, ItemStack item) {
+            this.name = name;
+            this.item = item;
+        }
+    }
+
+    private final Map<UUID, Template> playerHeads = lruMap();
+    private final Map<UUID, Template> megaHeads = lruMap();
+    private ItemStack lifeCrystal;
+
+    /**
+     * Get a player's head
+     *
+     * @param player The player
+     * @param builder Builds the head if there is no template for the player's current name
+     * @return A new copy of the head
+     */
+    public ItemStack playerHead(OfflinePlayer player, Function<OfflinePlayer, ItemStack> builder) {
+        return fromTemplate(playerHeads, player, builder);
+    }
+
+    /**
+     * Get a player's Mega Head
+     *
+     * @param player The player
+     * @param builder Builds the Mega Head if there is no template for the player's current name
+     * @return A new copy of the Mega Head
+     */
+    public ItemStack megaHead(OfflinePlayer player, Function<OfflinePlayer, ItemStack> builder) {
+        return fromTemplate(megaHeads, player, builder);
+    }
+
+    /**
+     * Get a Life Crystal
+     *
+     * @param builder Builds the Life Crystal if there is no template
+     * @return A new copy of the Life Crystal
+     */
+    public ItemStack lifeCrystal(Supplier<ItemStack> builder) {
+        if (lifeCrystal == null) {
+            lifeCrystal = builder.get();
+        }
+        return lifeCrystal.clone();
+    }
+
+    /**
+     * Drop a player's head templates, e.g. after their skin was resolved
+     *
+     * @param uuid The player's UUID
+     */
+    public void invalidate(UUID uuid) {
+        playerHeads.remove(uuid);
+        megaHeads.remove(uuid);
+    }
+
+    /**
+     * Drop every template, e.g. after the configuration is reloaded
+     */
+    public void invalidate() {
+        playerHeads.clear();
+        megaHeads.clear();
+        lifeCrystal = null;
+    }
+
+    private static ItemStack fromTemplate(Map<UUID, Template> templates, OfflinePlayer player,
+                                          Function<OfflinePlayer, ItemStack> builder) {
+        String name = player.getName();
+        Template template = templates.get(player.getUniqueId());
+        if (template == null || (name != null && !name.equals(template.name))) {
+            template = new Template(name, builder.apply(player));
+            templates.put(player.getUniqueId(), template);
+        }
+        return template.item.clone();
+    }
+
+    private static Map<UUID, Template> lruMap() {
+        return new LinkedHashMap<UUID, Template>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Template> eldest) {
+                return size() > MAX_PLAYER_TEMPLATES;
+            }
+        };
+    }
+}
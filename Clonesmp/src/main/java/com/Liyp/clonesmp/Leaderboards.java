@@ -0,0 +1,325 @@
+package com.Liyp.clonesmp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Death, lives and Life Crystal leaderboards for /clonesmp top and rank
+ *
+ * Every player with a lives record is ranked by death count in a {@link Ranking}
+ * that follows the lives store as it changes, so no query sorts anything. The
+ * lives board is the same ranking read from the fewest deaths. Life Crystal uses
+ * are counted here, in a second ranking saved to crystals.dat (magic, version,
+ * count, then UUID and count per player, CRC32). With a lazy storage the death
+ * ranking is filled from a background scan of the storage at startup; until that
+ * finishes the leaderboards are incomplete. Only the main server thread may use
+ * this class, apart from {@link Loader#add}.
+ */
+public class Leaderboards implements LivesStore.ChangeListener {
+    private static final int MAGIC = 0x43534352; // "CSCR"
+    private static final int VERSION = 1;
+    private static final long SAVE_INTERVAL_TICKS = 20L * 60 * 5;
+
+    /**
+     * A leaderboard
+     */
+    public enum Board {
+        DEATHS, LIVES, CRYSTALS
+    }
+
+    /**
+     * A player's place on a leaderboard
+     */
+    public static final class Entry {
+        private final UUID uuid;
+        private final int rank;
+        private final int score;
+
+        Entry(UUID uuid, int rank, int score) {
+            this.uuid = uuid;
+            this.rank = rank;
+            this.score = score;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        /**
+         * @return The rank, from 1; players with the same score share it
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        /**
+         * @return Deaths, lives left or Life Crystals used, depending on the board
+         */
+        public int getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Collects records from a storage scan off the main thread, then adds them to the
+     * death ranking on the main thread
+     */
+    public final class Loader {
+        private long[] msbs = new long[1024];
+        private long[] lsbs = new long[1024];
+        private int[] deaths = new int[1024];
+        private int count;
+
+        private Loader() {
+        }
+
+        /**
+         * Add a stored record. Called by the scanning thread only.
+         *
+         * @param msb Most significant bits of the UUID
+         * @param lsb Least significant bits of the UUID
+         * @param deathCount The stored death count
+         */
+        public void add(long msb, long lsb, int deathCount) {
+            if (count == msbs.length) {
+                msbs = Arrays.copyOf(msbs, count << 1);
+                lsbs = Arrays.copyOf(lsbs, count << 1);
+                deaths = Arrays.copyOf(deaths, count << 1);
+            }
+            msbs[count] = msb;
+            lsbs[count] = lsb;
+            deaths[count] = deathCount;
+            count++;
+        }
+
+        /**
+         * Rank the collected players; records changed since startup keep their newer count.
+         * Must be called on the main thread after the scan.
+         */
+        public void install() {
+            for (int i = 0; i < count; i++) {
+                byDeaths.setIfAbsent(msbs[i], lsbs[i], deaths[i]);
+            }
+            loading = false;
+            plugin.getLog().info(Channel.STORAGE, "Leaderboards ranked {} players", byDeaths.size());
+        }
+    }
+
+    private final CloneSMP plugin;
+    private final LivesStore lives;
+    private final File file;
+    private final Ranking byDeaths;
+    private final Ranking byCrystals = new Ranking(64);
+    private final Object saveLock = new Object();
+    private boolean loading = false;
+    private volatile boolean dirty = false;
+    private long generation = 0;
+    private long savedGeneration = 0;
+    private BukkitTask saveTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param lives The lives store to follow
+     * @param file The crystals.dat file
+     */
+    public Leaderboards(CloneSMP plugin, LivesStore lives, File file) {
+        this.plugin = plugin;
+        this.lives = lives;
+        this.file = file;
+        this.byDeaths = new Ranking(lives.size());
+    }
+
+    /**
+     * Rank the records in memory, load the Life Crystal counts and start the periodic
+     * save. Register as a lives listener right after.
+     */
+    public void start() {
+        lives.forEach(byDeaths::setIfAbsent);
+        if (file.exists()) {
+            load();
+        }
+        saveTask = Bukkit.getScheduler().runTaskTimer(plugin, this::saveLater, SAVE_INTERVAL_TICKS, SAVE_INTERVAL_TICKS);
+    }
+
+    /**
+     * Start filling the death ranking from a storage scan; the leaderboards count as
+     * loading until {@link Loader#install} runs
+     *
+     * @return The loader to pass the scanned records to
+     */
+    public Loader loader() {
+        loading = true;
+        return new Loader();
+    }
+
+    /**
+     * Stop the save task and write the Life Crystal counts if they changed
+     */
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        if (dirty) {
+            write(snapshot(), ++generation);
+        }
+    }
+
+    @Override
+    public void onLivesChanged(UUID uuid, int oldDeaths, int newDeaths) {
+        byDeaths.set(uuid, newDeaths);
+    }
+
+    /**
+     * Count a Life Crystal used by a player
+     *
+     * @param uuid The player's UUID
+     */
+    public void addCrystalUse(UUID uuid) {
+        byCrystals.set(uuid, Math.max(0, byCrystals.getScore(uuid)) + 1);
+        dirty = true;
+        generation++;
+    }
+
+    /**
+     * @return True while ranked players are still being read from storage
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Get the number of players on a leaderboard
+     *
+     * @param board The leaderboard
+     * @return Ranked player count
+     */
+    public int size(Board board) {
+        return board == Board.CRYSTALS ? byCrystals.size() : byDeaths.size();
+    }
+
+    /**
+     * Get the best players of a leaderboard
+     *
+     * @param board The leaderboard
+     * @param limit Maximum number of players
+     * @return Up to limit entries, best first
+     */
+    public List<Entry> top(Board board, int limit) {
+        List<Entry> entries = new ArrayList<>(Math.min(limit, size(board)));
+        if (board == Board.CRYSTALS) {
+            byCrystals.top(true, limit, (msb, lsb, score) ->
+                entries.add(new Entry(new UUID(msb, lsb), 1 + byCrystals.countAbove(score), score)));
+        } else if (board == Board.DEATHS) {
+            byDeaths.top(true, limit, (msb, lsb, score) ->
+                entries.add(new Entry(new UUID(msb, lsb), 1 + byDeaths.countAbove(score), score)));
+        } else {
+            int maxLives = plugin.getMaxLives();
+            byDeaths.top(false, limit, (msb, lsb, score) ->
+                entries.add(new Entry(new UUID(msb, lsb), livesRank(score, maxLives), Math.max(0, maxLives - score))));
+        }
+        return entries;
+    }
+
+    /**
+     * Get a player's place on a leaderboard
+     *
+     * @param board The leaderboard
+     * @param uuid The player's UUID
+     * @return The entry, or null if the player is not on it
+     */
+    public Entry get(Board board, UUID uuid) {
+        if (board == Board.CRYSTALS) {
+            int used = byCrystals.getScore(uuid);
+            return used < 0 ? null : new Entry(uuid, 1 + byCrystals.countAbove(used), used);
+        }
+
+        int deaths = byDeaths.getScore(uuid);
+        if (deaths < 0) return null;
+        if (board == Board.DEATHS) {
+            return new Entry(uuid, 1 + byDeaths.countAbove(deaths), deaths);
+        }
+        int maxLives = plugin.getMaxLives();
+        return new Entry(uuid, livesRank(deaths, maxLives), Math.max(0, maxLives - deaths));
+    }
+
+    /**
+     * Rank by lives left: everyone out of lives shares the last place
+     */
+    private int livesRank(int deaths, int maxLives) {
+        return 1 + byDeaths.countBelow(Math.min(deaths, maxLives));
+    }
+
+    private void load() {
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (bytes.length < 16 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || bytes.length != 12 + buffer.getInt(8) * 20 + 4) {
+                throw new IOException(file.getName() + " is not a CloneSMP crystal count file");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - 4);
+            if (buffer.getInt(bytes.length - 4) != (int) crc.getValue()) {
+                throw new IOException(file.getName() + " is corrupt");
+            }
+
+            buffer.position(12);
+            int count = buffer.getInt(8);
+            for (int i = 0; i < count; i++) {
+                byCrystals.setIfAbsent(buffer.getLong(), buffer.getLong(), buffer.getInt());
+            }
+        } catch (IOException e) {
+            plugin.getLog().severe(Channel.STORAGE, "Could not read {}", file.getName(), e);
+        }
+    }
+
+    /**
+     * Write the Life Crystal counts in the background if they changed
+     */
+    private void saveLater() {
+        if (!dirty) return;
+        dirty = false;
+        byte[] bytes = snapshot();
+        long saving = generation;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> write(bytes, saving));
+    }
+
+    private byte[] snapshot() {
+        ByteBuffer buffer = ByteBuffer.allocate(12 + byCrystals.size() * 20 + 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(byCrystals.size());
+        byCrystals.top(true, byCrystals.size(), (msb, lsb, used) -> buffer.putLong(msb).putLong(lsb).putInt(used));
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    private void write(byte[] bytes, long saving) {
+        synchronized (saveLock) {
+            // An older snapshot finishing late must not replace a newer one
+            if (saving < savedGeneration) return;
+            try {
+                DataSaver.writeAtomically(file.toPath(), bytes);
+                savedGeneration = saving;
+            } catch (IOException e) {
+                plugin.getLog().severe(Channel.STORAGE, "Could not save {}", file.getName(), e);
+                dirty = true;
+            }
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.Liyp.clonesmp;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.Keyed;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.Particle;
@@ -13,6 +15,7 @@ import org.bukkit.Sound;
 import org.bukkit.enchantments.Enchantment;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
@@ -20,17 +23,23 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.Recipe;
-import org.bukkit.inventory.ShapedRecipe;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
 
+import com.Liyp.clonesmp.PluginLog.Channel;
+
 /**
  * Handles Life Crystal item creation and usage
  */
 public class LifeCrystalItem implements Listener {
+    private static final List<String> DEFAULT_SHAPE = List.of("EEE", "EHE", "EEE");
+    private static final Map<Character, Material> DEFAULT_INGREDIENTS =
+            Map.of('E', Material.END_CRYSTAL, 'H', Material.PLAYER_HEAD);
+    
     private final CloneSMP plugin;
     private final NamespacedKey lifeCrystalKey;
-    private final int maxLives;
+    private int maxLives;
+    private volatile CompiledRecipe recipe;
     
     /**
      * Constructor
@@ -40,7 +49,7 @@ public class LifeCrystalItem implements Listener {
     public LifeCrystalItem(CloneSMP plugin) {
         this.plugin = plugin;
         this.lifeCrystalKey = new NamespacedKey(plugin, "life_crystal");
-        this.maxLives = plugin.getConfig().getInt("max-life-crystals", 5);
+        this.maxLives = plugin.getSettings().getMaxLifeCrystals();
         
         // Register the crafting recipe
         registerRecipe();
@@ -48,35 +57,74 @@ public class LifeCrystalItem implements Listener {
         // Register this class as a listener
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
         
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fLife Crystal system initialized");
+        plugin.getLog().info(Channel.CRYSTALS, "Life Crystal system initialized");
     }
     
     /**
-     * Register the Life Crystal crafting recipe
+     * Register the Life Crystal crafting recipe from the settings, falling back to
+     * the default recipe if the configured one is invalid
      */
     private void registerRecipe() {
+        CompiledRecipe compiled = plugin.getSettings().getLifeCrystalRecipe();
+        if (compiled == null) {
+            compiled = CompiledRecipe.compile(DEFAULT_SHAPE, DEFAULT_INGREDIENTS);
+        }
+        
+        // A recipe with this key may be left over from before a server reload
+        Bukkit.removeRecipe(lifeCrystalKey);
+        if (swapRecipe(compiled)) {
+            plugin.getLog().info(Channel.CRYSTALS, "Registered Life Crystal recipe");
+        }
+    }
+    
+    /**
+     * Re-read the Life Crystal settings. The registered recipe is only replaced if the
+     * recipe or the crafted item changed; an invalid recipe keeps the current one.
+     */
+    public void reload() {
+        Settings settings = plugin.getSettings();
+        boolean resultChanged = settings.getMaxLifeCrystals() != maxLives;
+        maxLives = settings.getMaxLifeCrystals();
+        
+        CompiledRecipe compiled = settings.getLifeCrystalRecipe();
+        if (compiled == null || (compiled.equals(recipe) && !resultChanged)) return;
+        
+        if (swapRecipe(compiled)) {
+            plugin.getLog().info(Channel.CRYSTALS, "Updated Life Crystal recipe: {}", compiled);
+        }
+    }
+    
+    /**
+     * Remove the recipe and stop handling Life Crystal events
+     */
+    public void disable() {
+        HandlerList.unregisterAll(this);
+        Bukkit.removeRecipe(lifeCrystalKey);
+        recipe = null;
+    }
+    
+    /**
+     * Replace the registered recipe with a compiled one, restoring the old one if that fails
+     * 
+     * @param compiled The new recipe
+     * @return True if the new recipe is registered
+     */
+    private boolean swapRecipe(CompiledRecipe compiled) {
+        CompiledRecipe previous = recipe;
         try {
-            ItemStack lifeCrystal = createLifeCrystal();
-            
-            // Create a shaped recipe for the Life Crystal
-            ShapedRecipe recipe = new ShapedRecipe(lifeCrystalKey, lifeCrystal);
-            
-            // Set the shape (E = End Crystal, H = Player Head)
-            // This creates a pattern with a Player Head in the center surrounded by End Crystals
-            recipe.shape("EEE", "EHE", "EEE");
-            
-            // Set the ingredients
-            recipe.setIngredient('E', Material.END_CRYSTAL);
-            recipe.setIngredient('H', Material.PLAYER_HEAD);
-            
-            // Register the recipe with the server
-            Bukkit.addRecipe(recipe);
-            
-            Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §fRegistered Life Crystal recipe");
+            Bukkit.removeRecipe(lifeCrystalKey);
+            if (!Bukkit.addRecipe(compiled.toShapedRecipe(lifeCrystalKey, createLifeCrystal()))) {
+                throw new IllegalStateException("the server rejected the recipe");
+            }
+            recipe = compiled;
+            return true;
         } catch (Exception e) {
-            plugin.getLogger().severe("Failed to register Life Crystal recipe: " + e.getMessage());
-            Bukkit.getConsoleSender().sendMessage("§c[CloneSMP] §4ERROR: §fFailed to register Life Crystal recipe: " + e.getMessage());
-            e.printStackTrace();
+            plugin.getLog().severe(Channel.CRYSTALS, "Failed to register Life Crystal recipe", e);
+            if (previous != null) {
+                Bukkit.removeRecipe(lifeCrystalKey);
+                Bukkit.addRecipe(previous.toShapedRecipe(lifeCrystalKey, createLifeCrystal()));
+            }
+            return false;
         }
     }
     
@@ -86,6 +134,15 @@ public class LifeCrystalItem implements Listener {
      * @return Life Crystal ItemStack
      */
     public ItemStack createLifeCrystal() {
+        return plugin.getItemTemplates().lifeCrystal(this::buildLifeCrystal);
+    }
+    
+    /**
+     * Build the Life Crystal template
+     * 
+     * @return Life Crystal ItemStack
+     */
+    private ItemStack buildLifeCrystal() {
         ItemStack crystal = new ItemStack(Material.HEART_OF_THE_SEA);
         ItemMeta meta = crystal.getItemMeta();
         
@@ -137,6 +194,20 @@ public class LifeCrystalItem implements Listener {
      */
     @EventHandler
     public void onPlayerUse(PlayerInteractEvent event) {
+        long start = System.nanoTime();
+        try {
+            handlePlayerUse(event);
+        } finally {
+            plugin.getMetrics().record(Metrics.Timer.CRYSTAL_USE, start);
+        }
+    }
+    
+    /**
+     * Use a Life Crystal on right-click
+     * 
+     * @param event The PlayerInteractEvent
+     */
+    private void handlePlayerUse(PlayerInteractEvent event) {
         // Check if it's a right-click with an item
         if (event.getAction() != Action.RIGHT_CLICK_AIR && event.getAction() != Action.RIGHT_CLICK_BLOCK) return;
         
@@ -158,7 +229,7 @@ public class LifeCrystalItem implements Listener {
      */
     private void useCrystal(Player player, ItemStack item) {
         UUID uuid = player.getUniqueId();
-        int deaths = plugin.getData().getInt("deaths." + uuid, 0);
+        int deaths = plugin.getLives().getDeaths(uuid);
         int maxAllowedLives = plugin.getMaxLives();
         int currentLives = maxAllowedLives - deaths;
         
@@ -187,8 +258,9 @@ public class LifeCrystalItem implements Listener {
         
         // Reduce death count to give an extra life
         deaths = Math.max(0, deaths - 1);
-        plugin.getData().set("deaths." + uuid, deaths);
-        plugin.saveData();
+        plugin.getLives().setDeaths(uuid, deaths);
+        plugin.getHistory().record(uuid, new DeathHistory.Event(DeathHistory.Type.LIFE_CRYSTAL, deaths, player.getLocation(), null, null));
+        plugin.getLeaderboards().addCrystalUse(uuid);
         
         // Update item count (consume the crystal)
         if (item.getAmount() > 1) {
@@ -210,11 +282,11 @@ public class LifeCrystalItem implements Listener {
         player.getWorld().spawnParticle(Particle.HEART, player.getLocation().add(0, 1, 0), 50, 0.5, 1, 0.5, 0.2);
         
         // Broadcast message
-        Bukkit.broadcastMessage(ChatColor.LIGHT_PURPLE + player.getName() + ChatColor.GREEN + " used a Life Crystal and now has " + 
-                                ChatColor.GOLD + newLives + ChatColor.GREEN + " lives!");
+        if (plugin.getSettings().shouldBroadcastCrystalUse()) {
+            plugin.getAnnouncer().announceCrystal(player, newLives);
+        }
         
-        // Log to console
-        Bukkit.getConsoleSender().sendMessage("§a[CloneSMP] §f" + player.getName() + " used a Life Crystal. Lives: " + newLives);
+        plugin.getLog().fine(Channel.CRYSTALS, "{} used a Life Crystal. Lives: {}", player.getName(), newLives);
     }
     
     /**
@@ -224,20 +296,15 @@ public class LifeCrystalItem implements Listener {
      */
     @EventHandler
     public void onPrepareCraft(PrepareItemCraftEvent event) {
-        Recipe recipe = event.getRecipe();
-        if (recipe == null) return;
+        // Only grids the server matched to our recipe are checked (by key, so no item meta is read)
+        Recipe matched = event.getRecipe();
+        if (!(matched instanceof Keyed) || !lifeCrystalKey.equals(((Keyed) matched).getKey())) return;
         
-        ItemStack result = event.getInventory().getResult();
-        if (result == null) return;
-        
-        // Check if crafting a Life Crystal
-        if (isLifeCrystal(result)) {
-            // The recipe already requires a player head in the center
-            // surrounded by end crystals, so no additional checks are needed here
-            
-            // However, we can keep this event handler for potential future checks
-            // For example, we might want to check if the player has permission
-            // to craft a Life Crystal
+        // The grid must also fit the current compiled recipe, which rules out a
+        // match against a recipe that was being replaced by a reload
+        CompiledRecipe current = recipe;
+        if (current == null || !current.matches(event.getInventory().getMatrix())) {
+            event.getInventory().setResult(null);
         }
     }
     
@@ -0,0 +1,84 @@
+package com.Liyp.clonesmp;
+
+import java.util.UUID;
+
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Called before a plugin changes a player's lives through {@link CloneSMPApi}.
+ * Cancelling it leaves the lives as they are. Called on the main server thread.
+ */
+public class LivesChangeEvent extends Event implements Cancellable {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Plugin source;
+    private final UUID uuid;
+    private final int oldLives;
+    private final int newLives;
+    private boolean cancelled;
+
+    /**
+     * Constructor
+     *
+     * @param source The plugin making the change
+     * @param uuid The player's UUID
+     * @param oldLives Lives the player has now
+     * @param newLives Lives the player would have
+     */
+    public LivesChangeEvent(Plugin source, UUID uuid, int oldLives, int newLives) {
+        this.source = source;
+        this.uuid = uuid;
+        this.oldLives = oldLives;
+        this.newLives = newLives;
+    }
+
+    /**
+     * @return The plugin making the change
+     */
+    public Plugin getSource() {
+        return source;
+    }
+
+    /**
+     * @return The player's UUID; they may be offline
+     */
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * @return Lives the player has now
+     */
+    public int getOldLives() {
+        return oldLives;
+    }
+
+    /**
+     * @return Lives the player would have
+     */
+    public int getNewLives() {
+        return newLives;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
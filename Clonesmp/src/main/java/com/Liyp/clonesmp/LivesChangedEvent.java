@@ -0,0 +1,62 @@
+package com.Liyp.clonesmp;
+
+import java.util.UUID;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Called after a player's lives changed, whatever changed them: a death, a Life
+ * Crystal, /clonesmp reset, a Mega Head or a plugin. Called on the main server
+ * thread, and only built when something listens for it.
+ */
+public class LivesChangedEvent extends Event {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final UUID uuid;
+    private final int oldLives;
+    private final int newLives;
+
+    /**
+     * Constructor
+     *
+     * @param uuid The player's UUID
+     * @param oldLives Lives the player had
+     * @param newLives Lives the player has now
+     */
+    public LivesChangedEvent(UUID uuid, int oldLives, int newLives) {
+        this.uuid = uuid;
+        this.oldLives = oldLives;
+        this.newLives = newLives;
+    }
+
+    /**
+     * @return The player's UUID; they may be offline
+     */
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * @return Lives the player had
+     */
+    public int getOldLives() {
+        return oldLives;
+    }
+
+    /**
+     * @return Lives the player has now
+     */
+    public int getNewLives() {
+        return newLives;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,231 @@
+package com.Liyp.clonesmp;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scoreboard.Criteria;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
+
+/**
+ * Shows online players their lives left and the Life Crystal cap
+ *
+ * Nothing is polled: a player's display is only marked for update when their
+ * lives change, when they join, or when a reload changes the maximums, and all
+ * marked players are updated together once at the end of the tick. An idle
+ * server does no work, and a tick in which many players die costs one pass.
+ * The display is the sidebar (each player gets their own scoreboard, which
+ * hides the main one), the tab list (a lives column for everyone and the
+ * player's own counts in the footer) or the action bar (shown on each change,
+ * fading after a few seconds). Only the main server thread may use this class.
+ */
+public class LivesHud implements LivesStore.ChangeListener, Listener {
+    private static final String OBJECTIVE = "clonesmp_lives";
+    private static final String LIVES_ENTRY = ChatColor.GOLD + "Lives";
+    private static final String CAP_ENTRY = ChatColor.LIGHT_PURPLE + "Crystal cap";
+
+    /**
+     * Where the lives are shown
+     */
+    public enum Mode {
+        OFF, SIDEBAR, TABLIST, ACTIONBAR
+    }
+
+    private final CloneSMP plugin;
+    private final LivesStore lives;
+    private final Set<UUID> dirty = new LinkedHashSet<>();
+    private final Map<UUID, Scoreboard> sidebars = new HashMap<>();
+    private Mode mode = Mode.OFF;
+    private int maxLives;
+    private int crystalCap;
+    private Objective tabObjective;
+    private BukkitTask flushTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param lives The lives store to follow
+     */
+    public LivesHud(CloneSMP plugin, LivesStore lives) {
+        this.plugin = plugin;
+        this.lives = lives;
+    }
+
+    /**
+     * Match the display to new settings. Every online player is updated once if
+     * the mode or the maximums changed; otherwise nothing happens.
+     *
+     * @param settings The settings
+     */
+    public void apply(Settings settings) {
+        Mode newMode = settings.getHudMode();
+        int newCap = settings.areLifeCrystalsEnabled() ? settings.getMaxLifeCrystals() : 0;
+        if (newMode == mode && settings.getMaxLives() == maxLives && newCap == crystalCap) return;
+
+        if (newMode != mode) {
+            hideAll();
+            mode = newMode;
+        }
+        maxLives = settings.getMaxLives();
+        crystalCap = newCap;
+        if (mode == Mode.OFF) return;
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            markDirty(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Stop pending updates and remove the display from every player
+     */
+    public void shutdown() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        dirty.clear();
+        hideAll();
+        mode = Mode.OFF;
+    }
+
+    @Override
+    public void onLivesChanged(UUID uuid, int oldDeaths, int newDeaths) {
+        if (mode == Mode.OFF || Bukkit.getPlayer(uuid) == null) return;
+        markDirty(uuid);
+    }
+
+    /**
+     * Show the display to a joining player
+     *
+     * @param event The PlayerJoinEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        if (mode == Mode.OFF) return;
+        markDirty(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Forget a leaving player's display
+     *
+     * @param event The PlayerQuitEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        dirty.remove(player.getUniqueId());
+        sidebars.remove(player.getUniqueId());
+        if (tabObjective != null) {
+            tabObjective.getScoreboard().resetScores(player.getName());
+        }
+    }
+
+    private void markDirty(UUID uuid) {
+        dirty.add(uuid);
+        if (flushTask == null) {
+            flushTask = Bukkit.getScheduler().runTask(plugin, this::flush);
+        }
+    }
+
+    private void flush() {
+        flushTask = null;
+        for (UUID uuid : dirty) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null) {
+                show(player, Math.max(0, maxLives - lives.getDeaths(uuid)));
+            }
+        }
+        dirty.clear();
+    }
+
+    private void show(Player player, int livesLeft) {
+        switch (mode) {
+            case SIDEBAR:
+                Objective sidebar = sidebar(player);
+                sidebar.getScore(LIVES_ENTRY).setScore(livesLeft);
+                if (crystalCap > 0) {
+                    sidebar.getScore(CAP_ENTRY).setScore(crystalCap);
+                } else {
+                    sidebar.getScoreboard().resetScores(CAP_ENTRY);
+                }
+                break;
+            case TABLIST:
+                tabObjective().getScore(player.getName()).setScore(livesLeft);
+                player.setPlayerListFooter(text(livesLeft));
+                break;
+            case ACTIONBAR:
+                player.spigot().sendMessage(ChatMessageType.ACTION_BAR, TextComponent.fromLegacyText(text(livesLeft)));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String text(int livesLeft) {
+        String text = ChatColor.GOLD + "Lives: " + ChatColor.WHITE + livesLeft + "/" + maxLives;
+        if (crystalCap > 0) {
+            text += ChatColor.GRAY + " | " + ChatColor.LIGHT_PURPLE + "Crystal cap: " + ChatColor.WHITE + crystalCap;
+        }
+        return text;
+    }
+
+    private Objective sidebar(Player player) {
+        Scoreboard scoreboard = sidebars.get(player.getUniqueId());
+        if (scoreboard == null || player.getScoreboard() != scoreboard) {
+            scoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
+            Objective objective = scoreboard.registerNewObjective(OBJECTIVE, Criteria.DUMMY, ChatColor.GOLD + "CloneSMP");
+            objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+            player.setScoreboard(scoreboard);
+            sidebars.put(player.getUniqueId(), scoreboard);
+        }
+        return scoreboard.getObjective(OBJECTIVE);
+    }
+
+    private Objective tabObjective() {
+        if (tabObjective == null) {
+            Scoreboard main = Bukkit.getScoreboardManager().getMainScoreboard();
+            // Left behind if the server stopped without disabling the plugin
+            Objective existing = main.getObjective(OBJECTIVE);
+            tabObjective = existing != null ? existing : main.registerNewObjective(OBJECTIVE, Criteria.DUMMY, "Lives");
+            tabObjective.setDisplaySlot(DisplaySlot.PLAYER_LIST);
+        }
+        return tabObjective;
+    }
+
+    private void hideAll() {
+        if (!sidebars.isEmpty()) {
+            Scoreboard main = Bukkit.getScoreboardManager().getMainScoreboard();
+            for (Map.Entry<UUID, Scoreboard> entry : sidebars.entrySet()) {
+                Player player = Bukkit.getPlayer(entry.getKey());
+                if (player != null && player.getScoreboard() == entry.getValue()) {
+                    player.setScoreboard(main);
+                }
+            }
+            sidebars.clear();
+        }
+        if (tabObjective != null) {
+            tabObjective.unregister();
+            tabObjective = null;
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                player.setPlayerListFooter("");
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.Liyp.clonesmp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Append-only write-ahead journal of death count changes
+ *
+ * Every change is appended to the active segment as one fixed-size record (UUID,
+ * new death count, timestamp, CRC32), so a write costs the same no matter how many
+ * players are stored. Records hold the new absolute value, which makes replaying
+ * them idempotent. When {@link DataSaver} flushes, the active segment is sealed
+ * and a new one started; once the flushed batch is in storage the sealed segments
+ * are deleted. On startup any leftover segments are replayed on top of storage.
+ */
+public class LivesJournal implements LivesStore.ChangeListener {
+    static final int RECORD_SIZE = 32;
+    private static final String SUFFIX = ".journal";
+
+    private final File directory;
+    private final PluginLog log;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private FileChannel active;
+    private long activeGeneration;
+    private boolean activeEmpty = true;
+    private boolean failing = false;
+
+    /**
+     * Constructor
+     *
+     * @param directory The directory segments are kept in
+     * @param log Log for replay and write problems
+     */
+    public LivesJournal(File directory, PluginLog log) {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Replay leftover segments into the lives store and open a new active segment.
+     * Must be called once on the main thread before the journal is registered as a listener.
+     *
+     * @param store The store to apply records to
+     * @param changed Called for every replayed player so the change is persisted
+     * @return Number of records replayed
+     * @throws IOException If the directory or a segment cannot be read
+     */
+    public int replay(LivesStore store, Consumer<UUID> changed) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        long[] generations = listGenerations();
+        int replayed = 0;
+        for (long generation : generations) {
+            replayed += replaySegment(segmentFile(generation), store, changed);
+        }
+
+        activeGeneration = generations.length == 0 ? 1L : generations[generations.length - 1] + 1L;
+        active = openSegment(activeGeneration);
+        return replayed;
+    }
+
+    @Override
+    public void onLivesChanged(UUID uuid, int oldDeaths, int newDeaths) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        long time = System.currentTimeMillis();
+
+        record.clear();
+        record.putLong(msb).putLong(lsb).putInt(newDeaths).putLong(time);
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        try {
+            while (record.hasRemaining()) {
+                active.write(record);
+            }
+            activeEmpty = false;
+            failing = false;
+        } catch (IOException e) {
+            // The change is still flushed to storage, it just is not crash-safe until then
+            if (!failing) {
+                log.severe(Channel.STORAGE, "Could not append to lives journal", e);
+                failing = true;
+            }
+        }
+    }
+
+    /**
+     * Seal the active segment and start a new one. Must be called on the main thread.
+     *
+     * @return The newest sealed generation; everything up to it is covered by the current flush
+     * @throws IOException If the new segment cannot be created
+     */
+    public long rotate() throws IOException {
+        if (activeEmpty) {
+            return activeGeneration - 1L;
+        }
+
+        active.close();
+        long sealed = activeGeneration;
+        activeGeneration++;
+        active = openSegment(activeGeneration);
+        activeEmpty = true;
+        return sealed;
+    }
+
+    /**
+     * Delete sealed segments whose records are now in storage. Called from the writer thread.
+     *
+     * @param upToGeneration The newest generation that has been persisted
+     */
+    public void compact(long upToGeneration) {
+        long[] generations;
+        try {
+            generations = listGenerations();
+        } catch (IOException e) {
+            log.warning(Channel.STORAGE, "Could not list lives journal segments", e);
+            return;
+        }
+
+        for (long generation : generations) {
+            if (generation > upToGeneration) break;
+            File file = segmentFile(generation);
+            if (!file.delete() && file.exists()) {
+                log.warning(Channel.STORAGE, "Could not delete lives journal segment {}", file.getName());
+            }
+        }
+    }
+
+    /**
+     * Close the active segment. Leftover records are replayed on the next start.
+     *
+     * @throws IOException If closing fails
+     */
+    public void close() throws IOException {
+        if (active != null) {
+            active.force(true);
+            active.close();
+            active = null;
+        }
+    }
+
+    private int replaySegment(File file, LivesStore store, Consumer<UUID> changed) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        CRC32 check = new CRC32();
+        int count = 0;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // keep reading until the record is complete or the file ends
+                }
+                if (buffer.position() == 0) break;
+                if (buffer.hasRemaining()) {
+                    log.warning(Channel.STORAGE, "Ignoring torn record at the end of {}", file.getName());
+                    break;
+                }
+
+                check.reset();
+                check.update(buffer.array(), 0, RECORD_SIZE - 4);
+                buffer.flip();
+                long msb = buffer.getLong();
+                long lsb = buffer.getLong();
+                int deaths = buffer.getInt();
+                buffer.getLong(); // timestamp, only useful when inspecting a journal by hand
+                if (buffer.getInt() != (int) check.getValue()) {
+                    log.warning(Channel.STORAGE, "Ignoring corrupt record in {} at offset {}", file.getName(), (long) count * RECORD_SIZE);
+                    break;
+                }
+
+                store.restore(msb, lsb, deaths);
+                changed.accept(new UUID(msb, lsb));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private FileChannel openSegment(long generation) throws IOException {
+        return FileChannel.open(segmentFile(generation).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private File segmentFile(long generation) {
+        return new File(directory, String.format("%016d", generation) + SUFFIX);
+    }
+
+    private long[] listGenerations() throws IOException {
+        String[] names = directory.list((dir, name) -> name.endsWith(SUFFIX));
+        if (names == null) {
+            throw new IOException("Could not list " + directory);
+        }
+
+        long[] generations = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            try {
+                generations[count++] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                count--;
+            }
+        }
+        generations = Arrays.copyOf(generations, count);
+        Arrays.sort(generations);
+        return generations;
+    }
+}
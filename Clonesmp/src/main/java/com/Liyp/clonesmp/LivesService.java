@@ -0,0 +1,183 @@
+package com.Liyp.clonesmp;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * The {@link CloneSMPApi} registered with the ServicesManager
+ *
+ * Calls from other threads are handed to the main thread, where the lives store
+ * lives; records not in memory are loaded through {@link PlayerRecords} first.
+ * Also fires {@link LivesChangedEvent} for every change in the lives store.
+ */
+final class LivesService implements CloneSMPApi, LivesStore.ChangeListener {
+    private final CloneSMP plugin;
+    private final LivesStore lives;
+    private final PlayerRecords records;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param lives The lives store
+     * @param records The manager that loads records not in memory
+     */
+    LivesService(CloneSMP plugin, LivesStore lives, PlayerRecords records) {
+        this.plugin = plugin;
+        this.lives = lives;
+        this.records = records;
+    }
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public int getMaxLives() {
+        return plugin.getMaxLives();
+    }
+
+    @Override
+    public CompletableFuture<Integer> getLives(UUID uuid) {
+        Objects.requireNonNull(uuid, "uuid");
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        onMainThread(result, () -> records.readAll(new UUID[] { uuid }, (deaths, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(livesLeft(deaths[0], plugin.getMaxLives()));
+            }
+        }));
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Integer>> getLives(Collection<UUID> uuids) {
+        // Copied on the caller's thread, which owns the collection
+        UUID[] players = uuids.toArray(new UUID[0]);
+        for (UUID uuid : players) {
+            Objects.requireNonNull(uuid, "uuid");
+        }
+        CompletableFuture<Map<UUID, Integer>> result = new CompletableFuture<>();
+        onMainThread(result, () -> records.readAll(players, (deaths, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            int maxLives = plugin.getMaxLives();
+            Map<UUID, Integer> byPlayer = new HashMap<>(players.length * 4 / 3 + 1);
+            for (int i = 0; i < players.length; i++) {
+                byPlayer.put(players[i], livesLeft(deaths[i], maxLives));
+            }
+            result.complete(byPlayer);
+        }));
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSetLives(Plugin source, UUID uuid, int expected, int newLives) {
+        Objects.requireNonNull(source, "source");
+        Objects.requireNonNull(uuid, "uuid");
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        onMainThread(result, () -> records.load(uuid, error -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            int maxLives = plugin.getMaxLives();
+            if (newLives < 0 || newLives > maxLives) {
+                result.completeExceptionally(new IllegalArgumentException("Lives must be between 0 and " + maxLives + ": " + newLives));
+                return;
+            }
+            int current = livesLeft(lives.getDeaths(uuid), maxLives);
+            result.complete(current == expected && change(source, uuid, current, newLives, maxLives));
+        }));
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Integer> addLives(Plugin source, UUID uuid, int delta) {
+        Objects.requireNonNull(source, "source");
+        Objects.requireNonNull(uuid, "uuid");
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        onMainThread(result, () -> records.load(uuid, error -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            int maxLives = plugin.getMaxLives();
+            int current = livesLeft(lives.getDeaths(uuid), maxLives);
+            int target = (int) Math.max(0L, Math.min((long) current + delta, maxLives));
+            change(source, uuid, current, target, maxLives);
+            result.complete(livesLeft(lives.getDeaths(uuid), maxLives));
+        }));
+        return result;
+    }
+
+    @Override
+    public void onLivesChanged(UUID uuid, int oldDeaths, int newDeaths) {
+        // Nothing is built on a death when no plugin listens
+        if (LivesChangedEvent.getHandlerList().getRegisteredListeners().length == 0) return;
+
+        int maxLives = plugin.getMaxLives();
+        int oldLives = livesLeft(oldDeaths, maxLives);
+        int newLives = livesLeft(newDeaths, maxLives);
+        if (oldLives != newLives) {
+            Bukkit.getPluginManager().callEvent(new LivesChangedEvent(uuid, oldLives, newLives));
+        }
+    }
+
+    /**
+     * Apply a change unless a listener cancels it. Main thread only.
+     *
+     * @return True if the player now has newLives
+     */
+    private boolean change(Plugin source, UUID uuid, int current, int newLives, int maxLives) {
+        if (current == newLives) return true;
+
+        LivesChangeEvent event = new LivesChangeEvent(source, uuid, current, newLives);
+        Bukkit.getPluginManager().callEvent(event);
+        // A listener may have changed the lives itself
+        if (event.isCancelled() || livesLeft(lives.getDeaths(uuid), maxLives) != current) return false;
+
+        int deaths = maxLives - newLives;
+        lives.setDeaths(uuid, deaths);
+        plugin.getHistory().record(uuid, new DeathHistory.Event(DeathHistory.Type.PLUGIN, deaths, null, null, source.getName()));
+        return true;
+    }
+
+    /**
+     * Run a task on the main thread, failing the result if it cannot run or throws
+     */
+    private void onMainThread(CompletableFuture<?> result, Runnable task) {
+        Runnable guarded = () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+        if (Bukkit.isPrimaryThread()) {
+            guarded.run();
+            return;
+        }
+        try {
+            Bukkit.getScheduler().runTask(plugin, guarded);
+        } catch (RuntimeException e) {
+            // The plugin is disabled
+            result.completeExceptionally(new IllegalStateException("CloneSMP is not enabled", e));
+        }
+    }
+
+    private static int livesLeft(int deaths, int maxLives) {
+        return Math.max(0, maxLives - deaths);
+    }
+}
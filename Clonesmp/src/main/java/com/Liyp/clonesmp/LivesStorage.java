@@ -0,0 +1,92 @@
+package com.Liyp.clonesmp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * A place where death counts are persisted
+ *
+ * {@link #open()} and {@link #load(LivesStore)} are called on the main thread during
+ * startup. After that the storage is only used from the {@link DataSaver} writer thread.
+ * A lazy storage is not loaded at startup; its records are read one player at a time
+ * with {@link #read(UUID)} as {@link PlayerRecords} needs them.
+ */
+public interface LivesStorage {
+
+    /**
+     * Get the name of this storage type as used in config.yml
+     *
+     * @return The storage type name
+     */
+    String getType();
+
+    /**
+     * Get the file this storage keeps its data in
+     *
+     * @return The backing file
+     */
+    File getFile();
+
+    /**
+     * Open the storage, creating the backing file if needed
+     *
+     * @throws IOException If the storage cannot be opened
+     */
+    void open() throws IOException;
+
+    /**
+     * Read every stored record into a lives store
+     *
+     * @param store The store to fill
+     * @throws IOException If reading fails
+     */
+    void load(LivesStore store) throws IOException;
+
+    /**
+     * Check if records are read on demand instead of all at startup
+     *
+     * @return True if the storage supports {@link #read(UUID)} and {@link #scan}
+     */
+    default boolean isLazy() {
+        return false;
+    }
+
+    /**
+     * Read one player's record
+     *
+     * @param uuid The player's UUID
+     * @return The death count, or -1 if the player has no record
+     * @throws IOException If reading fails
+     */
+    default int read(UUID uuid) throws IOException {
+        throw new UnsupportedOperationException(getType() + " storage is loaded at startup");
+    }
+
+    /**
+     * Visit every stored record without keeping them in memory. Unlike the other
+     * methods this may be called from any thread while the writer is running.
+     *
+     * @param visitor The visitor
+     * @throws IOException If reading fails
+     */
+    default void scan(LivesStore.EntryVisitor visitor) throws IOException {
+        throw new UnsupportedOperationException(getType() + " storage is loaded at startup");
+    }
+
+    /**
+     * Write a batch of changed records
+     *
+     * @param uuids The changed players
+     * @param deaths The new death count of each player
+     * @throws IOException If writing fails
+     */
+    void write(UUID[] uuids, int[] deaths) throws IOException;
+
+    /**
+     * Release any resources held by the storage
+     *
+     * @throws IOException If closing fails
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,318 @@
+package com.Liyp.clonesmp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory death counts keyed by player UUID
+ *
+ * Open-addressing hash map (linear probing) over the two longs of the UUID with
+ * primitive int values, so lookups never build a String key or box an Integer.
+ * Keys are stored interleaved (most significant, least significant) in one array.
+ * Only the main server thread may use this class.
+ */
+public final class LivesStore {
+    private static final int MIN_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * Notified after a player's death count changes through this store
+     */
+    public interface ChangeListener {
+        void onLivesChanged(UUID uuid, int oldDeaths, int newDeaths);
+    }
+
+    /**
+     * Receives every entry during {@link LivesStore#forEach}
+     */
+    public interface EntryVisitor {
+        void visit(long mostSigBits, long leastSigBits, int deaths);
+    }
+
+    private final List<ChangeListener> listeners = new ArrayList<>();
+
+    // keys[2 * slot] = most significant bits, keys[2 * slot + 1] = least significant bits
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    // The all-zero UUID is the empty-slot marker, so it is stored on the side
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * Create an empty store
+     */
+    public LivesStore() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a store sized for an expected number of players
+     *
+     * @param expectedSize Expected number of players
+     */
+    public LivesStore(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Register a listener for death count changes
+     *
+     * @param listener The listener
+     */
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Get the death count of a player
+     *
+     * @param uuid The player's UUID
+     * @return The death count, or 0 if the player has no record
+     */
+    public int getDeaths(UUID uuid) {
+        return getDeaths(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Get the death count of a player by the two halves of their UUID
+     *
+     * @param msb Most significant bits of the UUID
+     * @param lsb Least significant bits of the UUID
+     * @return The death count, or 0 if the player has no record
+     */
+    public int getDeaths(long msb, long lsb) {
+        if (msb == 0L && lsb == 0L) {
+            return hasZeroKey ? zeroValue : 0;
+        }
+        int slot = findSlot(msb, lsb);
+        return slot >= 0 ? values[slot] : 0;
+    }
+
+    /**
+     * Check if a player has a record
+     *
+     * @param uuid The player's UUID
+     * @return True if a record exists
+     */
+    public boolean contains(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0L && lsb == 0L) return hasZeroKey;
+        return findSlot(msb, lsb) >= 0;
+    }
+
+    /**
+     * Set the death count of a player and notify listeners
+     *
+     * @param uuid The player's UUID
+     * @param deaths The new death count
+     */
+    public void setDeaths(UUID uuid, int deaths) {
+        int old = put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), deaths);
+        for (ChangeListener listener : listeners) {
+            listener.onLivesChanged(uuid, old, deaths);
+        }
+    }
+
+    /**
+     * Add to the death count of a player and notify listeners
+     *
+     * @param uuid The player's UUID
+     * @param delta Amount to add (may be negative)
+     * @return The new death count
+     */
+    public int addDeaths(UUID uuid, int delta) {
+        int deaths = getDeaths(uuid) + delta;
+        setDeaths(uuid, deaths);
+        return deaths;
+    }
+
+    /**
+     * Put a record without notifying listeners. Used when loading from storage.
+     *
+     * @param msb Most significant bits of the UUID
+     * @param lsb Least significant bits of the UUID
+     * @param deaths The death count
+     */
+    void restore(long msb, long lsb, int deaths) {
+        put(msb, lsb, deaths);
+    }
+
+    /**
+     * Drop a player's record from memory without notifying listeners. Used to evict
+     * records that are already in storage; it is not a change to the death count.
+     *
+     * @param uuid The player's UUID
+     * @return True if the player had a record
+     */
+    boolean remove(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (msb == 0L && lsb == 0L) {
+            if (!hasZeroKey) return false;
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+            return true;
+        }
+
+        int slot = findSlot(msb, lsb);
+        if (slot < 0) return false;
+
+        // Backward-shift deletion: move later entries of the probe run into the gap
+        // so lookups never stop early at it, without leaving tombstones behind
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next << 1] != 0L || keys[(next << 1) + 1] != 0L) {
+            int home = hash(keys[next << 1], keys[(next << 1) + 1]) & mask;
+            // The entry may fill the gap only if its home slot is not between the gap and it
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap << 1] = keys[next << 1];
+                keys[(gap << 1) + 1] = keys[(next << 1) + 1];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap << 1] = 0L;
+        keys[(gap << 1) + 1] = 0L;
+        values[gap] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Get the number of players with a record
+     *
+     * @return Record count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit every record in table order
+     *
+     * @param visitor The visitor
+     */
+    public void forEach(EntryVisitor visitor) {
+        if (hasZeroKey) {
+            visitor.visit(0L, 0L, zeroValue);
+        }
+        for (int slot = 0; slot <= mask; slot++) {
+            long msb = keys[slot << 1];
+            long lsb = keys[(slot << 1) + 1];
+            if (msb != 0L || lsb != 0L) {
+                visitor.visit(msb, lsb, values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Remove every record without notifying listeners
+     */
+    void clear() {
+        allocate(MIN_CAPACITY);
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    private int put(long msb, long lsb, int deaths) {
+        if (msb == 0L && lsb == 0L) {
+            int old = hasZeroKey ? zeroValue : 0;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = deaths;
+            return old;
+        }
+
+        int slot = hash(msb, lsb) & mask;
+        while (true) {
+            long m = keys[slot << 1];
+            long l = keys[(slot << 1) + 1];
+            if (m == 0L && l == 0L) {
+                keys[slot << 1] = msb;
+                keys[(slot << 1) + 1] = lsb;
+                values[slot] = deaths;
+                if (++size > resizeAt) {
+                    rehash(values.length << 1);
+                }
+                return 0;
+            }
+            if (m == msb && l == lsb) {
+                int old = values[slot];
+                values[slot] = deaths;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int findSlot(long msb, long lsb) {
+        int slot = hash(msb, lsb) & mask;
+        while (true) {
+            long m = keys[slot << 1];
+            long l = keys[(slot << 1) + 1];
+            if (m == msb && l == lsb) return slot;
+            if (m == 0L && l == 0L) return -1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int zeroCount = hasZeroKey ? 1 : 0;
+        allocate(newCapacity);
+        size = zeroCount;
+
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            long msb = oldKeys[slot << 1];
+            long lsb = oldKeys[(slot << 1) + 1];
+            if (msb == 0L && lsb == 0L) continue;
+
+            int target = hash(msb, lsb) & mask;
+            while (keys[target << 1] != 0L || keys[(target << 1) + 1] != 0L) {
+                target = (target + 1) & mask;
+            }
+            keys[target << 1] = msb;
+            keys[(target << 1) + 1] = lsb;
+            values[target] = oldValues[slot];
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity << 1];
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR);
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int hash(long msb, long lsb) {
+        // Version 4 UUIDs are already random, but mix anyway so sequential or
+        // hand-made UUIDs do not cluster
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,356 @@
+package com.Liyp.clonesmp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Stores death counts in a memory-mapped file of fixed-size records (lives.dat)
+ *
+ * The file is a header followed by an open-addressing hash table whose slots are
+ * the records themselves, so the index and the data share one mapping. Startup
+ * only maps the file and verifies the header; the storage is lazy, so records are
+ * looked up in the mapped table as {@link PlayerRecords} needs them and nothing is
+ * copied to the heap. Writes are in-place stores into mapped memory.
+ *
+ * When the table is half full it grows in place: the old file is first copied to
+ * lives.dat.grow, then the file is extended, remapped and rehashed from that copy.
+ * If the server stops while rehashing, the copy is put back on the next start.
+ * Methods are synchronized, so a {@link #scan} sees the table before or after a write.
+ *
+ * Header (64 bytes): magic, version, capacity, size, CRC32 of the preceding fields.
+ * Record (32 bytes): UUID most/least significant bits, deaths, flags, last modified.
+ */
+public class MappedLivesStorage implements LivesStorage {
+    private static final long MAGIC = 0x43534D504C495645L; // "CSMPLIVE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 32;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 25; // keeps the mapping below 2 GiB
+    private static final int COPY_RECORDS = 2048;
+
+    private static final int OFF_CAPACITY = 12;
+    private static final int OFF_SIZE = 16;
+    private static final int OFF_CRC = 20;
+
+    private static final int REC_DEATHS = 16;
+    private static final int REC_FLAGS = 20;
+    private static final int REC_MODIFIED = 24;
+    private static final int FLAG_OCCUPIED = 1;
+
+    private final File file;
+    private final Path backup;
+    private final PluginLog log;
+    private MappedByteBuffer map;
+    private int capacity;
+    private int mask;
+    private int size;
+    private boolean broken;
+
+    /**
+     * Constructor
+     *
+     * @param file The lives.dat file
+     * @param log Log for repaired headers and interrupted grows
+     */
+    public MappedLivesStorage(File file, PluginLog log) {
+        this.file = file;
+        this.backup = file.toPath().resolveSibling(file.getName() + ".grow");
+        this.log = log;
+    }
+
+    @Override
+    public String getType() {
+        return "mmap";
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        Files.deleteIfExists(backup.resolveSibling(backup.getFileName() + ".tmp"));
+        if (Files.exists(backup)) {
+            recoverGrow();
+        }
+        if (!file.exists() || file.length() == 0) {
+            createFile(file.toPath(), MIN_CAPACITY);
+        }
+
+        map(file.toPath());
+        if (map.getLong(0) != MAGIC) {
+            throw new IOException(file.getName() + " is not a CloneSMP lives file");
+        }
+        if (map.getInt(8) != VERSION) {
+            throw new IOException(file.getName() + " has unsupported version " + map.getInt(8));
+        }
+        if (map.getInt(OFF_CRC) != headerChecksum(map)) {
+            throw new IOException(file.getName() + " has a corrupt header");
+        }
+
+        capacity = map.getInt(OFF_CAPACITY);
+        if (Integer.bitCount(capacity) != 1 || file.length() != HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+            throw new IOException(file.getName() + " is truncated or has an invalid capacity");
+        }
+        mask = capacity - 1;
+        size = map.getInt(OFF_SIZE);
+    }
+
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public void load(LivesStore store) {
+        scan(store::restore);
+    }
+
+    @Override
+    public synchronized int read(UUID uuid) {
+        int offset = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return offset < 0 ? -1 : map.getInt(offset + REC_DEATHS);
+    }
+
+    @Override
+    public synchronized void scan(LivesStore.EntryVisitor visitor) {
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = recordOffset(slot);
+            if ((map.getInt(offset + REC_FLAGS) & FLAG_OCCUPIED) == 0) continue;
+
+            visitor.visit(map.getLong(offset), map.getLong(offset + 8), map.getInt(offset + REC_DEATHS));
+            count++;
+        }
+
+        if (count != size) {
+            // A crash between writing records and the header; the records are authoritative
+            log.warning(Channel.STORAGE, "{} header said {} records but found {}, repairing", file.getName(), size, count);
+            size = count;
+            writeHeader();
+        }
+    }
+
+    @Override
+    public synchronized void write(UUID[] uuids, int[] deaths) throws IOException {
+        if (broken) {
+            throw new IOException(file.getName() + " could not be grown; restart the server to restore it");
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < uuids.length; i++) {
+            if ((size + 1) * 2 > capacity) {
+                grow();
+            }
+            put(uuids[i].getMostSignificantBits(), uuids[i].getLeastSignificantBits(), deaths[i], now);
+        }
+        writeHeader();
+        map.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (map != null) {
+            map.force();
+            map = null;
+        }
+    }
+
+    private int find(long msb, long lsb) {
+        int slot = LivesStore.hash(msb, lsb) & mask;
+        while (true) {
+            int offset = recordOffset(slot);
+            if ((map.getInt(offset + REC_FLAGS) & FLAG_OCCUPIED) == 0) return -1;
+            if (map.getLong(offset) == msb && map.getLong(offset + 8) == lsb) return offset;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void put(long msb, long lsb, int deaths, long modified) {
+        int slot = LivesStore.hash(msb, lsb) & mask;
+        while (true) {
+            int offset = recordOffset(slot);
+            if ((map.getInt(offset + REC_FLAGS) & FLAG_OCCUPIED) == 0) {
+                map.putLong(offset, msb);
+                map.putLong(offset + 8, lsb);
+                map.putInt(offset + REC_DEATHS, deaths);
+                map.putLong(offset + REC_MODIFIED, modified);
+                map.putInt(offset + REC_FLAGS, FLAG_OCCUPIED);
+                size++;
+                return;
+            }
+            if (map.getLong(offset) == msb && map.getLong(offset + 8) == lsb) {
+                map.putInt(offset + REC_DEATHS, deaths);
+                map.putLong(offset + REC_MODIFIED, modified);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Double the table in place. The file is never replaced while mapped, so this
+     * also works where mapped files cannot be renamed over (Windows).
+     */
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IOException(file.getName() + " is full (" + size + " records)");
+        }
+
+        // Copy the table aside first; if this fails nothing has changed yet
+        int oldCapacity = capacity;
+        long oldLength = HEADER_SIZE + (long) oldCapacity * RECORD_SIZE;
+        Path tmp = backup.resolveSibling(backup.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                                StandardOpenOption.WRITE)) {
+            ByteBuffer table = map.duplicate();
+            table.limit((int) oldLength);
+            table.position(0);
+            while (table.hasRemaining()) {
+                out.write(table);
+            }
+            out.force(true);
+        }
+        try {
+            Files.move(tmp, backup, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, backup, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try {
+            // Extend and remap; the old mapping is dropped and unmapped by the garbage collector
+            int newCapacity = oldCapacity << 1;
+            long newLength = HEADER_SIZE + (long) newCapacity * RECORD_SIZE;
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(1), newLength - 1);
+                map = channel.map(FileChannel.MapMode.READ_WRITE, 0, newLength);
+            }
+            capacity = newCapacity;
+            mask = newCapacity - 1;
+            size = 0;
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                map.putInt(recordOffset(slot) + REC_FLAGS, 0);
+            }
+
+            // Rehash from the copy, a few records at a time
+            try (FileChannel in = FileChannel.open(backup, StandardOpenOption.READ)) {
+                ByteBuffer chunk = ByteBuffer.allocate(COPY_RECORDS * RECORD_SIZE);
+                long position = HEADER_SIZE;
+                while (position < oldLength) {
+                    chunk.clear();
+                    chunk.limit((int) Math.min(chunk.capacity(), oldLength - position));
+                    while (chunk.hasRemaining()) {
+                        if (in.read(chunk, position + chunk.position()) < 0) {
+                            throw new IOException(backup.getFileName() + " is truncated");
+                        }
+                    }
+                    for (int offset = 0; offset < chunk.limit(); offset += RECORD_SIZE) {
+                        if ((chunk.getInt(offset + REC_FLAGS) & FLAG_OCCUPIED) == 0) continue;
+                        put(chunk.getLong(offset), chunk.getLong(offset + 8),
+                            chunk.getInt(offset + REC_DEATHS), chunk.getLong(offset + REC_MODIFIED));
+                    }
+                    position += chunk.limit();
+                }
+            }
+
+            // Records reach the disk before the header that makes them valid
+            map.force();
+            writeHeader();
+            map.force();
+        } catch (IOException | RuntimeException e) {
+            // The table is half rehashed; refuse writes until a restart restores the copy
+            broken = true;
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+
+        try {
+            Files.delete(backup);
+        } catch (IOException e) {
+            // Recognised as a finished grow on the next start
+            log.warning(Channel.STORAGE, "Could not delete {}", backup.getFileName().toString(), e);
+        }
+    }
+
+    /**
+     * Finish or undo a grow the server stopped during. A grow is finished once the
+     * header is valid for the larger size; otherwise the copied table is put back.
+     */
+    private void recoverGrow() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        ByteBuffer copyHeader = ByteBuffer.allocate(HEADER_SIZE);
+        readHeader(file.toPath(), header);
+        readHeader(backup, copyHeader);
+
+        int grownCapacity = header.getInt(OFF_CAPACITY);
+        boolean finished = header.getLong(0) == MAGIC && header.getInt(OFF_CRC) == headerChecksum(header)
+                           && grownCapacity > copyHeader.getInt(OFF_CAPACITY)
+                           && file.length() == HEADER_SIZE + (long) grownCapacity * RECORD_SIZE;
+        if (!finished) {
+            log.warning(Channel.STORAGE, "{} was being grown when the server stopped, restoring it from {}",
+                        file.getName(), backup.getFileName().toString());
+            Files.copy(backup, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.delete(backup);
+    }
+
+    private static void readHeader(Path path, ByteBuffer header) throws IOException {
+        if (!Files.exists(path)) return;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int read = 0;
+            while (header.hasRemaining() && read >= 0) {
+                read = channel.read(header);
+            }
+        }
+    }
+
+    private void map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+    }
+
+    private void createFile(Path path, int newCapacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long length = HEADER_SIZE + (long) newCapacity * RECORD_SIZE;
+            MappedByteBuffer fresh = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            fresh.putLong(0, MAGIC);
+            fresh.putInt(8, VERSION);
+            fresh.putInt(OFF_CAPACITY, newCapacity);
+            fresh.putInt(OFF_SIZE, 0);
+            fresh.putInt(OFF_CRC, headerChecksum(fresh));
+            fresh.force();
+        }
+    }
+
+    private void writeHeader() {
+        map.putInt(OFF_CAPACITY, capacity);
+        map.putInt(OFF_SIZE, size);
+        map.putInt(OFF_CRC, headerChecksum(map));
+    }
+
+    private static int headerChecksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < OFF_CRC; i++) {
+            crc.update(buffer.get(i));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,663 @@
+package com.Liyp.clonesmp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Skull;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Index of placed Mega Heads, so breaking an ordinary head never reads the block's state
+ *
+ * Each chunk holding Mega Heads lists them in its own PersistentDataContainer
+ * (three longs per head: packed block position, owner UUID most/least significant
+ * bits), which is read when the chunk loads. A chunk that has the list is
+ * "indexed": a head broken there is looked up by position in memory and nothing
+ * else. A chunk without it (never touched by this version) is scanned for Mega
+ * Heads placed by older versions the first time a head is placed or broken in it.
+ *
+ * Every known Mega Head, in loaded chunks or not, is also kept in megaheads.txt
+ * (one line per head: world, x, y, z, owner UUID) for /clonesmp megaheads. The
+ * chunk's own list wins whenever the two disagree. Only the main server thread
+ * may use this class.
+ */
+public class MegaHeadIndex implements Listener {
+    private static final long SAVE_INTERVAL_TICKS = 20L * 60;
+
+    /**
+     * A placed Mega Head
+     */
+    public static final class Placement {
+        private final String world;
+        private final long position;
+        private final UUID owner;
+
+        Placement(String world, long position, UUID owner) {
+            this.world = world;
+            this.position = position;
+            this.owner = owner;
+        }
+
+        public String getWorld() {
+            return world;
+        }
+
+        public int getX() {
+            return unpackX(position);
+        }
+
+        public int getY() {
+            return unpackY(position);
+        }
+
+        public int getZ() {
+            return unpackZ(position);
+        }
+
+        public UUID getOwner() {
+            return owner;
+        }
+    }
+
+    /**
+     * The Mega Heads of one world, and which of its loaded chunks are indexed
+     *
+     * Heads are also listed per chunk, so loading, placing or breaking in a chunk
+     * only touches that chunk's heads. Only change heads through put and remove.
+     */
+    private static final class WorldHeads {
+        private static final long[] NONE = new long[0];
+
+        final PositionTable heads = new PositionTable();
+        final PositionTable indexedChunks = new PositionTable();
+        private final Map<Long, long[]> byChunk = new HashMap<>();
+
+        /**
+         * @return True if the head was added or its owner changed
+         */
+        boolean put(long position, UUID owner) {
+            if (heads.find(position) >= 0) {
+                return heads.put(position, owner);
+            }
+            heads.put(position, owner);
+            long[] positions = byChunk.getOrDefault(chunkOf(position), NONE);
+            long[] added = Arrays.copyOf(positions, positions.length + 1);
+            added[positions.length] = position;
+            byChunk.put(chunkOf(position), added);
+            return true;
+        }
+
+        void remove(long position) {
+            if (heads.find(position) < 0) return;
+            heads.remove(position);
+
+            long chunk = chunkOf(position);
+            long[] positions = byChunk.get(chunk);
+            if (positions.length == 1) {
+                byChunk.remove(chunk);
+                return;
+            }
+            long[] kept = new long[positions.length - 1];
+            int count = 0;
+            for (long other : positions) {
+                if (other != position) kept[count++] = other;
+            }
+            byChunk.put(chunk, kept);
+        }
+
+        /**
+         * @return Positions of the heads in a chunk; never modify the array
+         */
+        long[] inChunk(long chunk) {
+            return byChunk.getOrDefault(chunk, NONE);
+        }
+
+        /**
+         * @return True if the chunk had any heads
+         */
+        boolean removeChunk(long chunk) {
+            long[] positions = byChunk.remove(chunk);
+            if (positions == null) return false;
+            for (long position : positions) {
+                heads.remove(position);
+            }
+            return true;
+        }
+    }
+
+    private final CloneSMP plugin;
+    private final File file;
+    private final NamespacedKey chunkKey;
+    private final Map<String, WorldHeads> worlds = new HashMap<>();
+    private final Object saveLock = new Object();
+    private volatile boolean dirty = false;
+    private long generation = 0;
+    private long savedGeneration = 0;
+    private BukkitTask saveTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param file The megaheads.txt file
+     */
+    public MegaHeadIndex(CloneSMP plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+        this.chunkKey = new NamespacedKey(plugin, "mega_heads");
+    }
+
+    /**
+     * Load the list of placed Mega Heads, index the chunks that are already loaded
+     * (after a reload) and start the periodic save task
+     */
+    public void start() {
+        if (file.exists()) {
+            load();
+        }
+        for (World world : Bukkit.getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                readChunk(chunk);
+            }
+        }
+        saveTask = Bukkit.getScheduler().runTaskTimer(plugin, this::saveLater, SAVE_INTERVAL_TICKS, SAVE_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stop the save task and write the list if it changed
+     */
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        if (dirty) {
+            write(snapshot(), ++generation);
+        }
+    }
+
+    /**
+     * Get the owner of the Mega Head at a block
+     *
+     * @param block A player head or player wall head
+     * @return The owner's UUID, or null if the block is not a Mega Head
+     */
+    public UUID getOwner(Block block) {
+        WorldHeads world = worlds.get(block.getWorld().getName());
+        long chunk = chunkKey(block.getX() >> 4, block.getZ() >> 4);
+        if (world == null || world.indexedChunks.find(chunk) < 0) {
+            // Heads in this chunk may predate the index
+            indexChunk(block.getChunk());
+            world = worlds.get(block.getWorld().getName());
+            if (world == null) return null;
+        }
+
+        int slot = world.heads.find(pack(block.getX(), block.getY(), block.getZ()));
+        return slot < 0 ? null : world.heads.getOwner(slot);
+    }
+
+    /**
+     * List placed Mega Heads
+     *
+     * @param owner Only list this player's Mega Heads, or null for all of them
+     * @return The Mega Heads, by world then position
+     */
+    public List<Placement> list(UUID owner) {
+        List<Placement> placements = new ArrayList<>();
+        for (Map.Entry<String, WorldHeads> entry : worlds.entrySet()) {
+            PositionTable heads = entry.getValue().heads;
+            for (int slot = heads.next(-1); slot >= 0; slot = heads.next(slot)) {
+                UUID headOwner = heads.getOwner(slot);
+                if (owner == null || owner.equals(headOwner)) {
+                    placements.add(new Placement(entry.getKey(), heads.getKey(slot), headOwner));
+                }
+            }
+        }
+        placements.sort((a, b) -> a.world.equals(b.world) ? Long.compare(a.position, b.position) : a.world.compareTo(b.world));
+        return placements;
+    }
+
+    /**
+     * Get the number of placed Mega Heads
+     *
+     * @return Mega Head count
+     */
+    public int size() {
+        int size = 0;
+        for (WorldHeads world : worlds.values()) {
+            size += world.heads.size();
+        }
+        return size;
+    }
+
+    /**
+     * Read the Mega Heads listed by a chunk as it loads
+     *
+     * @param event The ChunkLoadEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        if (event.isNewChunk()) {
+            // Nothing can have been placed yet; indexing it now saves a scan later
+            worlds(event.getWorld()).indexedChunks.put(chunkKey(event.getChunk().getX(), event.getChunk().getZ()), null);
+            return;
+        }
+        readChunk(event.getChunk());
+    }
+
+    /**
+     * Forget that an unloading chunk is indexed; its Mega Heads stay listed
+     *
+     * @param event The ChunkUnloadEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        WorldHeads world = worlds.get(event.getWorld().getName());
+        if (world != null) {
+            world.indexedChunks.remove(chunkKey(event.getChunk().getX(), event.getChunk().getZ()));
+        }
+    }
+
+    /**
+     * Add a placed Mega Head, or drop a stale entry where an ordinary head is placed
+     *
+     * @param event The BlockPlaceEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlace(BlockPlaceEvent event) {
+        Block block = event.getBlockPlaced();
+        if (!isHead(block.getType())) return;
+
+        ItemStack hand = event.getItemInHand();
+        ItemMeta meta = hand.getType() == Material.PLAYER_HEAD ? hand.getItemMeta() : null;
+        String owner = meta == null ? null : meta.getPersistentDataContainer().get(plugin.getMegaHeadKey(), PersistentDataType.STRING);
+        try {
+            set(block, owner != null ? UUID.fromString(owner) : null);
+        } catch (IllegalArgumentException e) {
+            set(block, null);
+        }
+    }
+
+    /**
+     * Drop a broken Mega Head
+     *
+     * @param event The BlockBreakEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBreak(BlockBreakEvent event) {
+        if (isHead(event.getBlock().getType())) {
+            set(event.getBlock(), null);
+        }
+    }
+
+    /**
+     * Drop Mega Heads destroyed by an exploding block
+     *
+     * @param event The BlockExplodeEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        removeHeads(event.blockList());
+    }
+
+    /**
+     * Drop Mega Heads destroyed by an exploding entity
+     *
+     * @param event The EntityExplodeEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        removeHeads(event.blockList());
+    }
+
+    private void removeHeads(List<Block> blocks) {
+        for (Block block : blocks) {
+            if (isHead(block.getType())) {
+                set(block, null);
+            }
+        }
+    }
+
+    /**
+     * Record or remove the Mega Head at a block, in memory and in its chunk
+     *
+     * @param block The block
+     * @param owner The owner, or null if there is no Mega Head there any more
+     */
+    private void set(Block block, UUID owner) {
+        WorldHeads world = worlds.get(block.getWorld().getName());
+        long position = pack(block.getX(), block.getY(), block.getZ());
+        if (owner == null && (world == null || world.heads.find(position) < 0)) return;
+
+        Chunk chunk = block.getChunk();
+        indexChunk(chunk);
+        world = worlds(block.getWorld());
+        if (owner != null) {
+            world.put(position, owner);
+        } else {
+            world.remove(position);
+        }
+        writeChunk(chunk, world);
+        markDirty();
+    }
+
+    /**
+     * Make sure a chunk is indexed, scanning it for Mega Heads placed by older versions if it is not
+     *
+     * @param chunk The chunk
+     */
+    private void indexChunk(Chunk chunk) {
+        WorldHeads world = worlds.get(chunk.getWorld().getName());
+        if (world != null && world.indexedChunks.find(chunkKey(chunk.getX(), chunk.getZ())) >= 0) return;
+        if (readChunk(chunk)) return;
+
+        world = worlds(chunk.getWorld());
+        int found = 0;
+        for (BlockState state : chunk.getTileEntities(block -> isHead(block.getType()), false)) {
+            if (!(state instanceof Skull)) continue;
+            String owner = ((Skull) state).getPersistentDataContainer().get(plugin.getMegaHeadKey(), PersistentDataType.STRING);
+            if (owner == null) continue;
+            try {
+                world.put(pack(state.getX(), state.getY(), state.getZ()), UUID.fromString(owner));
+                found++;
+            } catch (IllegalArgumentException e) {
+                // Not a head this plugin placed
+            }
+        }
+        world.indexedChunks.put(chunkKey(chunk.getX(), chunk.getZ()), null);
+        writeChunk(chunk, world);
+        if (found > 0) {
+            markDirty();
+            plugin.getLog().info(Channel.CORE, "Indexed {} Mega Heads placed by an older version in {}",
+                                 found, chunk.getWorld().getName());
+        }
+    }
+
+    /**
+     * Take a chunk's own list of Mega Heads as the truth for that chunk
+     *
+     * @param chunk A loaded chunk
+     * @return True if the chunk is indexed
+     */
+    private boolean readChunk(Chunk chunk) {
+        long[] entries = chunk.getPersistentDataContainer().get(chunkKey, PersistentDataType.LONG_ARRAY);
+        WorldHeads world = worlds.get(chunk.getWorld().getName());
+        if (entries == null) {
+            // Not indexed yet; listed heads here are kept until the chunk is scanned
+            return false;
+        }
+
+        if (world == null) {
+            world = worlds(chunk.getWorld());
+        }
+        boolean changed = world.removeChunk(chunkKey(chunk.getX(), chunk.getZ()));
+        boolean stale = false;
+        for (int i = 0; i + 2 < entries.length; i += 3) {
+            long position = entries[i];
+            // A head removed without an event (e.g. pushed by a piston) is no longer there
+            if (!isHead(chunk.getBlock(unpackX(position) & 15, unpackY(position), unpackZ(position) & 15).getType())) {
+                stale = true;
+                continue;
+            }
+            changed |= world.put(position, new UUID(entries[i + 1], entries[i + 2]));
+        }
+        world.indexedChunks.put(chunkKey(chunk.getX(), chunk.getZ()), null);
+        if (stale) {
+            writeChunk(chunk, world);
+        }
+        if (changed || stale) {
+            markDirty();
+        }
+        return true;
+    }
+
+    /**
+     * Write the Mega Heads of a chunk to its PersistentDataContainer
+     */
+    private void writeChunk(Chunk chunk, WorldHeads world) {
+        long[] positions = world.inChunk(chunkKey(chunk.getX(), chunk.getZ()));
+        long[] entries = new long[positions.length * 3];
+        int count = 0;
+        for (long position : positions) {
+            UUID owner = world.heads.getOwner(world.heads.find(position));
+            entries[count++] = position;
+            entries[count++] = owner.getMostSignificantBits();
+            entries[count++] = owner.getLeastSignificantBits();
+        }
+        chunk.getPersistentDataContainer().set(chunkKey, PersistentDataType.LONG_ARRAY, entries);
+    }
+
+    private WorldHeads worlds(World world) {
+        return worlds.computeIfAbsent(world.getName(), name -> new WorldHeads());
+    }
+
+    private void markDirty() {
+        dirty = true;
+        generation++;
+    }
+
+    private void load() {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 5) continue;
+                try {
+                    long position = pack(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+                    worlds.computeIfAbsent(parts[0], name -> new WorldHeads()).put(position, UUID.fromString(parts[4]));
+                } catch (IllegalArgumentException e) {
+                    // Skip damaged lines; the chunk's own list restores them when it loads
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLog().severe(Channel.CORE, "Could not read {}", file.getName(), e);
+        }
+    }
+
+    /**
+     * Write the list in the background if it changed
+     */
+    private void saveLater() {
+        if (!dirty) return;
+        dirty = false;
+        byte[] bytes = snapshot();
+        long saving = generation;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> write(bytes, saving));
+    }
+
+    private byte[] snapshot() {
+        StringBuilder out = new StringBuilder(size() * 64);
+        for (Placement placement : list(null)) {
+            out.append(placement.world).append(' ')
+               .append(placement.getX()).append(' ')
+               .append(placement.getY()).append(' ')
+               .append(placement.getZ()).append(' ')
+               .append(placement.owner).append('\n');
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void write(byte[] bytes, long saving) {
+        synchronized (saveLock) {
+            // An older snapshot finishing late must not replace a newer one
+            if (saving < savedGeneration) return;
+            try {
+                DataSaver.writeAtomically(file.toPath(), bytes);
+                savedGeneration = saving;
+            } catch (IOException e) {
+                dirty = true;
+                plugin.getLog().severe(Channel.CORE, "Could not save {}", file.getName(), e);
+            }
+        }
+    }
+
+    private static boolean isHead(Material type) {
+        return type == Material.PLAYER_HEAD || type == Material.PLAYER_WALL_HEAD;
+    }
+
+    private static long chunkOf(long position) {
+        return chunkKey(unpackX(position) >> 4, unpackZ(position) >> 4);
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xFFFFFFFFL) | (chunkZ & 0xFFFFFFFFL) << 32;
+    }
+
+    // Block positions are packed as in the game: x and z in 26 bits, y in 12
+    static long pack(int x, int y, int z) {
+        return (x & 0x3FFFFFFL) << 38 | (z & 0x3FFFFFFL) << 12 | (y & 0xFFFL);
+    }
+
+    static int unpackX(long position) {
+        return (int) (position >> 38);
+    }
+
+    static int unpackY(long position) {
+        return (int) (position << 52 >> 52);
+    }
+
+    static int unpackZ(long position) {
+        return (int) (position << 26 >> 38);
+    }
+
+    /**
+     * Open-addressing hash table (linear probing) from a long key to an optional
+     * UUID, used both for block positions and as a set of chunk keys
+     */
+    private static final class PositionTable {
+        private static final int MIN_CAPACITY = 16;
+
+        private long[] keys = new long[MIN_CAPACITY];
+        private UUID[] owners = new UUID[MIN_CAPACITY];
+        private boolean[] used = new boolean[MIN_CAPACITY];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int find(long key) {
+            if (size == 0) return -1;
+            int mask = keys.length - 1;
+            int slot = LivesStore.hash(key, 0L) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * @return True if the key was added or its owner changed
+         */
+        boolean put(long key, UUID owner) {
+            int slot = find(key);
+            if (slot >= 0) {
+                boolean changed = owner != null && !owner.equals(owners[slot]);
+                owners[slot] = owner;
+                return changed;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            insert(key, owner);
+            size++;
+            return true;
+        }
+
+        void remove(long key) {
+            int slot = find(key);
+            if (slot < 0) return;
+
+            // Backward-shift deletion, as in LivesStore
+            int mask = keys.length - 1;
+            int gap = slot;
+            int next = (gap + 1) & mask;
+            while (used[next]) {
+                int home = LivesStore.hash(keys[next], 0L) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    owners[gap] = owners[next];
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[gap] = false;
+            owners[gap] = null;
+            size--;
+        }
+
+        long getKey(int slot) {
+            return keys[slot];
+        }
+
+        UUID getOwner(int slot) {
+            return owners[slot];
+        }
+
+        /**
+         * @return The next used slot after the given one, or -1
+         */
+        int next(int slot) {
+            for (int i = slot + 1; i < used.length; i++) {
+                if (used[i]) return i;
+            }
+            return -1;
+        }
+
+        private void insert(long key, UUID owner) {
+            int mask = keys.length - 1;
+            int slot = LivesStore.hash(key, 0L) & mask;
+            while (used[slot]) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            owners[slot] = owner;
+            used[slot] = true;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            UUID[] oldOwners = owners;
+            boolean[] oldUsed = used;
+            keys = new long[capacity];
+            owners = new UUID[capacity];
+            used = new boolean[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    insert(oldKeys[i], oldOwners[i]);
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.Liyp.clonesmp;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import org.bukkit.BanList;
@@ -10,6 +12,7 @@ import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Sound;
+import org.bukkit.ban.ProfileBanList;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Skull;
@@ -21,6 +24,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
 import org.bukkit.inventory.CraftingInventory;
 import org.bukkit.inventory.ItemStack;
@@ -32,7 +36,32 @@ import org.bukkit.persistence.PersistentDataType;
  * Handles all events related to the Mega Head mechanic
  */
 public class MegaHeadListener implements Listener {
+    private static final CraftOutcome NOT_A_MEGA_HEAD = new CraftOutcome(null, null);
+    private static final Set<Material> PICKAXES = EnumSet.noneOf(Material.class);
+    
+    static {
+        for (Material material : Material.values()) {
+            if (material.name().endsWith("_PICKAXE")) {
+                PICKAXES.add(material);
+            }
+        }
+    }
+    
+    /**
+     * Result of evaluating a crafting grid for the Mega Head pattern
+     */
+    private static final class CraftOutcome {
+        final UUID owner;
+        final ItemStack megaHead;
+        
+        CraftOutcome(UUID owner, ItemStack megaHead) {
+            this.owner = owner;
+            this.megaHead = megaHead;
+        }
+    }
+    
     private final CloneSMP plugin = CloneSMP.getInstance();
+    private final CraftGridMemo<CraftOutcome> craftMemo = new CraftGridMemo<>(3);
 
     /**
      * Preview crafting result when ingredients are placed
@@ -41,30 +70,57 @@ public class MegaHeadListener implements Listener {
      */
     @EventHandler
     public void onPrepareCraftMegaHead(PrepareItemCraftEvent event) {
+        long start = System.nanoTime();
+        try {
+            previewMegaHead(event);
+        } finally {
+            plugin.getMetrics().record(Metrics.Timer.MEGA_HEAD_PREVIEW, start);
+        }
+    }
+    
+    /**
+     * Show a Mega Head as the crafting result if the grid holds a valid pattern
+     * 
+     * @param event The PrepareItemCraftEvent
+     */
+    private void previewMegaHead(PrepareItemCraftEvent event) {
         if (!(event.getInventory() instanceof CraftingInventory)) return;
         
         CraftingInventory inv = event.getInventory();
         ItemStack[] matrix = inv.getMatrix();
         
-        // Check for the recipe pattern (3 heads in top row)
-        if (!isValidMegaHeadPattern(matrix)) {
-            return;
-        }
+        // Reject most grids by material alone (3 heads in top row)
+        if (!hasHeadRow(matrix)) return;
         
-        // Get player info from heads
-        SkullMeta sm0 = (SkullMeta) matrix[0].getItemMeta();
-        if (sm0 == null || sm0.getOwningPlayer() == null) return;
+        // The same grid is often previewed several times in a row
+        UUID viewer = event.getView().getPlayer().getUniqueId();
+        int fingerprint = craftMemo.fingerprint(matrix);
+        CraftOutcome outcome;
+        if (craftMemo.matches(viewer, matrix, fingerprint)) {
+            outcome = craftMemo.get(viewer);
+        } else {
+            outcome = evaluateMegaHeadPattern(matrix);
+            craftMemo.put(viewer, matrix, fingerprint, outcome);
+        }
+        if (outcome == NOT_A_MEGA_HEAD) return;
         
-        OfflinePlayer owner = sm0.getOwningPlayer();
         // Only allow crafting Mega Heads for banned players
-        if (!isBanned(owner)) {
+        if (!plugin.getBanCache().isBanned(outcome.owner)) {
             inv.setResult(null);
             return;
         }
         
-        // Create the Mega Head
-        ItemStack megaHead = createMegaHead(owner);
-        inv.setResult(megaHead);
+        inv.setResult(outcome.megaHead);
+    }
+
+    /**
+     * Forget the player's crafting grid when they close it
+     * 
+     * @param event The InventoryCloseEvent
+     */
+    @EventHandler
+    public void onCloseInventory(InventoryCloseEvent event) {
+        craftMemo.remove(event.getPlayer().getUniqueId());
     }
 
     /**
@@ -142,32 +198,36 @@ public class MegaHeadListener implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGH)
     public void onBreakMegaHead(BlockBreakEvent event) {
+        long start = System.nanoTime();
+        try {
+            breakMegaHead(event);
+        } finally {
+            plugin.getMetrics().record(Metrics.Timer.MEGA_HEAD_BREAK, start);
+        }
+    }
+    
+    /**
+     * Unban the owner of a broken Mega Head if the right tool was used
+     * 
+     * @param event The BlockBreakEvent
+     */
+    private void breakMegaHead(BlockBreakEvent event) {
         Block b = event.getBlock();
         if (b.getType() != Material.PLAYER_HEAD && b.getType() != Material.PLAYER_WALL_HEAD) return;
         
-        BlockState bs = b.getState();
-        if (!(bs instanceof Skull)) return;
+        // Ordinary heads are not in the index, so their block state is never read
+        UUID targetId = plugin.getMegaHeads().getOwner(b);
+        if (targetId == null) return;
         
-        Skull skull = (Skull) bs;
-        if (!skull.getPersistentDataContainer().has(plugin.getMegaHeadKey(), PersistentDataType.STRING)) {
-            return;
-        }
-
-        // Get target player info
-        String uuidStr = skull.getPersistentDataContainer()
-                             .get(plugin.getMegaHeadKey(), PersistentDataType.STRING);
-        if (uuidStr == null) return;
-        
-        OfflinePlayer target = Bukkit.getOfflinePlayer(UUID.fromString(uuidStr));
-        if (!isBanned(target)) return;
+        if (!plugin.getBanCache().isBanned(targetId)) return;
+        OfflinePlayer target = Bukkit.getOfflinePlayer(targetId);
 
         // Check for required tool
         Player breaker = event.getPlayer();
         ItemStack tool = breaker.getInventory().getItemInMainHand();
         
         if (tool == null
-         || !tool.getType().name().endsWith("_PICKAXE")
-         || !tool.getItemMeta().hasEnchant(Enchantment.UNBREAKING)
+         || !PICKAXES.contains(tool.getType())
          || tool.getEnchantmentLevel(Enchantment.UNBREAKING) != 3) {
             
             // Inform player of requirements
@@ -176,12 +236,43 @@ public class MegaHeadListener implements Listener {
             return;
         }
 
+        // An offline player's record may have to be read first; the head stays until it is
+        boolean[] answered = { false };
+        boolean[] late = { false };
+        plugin.getRecords().load(targetId, error -> {
+            answered[0] = true;
+            if (error != null) {
+                if (!late[0]) event.setCancelled(true);
+                breaker.sendMessage(ChatColor.RED + "Could not load " + target.getName() + "'s lives, see the console.");
+            } else if (late[0]) {
+                breaker.sendMessage(ChatColor.YELLOW + "Break the Mega Head again to unban " + target.getName() + ".");
+            } else {
+                unban(event, breaker, target);
+            }
+        });
+        if (!answered[0]) {
+            late[0] = true;
+            event.setCancelled(true);
+        }
+    }
+    
+    /**
+     * Unban and reset the owner of a broken Mega Head, whose record is in memory
+     * 
+     * @param event The BlockBreakEvent
+     * @param breaker The player who broke the head
+     * @param target The head's owner
+     */
+    private void unban(BlockBreakEvent event, Player breaker, OfflinePlayer target) {
+        Block b = event.getBlock();
+        
         // Unban the player
         pardonPlayer(target);
         
         // Reset death count
-        plugin.getData().set("deaths." + uuidStr, 0);
-        plugin.saveData();
+        plugin.getLives().setDeaths(target.getUniqueId(), 0);
+        plugin.getHistory().record(target.getUniqueId(),
+                                   new DeathHistory.Event(DeathHistory.Type.MEGA_HEAD, 0, b.getLocation(), null, breaker.getName()));
 
         // Effects and feedback
         breaker.sendMessage(ChatColor.GREEN + "You have unbanned " + ChatColor.GOLD + target.getName() + ChatColor.GREEN + "!");
@@ -202,11 +293,22 @@ public class MegaHeadListener implements Listener {
      * @return The Mega Head ItemStack
      */
     private ItemStack createMegaHead(OfflinePlayer player) {
+        return plugin.getItemTemplates().megaHead(player, this::buildMegaHead);
+    }
+    
+    /**
+     * Build the template for a player's Mega Head
+     * 
+     * @param player The player to build a Mega Head for
+     * @return The Mega Head ItemStack
+     */
+    private ItemStack buildMegaHead(OfflinePlayer player) {
         ItemStack mega = new ItemStack(Material.PLAYER_HEAD);
         SkullMeta sm = (SkullMeta) mega.getItemMeta();
         
         if (sm != null) {
-            sm.setOwningPlayer(player);
+            // Textures come from ProfileCache; missing ones are fetched in the background
+            sm.setOwnerProfile(plugin.getProfileCache().getProfile(player.getUniqueId(), player.getName()));
             sm.setDisplayName(ChatColor.RED + "Mega Head of " + player.getName());
             
             List<String> lore = Arrays.asList(
@@ -224,48 +326,42 @@ public class MegaHeadListener implements Listener {
     }
     
     /**
-     * Check if the crafting pattern is valid for a Mega Head
+     * Check if the top row of the crafting matrix holds player heads, without reading meta
      * 
      * @param matrix The crafting matrix
-     * @return True if the pattern is valid
+     * @return True if slots 0, 1 and 2 are player heads
      */
-    private boolean isValidMegaHeadPattern(ItemStack[] matrix) {
-        // Check top row slots 0,1,2
+    private static boolean hasHeadRow(ItemStack[] matrix) {
         for (int i = 0; i < 3; i++) {
             if (matrix[i] == null || matrix[i].getType() != Material.PLAYER_HEAD) {
                 return false;
             }
         }
-        
-        // Check if all heads are the same player
-        SkullMeta sm0 = (SkullMeta) matrix[0].getItemMeta();
-        SkullMeta sm1 = (SkullMeta) matrix[1].getItemMeta();
-        SkullMeta sm2 = (SkullMeta) matrix[2].getItemMeta();
-        
-        if (sm0 == null || sm1 == null || sm2 == null) return false;
-        
-        OfflinePlayer p0 = sm0.getOwningPlayer();
-        OfflinePlayer p1 = sm1.getOwningPlayer();
-        OfflinePlayer p2 = sm2.getOwningPlayer();
-        
-        if (p0 == null || p1 == null || p2 == null) return false;
-        
-        UUID u = p0.getUniqueId();
-        return u.equals(p1.getUniqueId()) && u.equals(p2.getUniqueId());
+        return true;
     }
     
     /**
-     * Check if a player is banned
+     * Check if the top row heads all belong to the same player, reading each head's meta once
      * 
-     * @param player The player to check
-     * @return True if the player is banned
+     * @param matrix The crafting matrix, already checked with {@link #hasHeadRow}
+     * @return The Mega Head to offer, or {@link #NOT_A_MEGA_HEAD}
      */
-    @SuppressWarnings("deprecation")
-    private boolean isBanned(OfflinePlayer player) {
-        if (player == null || player.getName() == null) return false;
-        
-        // Simply check if the player name is banned
-        return plugin.getServer().getBanList(BanList.Type.NAME).isBanned(player.getName());
+    private CraftOutcome evaluateMegaHeadPattern(ItemStack[] matrix) {
+        OfflinePlayer owner = null;
+        for (int i = 0; i < 3; i++) {
+            ItemMeta meta = matrix[i].getItemMeta();
+            if (!(meta instanceof SkullMeta)) return NOT_A_MEGA_HEAD;
+            
+            OfflinePlayer player = ((SkullMeta) meta).getOwningPlayer();
+            if (player == null) return NOT_A_MEGA_HEAD;
+            
+            if (owner == null) {
+                owner = player;
+            } else if (!owner.getUniqueId().equals(player.getUniqueId())) {
+                return NOT_A_MEGA_HEAD;
+            }
+        }
+        return new CraftOutcome(owner.getUniqueId(), createMegaHead(owner));
     }
     
     /**
@@ -275,9 +371,14 @@ public class MegaHeadListener implements Listener {
      */
     @SuppressWarnings("deprecation")
     private void pardonPlayer(OfflinePlayer player) {
-        if (player == null || player.getName() == null) return;
+        if (player == null) return;
+        plugin.getEliminations().cancel(player.getUniqueId());
+        plugin.getBanCache().markPardoned(player.getUniqueId());
+        ProfileBanList profileBans = plugin.getServer().getBanList(BanList.Type.PROFILE);
+        profileBans.pardon(Bukkit.createPlayerProfile(player.getUniqueId(), player.getName()));
+        if (player.getName() == null) return;
         
-        // Simply pardon the player name
+        // Bans made by older versions of the plugin are by name
         plugin.getServer().getBanList(BanList.Type.NAME).pardon(player.getName());
     }
 }
\ No newline at end of file
@@ -0,0 +1,288 @@
+package com.Liyp.clonesmp;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Invocation counts and latency histograms for the plugin's hot paths
+ *
+ * Each timed handler has a histogram of LongAdder buckets (striped counters, so
+ * recording never takes a lock or contends between threads). Buckets are four
+ * per power of two, which keeps every percentile within 25% of the true value.
+ * A one-tick task counts server ticks so the total time spent in the handlers
+ * can be shown per tick.
+ */
+public class Metrics {
+    /**
+     * The timed code paths
+     */
+    public enum Timer {
+        DEATH("death"),
+        MEGA_HEAD_PREVIEW("mega_head_preview"),
+        MEGA_HEAD_BREAK("mega_head_break"),
+        CRYSTAL_USE("crystal_use"),
+        SAVE_DATA("save_data");
+
+        private final String id;
+
+        Timer(String id) {
+            this.id = id;
+        }
+
+        /**
+         * @return Name used in /clonesmp stats and the metrics endpoint
+         */
+        public String getId() {
+            return id;
+        }
+    }
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    /**
+     * A lock-free latency histogram
+     */
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets[bucket(nanos)].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+
+        /**
+         * @return Number of recorded calls
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return Total time of all recorded calls, in nanoseconds
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * @return Slowest recorded call, in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * Estimate a percentile from the buckets
+         *
+         * @param quantile Between 0 and 1, e.g. 0.99
+         * @return Upper bound of the bucket holding the percentile, in nanoseconds, or 0 without data
+         */
+        public long getPercentileNanos(double quantile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        static int bucket(long nanos) {
+            if (nanos < SUB_BUCKETS) return (int) nanos;
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int sub = (int) (nanos >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+            return exponent * SUB_BUCKETS + sub;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            int exponent = bucket / SUB_BUCKETS;
+            int sub = bucket % SUB_BUCKETS;
+            if (exponent >= 62) return Long.MAX_VALUE;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+        }
+    }
+
+    private final CloneSMP plugin;
+    private final Histogram[] histograms = new Histogram[Timer.values().length];
+    private volatile long ticks;
+    private volatile long since = System.currentTimeMillis();
+    private BukkitTask tickTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     */
+    public Metrics(CloneSMP plugin) {
+        this.plugin = plugin;
+        for (Timer timer : Timer.values()) {
+            histograms[timer.ordinal()] = new Histogram();
+        }
+    }
+
+    /**
+     * Start counting server ticks
+     */
+    public void start() {
+        if (tickTask == null) {
+            tickTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> ticks++, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop counting server ticks
+     */
+    public void shutdown() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+    }
+
+    /**
+     * Record one call of a timed handler. Safe to call from any thread.
+     *
+     * @param timer The handler
+     * @param startNanos The {@link System#nanoTime()} taken when the call started
+     */
+    public void record(Timer timer, long startNanos) {
+        histograms[timer.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Get the histogram of a handler
+     *
+     * @param timer The handler
+     * @return Its histogram
+     */
+    public Histogram get(Timer timer) {
+        return histograms[timer.ordinal()];
+    }
+
+    /**
+     * Get the number of server ticks since metrics started or were last reset
+     *
+     * @return Ticks counted
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get when metrics started or were last reset
+     *
+     * @return Time in milliseconds since the epoch
+     */
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * Get the average time per tick spent in all timed handlers
+     *
+     * @return Nanoseconds per tick, or 0 before the first tick
+     */
+    public long getNanosPerTick() {
+        long total = 0;
+        for (Histogram histogram : histograms) {
+            total += histogram.getTotalNanos();
+        }
+        long counted = ticks;
+        return counted == 0 ? 0 : total / counted;
+    }
+
+    /**
+     * Clear all counters
+     */
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+        ticks = 0;
+        since = System.currentTimeMillis();
+    }
+
+    /**
+     * Format a duration for display
+     *
+     * @param nanos The duration in nanoseconds
+     * @return e.g. "0.42ms"
+     */
+    public static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, nanos < 10_000_000L ? "%.3fms" : "%.1fms", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format
+     *
+     * @return The metrics page
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(2048);
+        out.append("# HELP clonesmp_handler_seconds Time spent in CloneSMP handlers\n");
+        out.append("# TYPE clonesmp_handler_seconds summary\n");
+        for (Timer timer : Timer.values()) {
+            Histogram histogram = get(timer);
+            String label = "handler=\"" + timer.getId() + "\"";
+            sample(out, "clonesmp_handler_seconds{" + label + ",quantile=\"0.5\"}", histogram.getPercentileNanos(0.5) / 1e9);
+            sample(out, "clonesmp_handler_seconds{" + label + ",quantile=\"0.99\"}", histogram.getPercentileNanos(0.99) / 1e9);
+            sample(out, "clonesmp_handler_seconds_sum{" + label + "}", histogram.getTotalNanos() / 1e9);
+            out.append("clonesmp_handler_seconds_count{").append(label).append("} ").append(histogram.getCount()).append('\n');
+        }
+
+        out.append("# HELP clonesmp_handler_max_seconds Slowest call of each CloneSMP handler\n");
+        out.append("# TYPE clonesmp_handler_max_seconds gauge\n");
+        for (Timer timer : Timer.values()) {
+            sample(out, "clonesmp_handler_max_seconds{handler=\"" + timer.getId() + "\"}", get(timer).getMaxNanos() / 1e9);
+        }
+
+        out.append("# HELP clonesmp_ticks_total Server ticks counted by CloneSMP\n");
+        out.append("# TYPE clonesmp_ticks_total counter\n");
+        out.append("clonesmp_ticks_total ").append(ticks).append('\n');
+        out.append("# HELP clonesmp_seconds_per_tick Average time per tick spent in CloneSMP handlers\n");
+        out.append("# TYPE clonesmp_seconds_per_tick gauge\n");
+        sample(out, "clonesmp_seconds_per_tick", getNanosPerTick() / 1e9);
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, double value) {
+        out.append(name).append(' ').append(String.format(Locale.ROOT, "%.9f", value)).append('\n');
+    }
+}
@@ -0,0 +1,97 @@
+package com.Liyp.clonesmp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves {@link Metrics} at /metrics in the Prometheus text format
+ *
+ * Uses the HTTP server built into the JDK with one daemon thread. It only reads
+ * the metrics' counters, so requests never touch the main server thread. Bound
+ * to 127.0.0.1 by default; there is no authentication.
+ */
+public class MetricsServer {
+    private final Metrics metrics;
+    private final String host;
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     *
+     * @param metrics The metrics to serve
+     * @param host The address to bind to
+     * @param port The port to listen on
+     */
+    public MetricsServer(Metrics metrics, String host, int port) {
+        this.metrics = metrics;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Start listening
+     *
+     * @throws IOException If the address cannot be bound
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "CloneSMP Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    /**
+     * Stop listening
+     */
+    public void shutdown() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Check if this server listens where the settings say it should
+     *
+     * @param settings The settings
+     * @return True if host and port are unchanged
+     */
+    public boolean matches(Settings settings) {
+        return host.equals(settings.getMetricsHost()) && port == settings.getMetricsPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
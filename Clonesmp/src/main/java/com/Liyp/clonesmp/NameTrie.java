@@ -0,0 +1,154 @@
+package com.Liyp.clonesmp;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Prefix trie of player names for tab completion
+ *
+ * Keys are lowercase names; each terminal node keeps the original-case name and the
+ * player's UUID. Children are held in sorted char arrays (binary searched) instead
+ * of maps to keep the trie compact, and completions are produced in alphabetical
+ * order straight into the caller's list, stopping as soon as the limit is reached.
+ */
+public final class NameTrie {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        String name;
+        UUID uuid;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) return children[index];
+
+            int insert = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+            Node node = new Node();
+            newKeys[insert] = c;
+            newChildren[insert] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+
+        void removeChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index < 0) return;
+
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys.length == 0 ? NO_KEYS : newKeys;
+            children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+        }
+    }
+
+    private final Node root = new Node();
+    private int size;
+
+    /**
+     * Add or replace a name
+     *
+     * @param name The player name
+     * @param uuid The player's UUID
+     */
+    public synchronized void put(String name, UUID uuid) {
+        Node node = root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.childOrCreate(Character.toLowerCase(name.charAt(i)));
+        }
+        if (node.name == null) size++;
+        node.name = name;
+        node.uuid = uuid;
+    }
+
+    /**
+     * Remove a name if it still belongs to the given player
+     *
+     * @param name The player name
+     * @param uuid The player's UUID
+     */
+    public synchronized void remove(String name, UUID uuid) {
+        if (remove(root, name, 0, uuid)) {
+            size--;
+        }
+    }
+
+    /**
+     * Get the number of names in the trie
+     *
+     * @return Name count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Add names starting with a prefix (case-insensitive) to a list, in alphabetical order
+     *
+     * @param prefix The typed prefix
+     * @param limit Maximum number of names in the list when done
+     * @param filter Only names whose UUID passes this filter are added, or null for all
+     * @param out The list to add to
+     */
+    public synchronized void complete(String prefix, int limit, Predicate<UUID> filter, List<String> out) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(prefix.charAt(i)));
+        }
+        if (node != null) {
+            collect(node, limit, filter, out);
+        }
+    }
+
+    private static void collect(Node node, int limit, Predicate<UUID> filter, List<String> out) {
+        if (node.name != null && out.size() < limit
+                && (filter == null || filter.test(node.uuid)) && !out.contains(node.name)) {
+            out.add(node.name);
+        }
+        for (int i = 0; i < node.children.length && out.size() < limit; i++) {
+            collect(node.children[i], limit, filter, out);
+        }
+    }
+
+    /**
+     * @return True if a name was removed
+     */
+    private static boolean remove(Node node, String name, int depth, UUID uuid) {
+        if (depth == name.length()) {
+            if (node.name == null || !node.uuid.equals(uuid)) return false;
+            node.name = null;
+            node.uuid = null;
+            return true;
+        }
+
+        char c = Character.toLowerCase(name.charAt(depth));
+        Node child = node.child(c);
+        if (child == null || !remove(child, name, depth + 1, uuid)) return false;
+
+        // Prune branches that no longer lead to a name
+        if (child.name == null && child.keys.length == 0) {
+            node.removeChild(c);
+        }
+        return true;
+    }
+}
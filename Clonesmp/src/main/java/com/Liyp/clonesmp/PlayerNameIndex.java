@@ -0,0 +1,342 @@
+package com.Liyp.clonesmp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Case-insensitive index of every player name the server has seen
+ *
+ * Maps lowercase names to UUIDs so admin commands can find offline players
+ * without scanning {@link Bukkit#getOfflinePlayers()}. Kept up to date from join
+ * events and persisted to names.txt (one line per player: uuid, current name,
+ * then former names). Former names still resolve unless someone else now uses them.
+ */
+public class PlayerNameIndex implements Listener {
+    private static final long SAVE_INTERVAL_TICKS = 20L * 60 * 5;
+
+    /**
+     * Receives the result of an asynchronous name lookup on the main thread
+     */
+    public interface Callback {
+        /**
+         * @param uuid The player's UUID, or null if the name is unknown
+         * @param name The player's current name, or null if the name is unknown
+         */
+        void onResolved(UUID uuid, String name);
+    }
+
+    private final CloneSMP plugin;
+    private final File file;
+    private final Map<String, UUID> uuidsByName = new ConcurrentHashMap<>();
+    private final Map<String, UUID> uuidsByFormerName = new ConcurrentHashMap<>();
+    private final Map<UUID, String> namesByUuid = new ConcurrentHashMap<>();
+    private final Map<UUID, List<String>> formerNames = new ConcurrentHashMap<>();
+    private final NameTrie trie = new NameTrie();
+    private final NameTrie eliminatedTrie = new NameTrie();
+    private final Set<UUID> eliminated = ConcurrentHashMap.newKeySet();
+    private final Object saveLock = new Object();
+    private volatile boolean dirty = false;
+    private BukkitTask saveTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param file The names.txt file
+     */
+    public PlayerNameIndex(CloneSMP plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+    }
+
+    /**
+     * Load the index, or seed it in the background from the server's player data
+     * if it does not exist yet, and start the periodic save task
+     */
+    public void start() {
+        if (file.exists()) {
+            load();
+        } else {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, this::seed);
+        }
+        saveTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::saveIfDirty,
+                SAVE_INTERVAL_TICKS, SAVE_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stop the save task and write the index if it changed
+     */
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        saveIfDirty();
+    }
+
+    /**
+     * Record the player's current name on join
+     *
+     * @param event The PlayerJoinEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        record(player.getUniqueId(), player.getName());
+    }
+
+    /**
+     * Look up a UUID by current or former name in O(1)
+     *
+     * @param name The player name, any case
+     * @return The UUID, or null if the name is unknown
+     */
+    public UUID getUuid(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        UUID uuid = uuidsByName.get(key);
+        return uuid != null ? uuid : uuidsByFormerName.get(key);
+    }
+
+    /**
+     * Get the last known name of a player
+     *
+     * @param uuid The player's UUID
+     * @return The name, or null if the player is unknown
+     */
+    public String getName(UUID uuid) {
+        return namesByUuid.get(uuid);
+    }
+
+    /**
+     * Get the names a player used before their current one, oldest first
+     *
+     * @param uuid The player's UUID
+     * @return The former names (empty if none)
+     */
+    public synchronized List<String> getFormerNames(UUID uuid) {
+        List<String> names = formerNames.get(uuid);
+        return names == null ? List.of() : List.copyOf(names);
+    }
+
+    /**
+     * Add current names starting with a prefix to a list, for tab completion
+     *
+     * @param prefix The typed prefix, any case
+     * @param limit Maximum number of names in the list when done
+     * @param filter Only players passing this filter are added, or null for all
+     * @param out The list to add to
+     */
+    public void complete(String prefix, int limit, Predicate<UUID> filter, List<String> out) {
+        trie.complete(prefix, limit, filter, out);
+    }
+
+    /**
+     * Add names of eliminated players starting with a prefix to a list, for tab completion
+     *
+     * @param prefix The typed prefix, any case
+     * @param limit Maximum number of names in the list when done
+     * @param out The list to add to
+     */
+    public void completeEliminated(String prefix, int limit, List<String> out) {
+        eliminatedTrie.complete(prefix, limit, null, out);
+    }
+
+    /**
+     * Mark whether a player has lost all their lives
+     *
+     * @param uuid The player's UUID
+     * @param isEliminated True if the player is eliminated
+     */
+    public synchronized void setEliminated(UUID uuid, boolean isEliminated) {
+        String name = namesByUuid.get(uuid);
+        if (isEliminated) {
+            if (eliminated.add(uuid) && name != null) {
+                eliminatedTrie.put(name, uuid);
+            }
+        } else if (eliminated.remove(uuid) && name != null) {
+            eliminatedTrie.remove(name, uuid);
+        }
+    }
+
+    /**
+     * Resolve a player name or UUID string off the main thread and deliver the
+     * result on the main thread
+     *
+     * @param input A player name (any case) or UUID string
+     * @param callback Receives the result on the main thread
+     */
+    public void resolve(String input, Callback callback) {
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            UUID uuid = parseUuid(input);
+            if (uuid == null) {
+                uuid = getUuid(input);
+            }
+
+            String resolvedName = uuid == null ? null : namesByUuid.get(uuid);
+            UUID resolvedUuid = resolvedName == null ? null : uuid;
+            Bukkit.getScheduler().runTask(plugin, () -> callback.onResolved(resolvedUuid, resolvedName));
+        });
+    }
+
+    /**
+     * Record a player's current name, moving any previous name into their history
+     *
+     * @param uuid The player's UUID
+     * @param name The player's current name
+     */
+    public synchronized void record(UUID uuid, String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        String previous = namesByUuid.put(uuid, name);
+        if (name.equals(previous)) return;
+
+        if (previous != null) {
+            trie.remove(previous, uuid);
+            eliminatedTrie.remove(previous, uuid);
+        }
+        trie.put(name, uuid);
+        if (eliminated.contains(uuid)) {
+            eliminatedTrie.put(name, uuid);
+        }
+
+        if (previous != null && !previous.equalsIgnoreCase(name)) {
+            String previousKey = previous.toLowerCase(Locale.ROOT);
+            uuidsByName.remove(previousKey, uuid);
+            uuidsByFormerName.put(previousKey, uuid);
+            formerNames.computeIfAbsent(uuid, u -> new ArrayList<>()).add(previous);
+        }
+
+        // Someone who used to have this name has changed theirs
+        UUID oldOwner = uuidsByName.put(key, uuid);
+        if (oldOwner != null && !oldOwner.equals(uuid)) {
+            uuidsByFormerName.put(key, oldOwner);
+        }
+        uuidsByFormerName.remove(key, uuid);
+        dirty = true;
+    }
+
+    /**
+     * Add a player from the server's player data unless the index already knows them
+     */
+    private synchronized void seedPlayer(UUID uuid, String name) {
+        if (!namesByUuid.containsKey(uuid)) {
+            record(uuid, name);
+        }
+    }
+
+    private void seed() {
+        int count = 0;
+        for (OfflinePlayer player : Bukkit.getOfflinePlayers()) {
+            String name = player.getName();
+            if (name != null) {
+                seedPlayer(player.getUniqueId(), name);
+                count++;
+            }
+        }
+        dirty = true;
+        saveIfDirty();
+        plugin.getLog().info(Channel.CORE, "Indexed {} player names", count);
+    }
+
+    /**
+     * Read names.txt in two passes: every current name first, then former names
+     * that nobody uses now. The file is not in any particular order, so replaying
+     * lines through {@link #record} could let an old line take a name from its
+     * current owner.
+     */
+    private synchronized void load() {
+        List<UUID> uuids = new ArrayList<>();
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                UUID uuid = parts.length >= 2 ? parseUuid(parts[0]) : null;
+                if (uuid == null) continue;
+
+                uuids.add(uuid);
+                lines.add(parts);
+                namesByUuid.put(uuid, parts[1]);
+                uuidsByName.put(parts[1].toLowerCase(Locale.ROOT), uuid);
+                trie.put(parts[1], uuid);
+            }
+        } catch (IOException e) {
+            plugin.getLog().severe(Channel.CORE, "Could not read {}", file.getName(), e);
+            return;
+        }
+
+        for (int i = 0; i < lines.size(); i++) {
+            String[] parts = lines.get(i);
+            if (parts.length <= 2) continue;
+
+            UUID uuid = uuids.get(i);
+            List<String> former = formerNames.computeIfAbsent(uuid, u -> new ArrayList<>());
+            for (int j = 2; j < parts.length; j++) {
+                former.add(parts[j]);
+                String key = parts[j].toLowerCase(Locale.ROOT);
+                if (!uuidsByName.containsKey(key)) {
+                    uuidsByFormerName.put(key, uuid);
+                }
+            }
+        }
+        dirty = false;
+    }
+
+    private void saveIfDirty() {
+        synchronized (saveLock) {
+            if (!dirty) return;
+
+            StringBuilder out = new StringBuilder(namesByUuid.size() * 56);
+            synchronized (this) {
+                dirty = false;
+                for (Map.Entry<UUID, String> entry : namesByUuid.entrySet()) {
+                    out.append(entry.getKey()).append(' ').append(entry.getValue());
+                    List<String> former = formerNames.get(entry.getKey());
+                    if (former != null) {
+                        for (String name : former) {
+                            out.append(' ').append(name);
+                        }
+                    }
+                    out.append('\n');
+                }
+            }
+
+            try {
+                DataSaver.writeAtomically(file.toPath(), out.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                dirty = true;
+                plugin.getLog().severe(Channel.CORE, "Could not save {}", file.getName(), e);
+            }
+        }
+    }
+
+    private static UUID parseUuid(String input) {
+        if (input.length() != 36) return null;
+        try {
+            return UUID.fromString(input);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
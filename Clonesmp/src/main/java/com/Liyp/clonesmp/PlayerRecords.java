@@ -0,0 +1,344 @@
+package com.Liyp.clonesmp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Decides which players' records are in the lives store when storage is lazy
+ *
+ * Records are read while a player is still at pre-login (off the main thread),
+ * put in the store when they log in and kept there while they are online. After
+ * they quit, or after an admin looks them up, a record stays cached until more
+ * than the configured number of offline records are in memory; then the least
+ * recently used ones are dropped, unless they have changes not yet flushed.
+ * With a storage that is loaded at startup every record is always in memory and
+ * this class does nothing.
+ */
+public class PlayerRecords implements Listener, LivesStore.ChangeListener {
+    private static final long SWEEP_INTERVAL_TICKS = 20L * 60;
+    private static final long READ_TIMEOUT_SECONDS = 10;
+
+    private final CloneSMP plugin;
+    private final LivesStore lives;
+    private final DataSaver dataSaver;
+    private final boolean lazy;
+
+    // Main thread only: online players, and offline players in least recently used order
+    private final Set<UUID> pinned = new HashSet<>();
+    private final LinkedHashMap<UUID, Boolean> cached = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<UUID, List<Consumer<IOException>>> loading = new HashMap<>();
+
+    // Read at pre-login, taken at login
+    private final Map<UUID, Integer> prefetched = new ConcurrentHashMap<>();
+    private BukkitTask sweepTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param lives The lives store
+     * @param dataSaver The saver whose writer reads the storage
+     * @param storage The opened storage
+     */
+    public PlayerRecords(CloneSMP plugin, LivesStore lives, DataSaver dataSaver, LivesStorage storage) {
+        this.plugin = plugin;
+        this.lives = lives;
+        this.dataSaver = dataSaver;
+        this.lazy = storage.isLazy();
+    }
+
+    /**
+     * Take over the records already in the store (replayed from the journal or
+     * migrated), load the players who are online (after a reload) and start the
+     * periodic eviction. Must be called on the main thread.
+     */
+    public void start() {
+        if (!lazy) return;
+
+        lives.forEach((msb, lsb, deaths) -> cached.put(new UUID(msb, lsb), Boolean.TRUE));
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            UUID uuid = player.getUniqueId();
+            try {
+                if (!isResident(uuid)) {
+                    install(uuid, readNow(uuid));
+                }
+                pin(uuid);
+            } catch (IOException e) {
+                plugin.getLog().severe(Channel.STORAGE, "Could not load lives of {}", player.getName(), e);
+            }
+        }
+        evict();
+        sweepTask = Bukkit.getScheduler().runTaskTimer(plugin, this::evict, SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stop the periodic eviction
+     */
+    public void shutdown() {
+        if (sweepTask != null) {
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+    }
+
+    /**
+     * Make sure a player's record is in the lives store, reading it if needed, then
+     * run the callback on the main thread. Must be called on the main thread.
+     *
+     * @param uuid The player's UUID
+     * @param then Receives null once the record is in memory, or the read error
+     */
+    public void load(UUID uuid, Consumer<IOException> then) {
+        if (!lazy || isResident(uuid)) {
+            touch(uuid);
+            then.accept(null);
+            return;
+        }
+
+        List<Consumer<IOException>> waiting = loading.get(uuid);
+        if (waiting != null) {
+            waiting.add(then);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(then);
+        loading.put(uuid, waiting);
+
+        dataSaver.read(uuid).whenComplete((deaths, error) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            List<Consumer<IOException>> callbacks = loading.remove(uuid);
+            IOException failure = null;
+            if (error != null) {
+                failure = error instanceof IOException ? (IOException) error : new IOException(error);
+                plugin.getLog().warning(Channel.STORAGE, "Could not load lives of {}", uuid, failure);
+            } else {
+                install(uuid, deaths);
+                evict();
+            }
+            for (Consumer<IOException> callback : callbacks) {
+                callback.accept(failure);
+            }
+        }));
+    }
+
+    /**
+     * Get many players' death counts, reading the ones not in memory in a single
+     * background task. Records read this way are not kept, so a large query does
+     * not push online players' friends out of the cache. Must be called on the
+     * main thread; the callback runs on the main thread.
+     *
+     * @param uuids The players' UUIDs
+     * @param then Receives the death counts in the same order (0 for players
+     *             without a record), or null and the read error
+     */
+    public void readAll(UUID[] uuids, BiConsumer<int[], IOException> then) {
+        int[] deaths = new int[uuids.length];
+        int[] missing = new int[uuids.length];
+        int missingCount = 0;
+        for (int i = 0; i < uuids.length; i++) {
+            if (!lazy || isResident(uuids[i])) {
+                deaths[i] = lives.getDeaths(uuids[i]);
+            } else {
+                missing[missingCount++] = i;
+            }
+        }
+        if (missingCount == 0) {
+            then.accept(deaths, null);
+            return;
+        }
+
+        UUID[] read = new UUID[missingCount];
+        for (int j = 0; j < missingCount; j++) {
+            read[j] = uuids[missing[j]];
+        }
+        dataSaver.readAll(read).whenComplete((stored, error) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (error != null) {
+                IOException failure = error instanceof IOException ? (IOException) error : new IOException(error);
+                plugin.getLog().warning(Channel.STORAGE, "Could not read lives of {} players", read.length, failure);
+                then.accept(null, failure);
+                return;
+            }
+            for (int j = 0; j < read.length; j++) {
+                // A record changed in memory while being read is newer
+                deaths[missing[j]] = lives.contains(read[j]) ? lives.getDeaths(read[j]) : Math.max(0, stored[j]);
+            }
+            then.accept(deaths, null);
+        }));
+    }
+
+    /**
+     * Get the number of records in memory, online and cached
+     *
+     * @return Record count
+     */
+    public int getResidentCount() {
+        return lazy ? pinned.size() + cached.size() : lives.size();
+    }
+
+    /**
+     * Read a player's record before they join, so login never waits on the disk
+     *
+     * @param event The AsyncPlayerPreLoginEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (!lazy || event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+        UUID uuid = event.getUniqueId();
+        try {
+            prefetched.put(uuid, readNow(uuid));
+        } catch (IOException e) {
+            // Playing on a record that could not be read would overwrite it with wrong counts
+            plugin.getLog().severe(Channel.STORAGE, "Could not load lives of {}", event.getName(), e);
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, "Could not load your lives, please try again.");
+        }
+    }
+
+    /**
+     * Put the prefetched record in the store and keep it there while the player is online
+     *
+     * @param event The PlayerLoginEvent
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onLogin(PlayerLoginEvent event) {
+        if (!lazy) return;
+
+        UUID uuid = event.getPlayer().getUniqueId();
+        Integer deaths = prefetched.remove(uuid);
+        if (!isResident(uuid)) {
+            try {
+                // Not prefetched, e.g. the player was already connecting when the plugin enabled
+                install(uuid, deaths != null ? deaths : readNow(uuid));
+            } catch (IOException e) {
+                plugin.getLog().severe(Channel.STORAGE, "Could not load lives of {}", event.getPlayer().getName(), e);
+                event.disallow(PlayerLoginEvent.Result.KICK_OTHER, "Could not load your lives, please try again.");
+                return;
+            }
+        }
+        pin(uuid);
+    }
+
+    /**
+     * Release the record of a player whose login was refused after all
+     *
+     * @param event The PlayerLoginEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoginResult(PlayerLoginEvent event) {
+        if (lazy && event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            unpin(event.getPlayer().getUniqueId());
+        }
+    }
+
+    /**
+     * Move a leaving player's record to the cache
+     *
+     * @param event The PlayerQuitEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        if (!lazy) return;
+        unpin(event.getPlayer().getUniqueId());
+        evict();
+    }
+
+    @Override
+    public void onLivesChanged(UUID uuid, int oldDeaths, int newDeaths) {
+        if (!lazy) return;
+        // A value read at pre-login is older than this change
+        prefetched.remove(uuid);
+        // Records written without being loaded (e.g. a reset) must be tracked to be evicted
+        if (!pinned.contains(uuid)) {
+            cached.put(uuid, Boolean.TRUE);
+        }
+    }
+
+    private boolean isResident(UUID uuid) {
+        return pinned.contains(uuid) || cached.containsKey(uuid);
+    }
+
+    private void touch(UUID uuid) {
+        if (lazy && !pinned.contains(uuid)) {
+            cached.put(uuid, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Put a record read from storage in the store, unless it was changed in memory while being read
+     */
+    private void install(UUID uuid, int deaths) {
+        if (!lives.contains(uuid) && deaths >= 0) {
+            lives.restore(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), deaths);
+        }
+        if (!pinned.contains(uuid)) {
+            cached.put(uuid, Boolean.TRUE);
+        }
+    }
+
+    private void pin(UUID uuid) {
+        cached.remove(uuid);
+        pinned.add(uuid);
+    }
+
+    private void unpin(UUID uuid) {
+        if (pinned.remove(uuid)) {
+            cached.put(uuid, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Drop the least recently used offline records beyond the cache size. Records
+     * with unflushed changes are kept until a later sweep.
+     */
+    private void evict() {
+        int limit = plugin.getSettings().getCacheSize();
+        Iterator<UUID> eldest = cached.keySet().iterator();
+        while (cached.size() > limit && eldest.hasNext()) {
+            UUID uuid = eldest.next();
+            if (dataSaver.isPending(uuid) || loading.containsKey(uuid)) continue;
+            eldest.remove();
+            lives.remove(uuid);
+        }
+    }
+
+    /**
+     * Read a record and wait for it; only for threads that may block
+     */
+    private int readNow(UUID uuid) throws IOException {
+        try {
+            return dataSaver.read(uuid).get(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out reading lives of " + uuid, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted reading lives of " + uuid, e);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.Liyp.clonesmp;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plugin logging, off the calling thread
+ *
+ * Every message belongs to a channel with its own minimum level (logging in
+ * config.yml), and a disabled message costs one array read: messages are
+ * templates with "{}" placeholders whose arguments are only formatted by the
+ * writer thread, so pass immutable values (strings, numbers, UUIDs). Accepted
+ * messages go into a fixed ring buffer that any thread can append to without
+ * locking; when it is full the message is dropped and counted. The writer
+ * collapses a message repeated back to back into one line with a count and lets
+ * each template through at most {@link #RATE_LIMIT} times per
+ * {@link #RATE_WINDOW_SECONDS} seconds, reporting how many were suppressed.
+ */
+public final class PluginLog {
+    /**
+     * Parts of the plugin that can be given their own log level
+     */
+    public enum Channel {
+        CORE, STORAGE, CRYSTALS, BANS, PROFILES, COMMANDS, ANNOUNCEMENTS
+    }
+
+    static final int CAPACITY = 1024; // power of two
+    static final int RATE_LIMIT = 20;
+    static final long RATE_WINDOW_SECONDS = 10;
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(RATE_WINDOW_SECONDS);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    /** A ring slot; its sequence says whether it is free to write or ready to read */
+    private static final class Slot {
+        volatile long sequence;
+        Level level;
+        Channel channel;
+        String template;
+        Object a, b, c;
+        Throwable thrown;
+    }
+
+    /** Per-template rate limit state, only touched by the writer */
+    private static final class Window {
+        long start;
+        int count;
+        int suppressed;
+    }
+
+    private final Logger logger;
+    private final Slot[] ring = new Slot[CAPACITY];
+    private final AtomicLong writePos = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long readPos; // writer only
+    private volatile int[] thresholds;
+    private volatile Thread writer;
+    private volatile boolean running;
+
+    // Writer state
+    private final Map<String, Window> windows = new HashMap<>();
+    private String lastMessage;
+    private Level lastLevel;
+    private int repeats;
+    private long repeatsSince;
+
+    /**
+     * Constructor. Every channel starts at INFO until {@link #configure} is called.
+     *
+     * @param logger The plugin logger that receives the messages
+     */
+    public PluginLog(Logger logger) {
+        this.logger = logger;
+        for (int i = 0; i < CAPACITY; i++) {
+            ring[i] = new Slot();
+            ring[i].sequence = i;
+        }
+        int[] levels = new int[Channel.values().length];
+        Arrays.fill(levels, Level.INFO.intValue());
+        this.thresholds = levels;
+    }
+
+    /**
+     * Start the writer thread
+     */
+    public void start() {
+        if (running) return;
+        running = true;
+        Thread thread = new Thread(this::run, "CloneSMP Log Writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    /**
+     * Stop the writer and write out everything still buffered. Messages logged
+     * afterwards are written directly.
+     */
+    public void shutdown() {
+        Thread thread = writer;
+        running = false;
+        if (thread == null) return;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        synchronized (this) {
+            drain();
+            flushWriterState();
+        }
+    }
+
+    /**
+     * Apply the log levels from a settings snapshot
+     *
+     * @param settings The settings
+     */
+    public void configure(Settings settings) {
+        int[] levels = new int[Channel.values().length];
+        for (Channel channel : Channel.values()) {
+            levels[channel.ordinal()] = settings.getLogLevel(channel).intValue();
+        }
+        thresholds = levels;
+    }
+
+    /**
+     * Check if a message would be logged, to skip expensive argument preparation
+     *
+     * @param channel The channel
+     * @param level The level
+     * @return True if the channel logs messages at this level
+     */
+    public boolean isEnabled(Channel channel, Level level) {
+        return level.intValue() >= thresholds[channel.ordinal()];
+    }
+
+    /**
+     * Log routine detail that is hidden unless the channel is set to FINE
+     *
+     * @param channel The channel
+     * @param template The message, with {} for each argument
+     * @param a The argument
+     */
+    public void fine(Channel channel, String template, Object a) {
+        log(Level.FINE, channel, template, a, null, null, null);
+    }
+
+    /**
+     * Log routine detail that is hidden unless the channel is set to FINE
+     *
+     * @param channel The channel
+     * @param template The message, with {} for each argument
+     * @param a The first argument
+     * @param b The second argument
+     */
+    public void fine(Channel channel, String template, Object a, Object b) {
+        log(Level.FINE, channel, template, a, b, null, null);
+    }
+
+    /**
+     * Log a message
+     *
+     * @param channel The channel
+     * @param template The message
+     */
+    public void info(Channel channel, String template) {
+        log(Level.INFO, channel, template, null, null, null, null);
+    }
+
+    /**
+     * Log a message
+     *
+     * @param channel The channel
+     * @param template The message, with {} for each argument
+     * @param a The argument
+     */
+    public void info(Channel channel, String template, Object a) {
+        log(Level.INFO, channel, template, a, null, null, null);
+    }
+
+    /**
+     * Log a message
+     *
+     * @param channel The channel
+     * @param template The message, with {} for each argument
+     * @param a The first argument
+     * @param b The second argument
+     */
+    public void info(Channel channel, String template, Object a, Object b) {
+        log(Level.INFO, channel, template, a, b, null, null);
+    }
+
+    /**
+     * Log a message
+     *
+     * @param channel The channel
+     * @param template The message, with {} for each argument
+     * @param a The first argument
+     * @param b The second argument
+     * @param c The third argument
+     */
+    public void info(Channel channel, String template, Object a, Object b, Object c) {
+        log(Level.INFO, channel, template, a, b, c, null);
+    }
+
+    /**
+     * Log a warning
+     *
+     * @param channel The channel
+     * @param template The message
+     */
+    public void warning(Channel channel, String template) {
+        log(Level.WARNING, channel, template, null, null, null, null);
+    }
+
+    /**
+     * Log a warning
+     *
+     * @param channel The channel
+     * @param template The message, with {} for the argument
+     * @param a The argument
+     */
+    public void warning(Channel channel, String template, Object a) {
+        log(Level.WARNING, channel, template, a, null, null, null);
+    }
+
+    /**
+     * Log a warning
+     *
+     * @param channel The channel
+     * @param template The message, with {} for each argument
+     * @param a The first argument
+     * @param b The second argument
+     */
+    public void warning(Channel channel, String template, Object a, Object b) {
+        log(Level.WARNING, channel, template, a, b, null, null);
+    }
+
+    /**
+     * Log a warning
+     *
+     * @param channel The channel
+     * @param template The message, with {} for each argument
+     * @param a The first argument
+     * @param b The second argument
+     * @param c The third argument
+     */
+    public void warning(Channel channel, String template, Object a, Object b, Object c) {
+        log(Level.WARNING, channel, template, a, b, c, null);
+    }
+
+    /**
+     * Log a warning with its cause
+     *
+     * @param channel The channel
+     * @param template The message
+     * @param thrown The cause
+     */
+    public void warning(Channel channel, String template, Throwable thrown) {
+        log(Level.WARNING, channel, template, null, null, null, thrown);
+    }
+
+    /**
+     * Log a warning with its cause
+     *
+     * @param channel The channel
+     * @param template The message, with {} for the argument
+     * @param a The argument
+     * @param thrown The cause
+     */
+    public void warning(Channel channel, String template, Object a, Throwable thrown) {
+        log(Level.WARNING, channel, template, a, null, null, thrown);
+    }
+
+    /**
+     * Log an error with its cause
+     *
+     * @param channel The channel
+     * @param template The message
+     * @param thrown The cause
+     */
+    public void severe(Channel channel, String template, Throwable thrown) {
+        log(Level.SEVERE, channel, template, null, null, null, thrown);
+    }
+
+    /**
+     * Log an error with its cause
+     *
+     * @param channel The channel
+     * @param template The message, with {} for the argument
+     * @param a The argument
+     * @param thrown The cause
+     */
+    public void severe(Channel channel, String template, Object a, Throwable thrown) {
+        log(Level.SEVERE, channel, template, a, null, null, thrown);
+    }
+
+    /**
+     * Get the number of messages dropped because the buffer was full
+     *
+     * @return Dropped messages since startup
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void log(Level level, Channel channel, String template, Object a, Object b, Object c, Throwable thrown) {
+        if (level.intValue() < thresholds[channel.ordinal()]) return;
+
+        if (!running) {
+            // Before start or after shutdown, nothing drains the ring
+            synchronized (this) {
+                write(level, template, format(template, a, b, c), thrown);
+            }
+            return;
+        }
+
+        // Claim a slot (multi-producer, single-consumer bounded queue)
+        Slot slot;
+        long pos = writePos.get();
+        while (true) {
+            slot = ring[(int) pos & (CAPACITY - 1)];
+            long diff = slot.sequence - pos;
+            if (diff == 0) {
+                if (writePos.compareAndSet(pos, pos + 1)) break;
+                pos = writePos.get();
+            } else if (diff < 0) {
+                dropped.incrementAndGet();
+                return;
+            } else {
+                pos = writePos.get();
+            }
+        }
+
+        slot.level = level;
+        slot.channel = channel;
+        slot.template = template;
+        slot.a = a;
+        slot.b = b;
+        slot.c = c;
+        slot.thrown = thrown;
+        slot.sequence = pos + 1; // publish
+    }
+
+    private void run() {
+        while (running) {
+            boolean wrote;
+            synchronized (this) {
+                wrote = drain();
+                if (!wrote) {
+                    flushWriterState();
+                }
+            }
+            if (!wrote) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Write out everything currently in the ring
+     *
+     * @return True if anything was read
+     */
+    private boolean drain() {
+        boolean any = false;
+        while (true) {
+            Slot slot = ring[(int) readPos & (CAPACITY - 1)];
+            if (slot.sequence != readPos + 1) break;
+
+            Level level = slot.level;
+            String template = slot.template;
+            Object a = slot.a, b = slot.b, c = slot.c;
+            Throwable thrown = slot.thrown;
+            slot.a = slot.b = slot.c = null;
+            slot.thrown = null;
+            slot.sequence = readPos + CAPACITY; // free for the producer one lap ahead
+            readPos++;
+            any = true;
+
+            if (!allow(template)) continue;
+            write(level, template, format(template, a, b, c), thrown);
+        }
+
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            flushRepeats();
+            logger.warning("Log buffer full, dropped " + lost + " messages");
+        }
+        return any;
+    }
+
+    private boolean allow(String template) {
+        long now = System.nanoTime();
+        Window window = windows.get(template);
+        if (window == null) {
+            window = new Window();
+            window.start = now;
+            windows.put(template, window);
+        } else if (now - window.start >= RATE_WINDOW_NANOS) {
+            reportSuppressed(template, window);
+            window.start = now;
+            window.count = 0;
+        }
+        if (window.count >= RATE_LIMIT) {
+            window.suppressed++;
+            return false;
+        }
+        window.count++;
+        return true;
+    }
+
+    private void write(Level level, String template, String message, Throwable thrown) {
+        if (thrown == null && level == lastLevel && message.equals(lastMessage)) {
+            if (repeats++ == 0) {
+                repeatsSince = System.nanoTime();
+            }
+            return;
+        }
+        flushRepeats();
+        // The plugin logger hides FINE, so a channel turned down to FINE is written at INFO
+        Level out = level.intValue() < Level.INFO.intValue() ? Level.INFO : level;
+        if (thrown != null) {
+            logger.log(out, message, thrown);
+            lastMessage = null;
+            lastLevel = null;
+        } else {
+            logger.log(out, message);
+            lastMessage = message;
+            lastLevel = level;
+        }
+    }
+
+    /**
+     * Report pending repeats and expired rate limit windows, called when the writer is idle
+     */
+    private void flushWriterState() {
+        long now = System.nanoTime();
+        if (!running || now - repeatsSince >= TimeUnit.SECONDS.toNanos(1)) {
+            flushRepeats();
+        }
+        Iterator<Map.Entry<String, Window>> it = windows.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Window> entry = it.next();
+            if (now - entry.getValue().start >= RATE_WINDOW_NANOS || !running) {
+                reportSuppressed(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    private void flushRepeats() {
+        if (repeats > 0) {
+            logger.log(lastLevel.intValue() < Level.INFO.intValue() ? Level.INFO : lastLevel, "(last message repeated " + repeats + " more times)");
+            repeats = 0;
+        }
+    }
+
+    private void reportSuppressed(String template, Window window) {
+        if (window.suppressed > 0) {
+            flushRepeats();
+            logger.info("Suppressed " + window.suppressed + " more messages like: " + template);
+            window.suppressed = 0;
+            lastMessage = null;
+        }
+    }
+
+    /**
+     * Substitute up to three arguments for the "{}" placeholders in a template
+     */
+    static String format(String template, Object a, Object b, Object c) {
+        int at = template.indexOf("{}");
+        if (at < 0) return template;
+
+        StringBuilder out = new StringBuilder(template.length() + 32);
+        int from = 0;
+        int arg = 0;
+        while (at >= 0 && arg < 3) {
+            out.append(template, from, at).append(arg == 0 ? a : arg == 1 ? b : c);
+            arg++;
+            from = at + 2;
+            at = template.indexOf("{}", from);
+        }
+        return out.append(template, from, template.length()).toString();
+    }
+}
@@ -0,0 +1,253 @@
+package com.Liyp.clonesmp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.profile.PlayerProfile;
+import org.bukkit.profile.PlayerTextures;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Cache of player profiles with skin textures, used to build player head items
+ *
+ * Setting an incomplete profile on a skull can make the server look up the
+ * textures while an event is being handled. Instead, profiles are captured when
+ * players join (their login profile already has textures) or resolved in the
+ * background, and skulls are only ever built from what is cached here. Entries
+ * older than {@link #TTL_MILLIS} are still used but refreshed in the background.
+ * The cache is bounded (least recently used entries are dropped) and persisted to
+ * profiles.txt, one line per player: uuid, name, skin URL, time resolved.
+ */
+public class ProfileCache implements Listener {
+    private static final int MAX_ENTRIES = 2048;
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+    private static final long SAVE_INTERVAL_TICKS = 20L * 60 * 5;
+
+    private static final class Entry {
+        final String name;
+        final URL skin;
+        final long resolvedAt;
+
+        Entry(String name, URL skin, long resolvedAt) {
+            this.name = name;
+            this.skin = skin;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private final CloneSMP plugin;
+    private final File file;
+    private final ProfileResolver resolver;
+    private final Map<UUID, Entry> entries = new LinkedHashMap<UUID, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Set<UUID> pending = new HashSet<>();
+    private final Object saveLock = new Object();
+    private volatile boolean dirty = false;
+    private BukkitTask saveTask;
+
+    /**
+     * Constructor
+     *
+     * @param plugin The CloneSMP plugin instance
+     * @param file The profiles.txt file
+     * @param resolver Looks up profiles that are not cached
+     */
+    public ProfileCache(CloneSMP plugin, File file, ProfileResolver resolver) {
+        this.plugin = plugin;
+        this.file = file;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Load the cache and start the periodic save task
+     */
+    public void start() {
+        if (file.exists()) {
+            load();
+        }
+        saveTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::saveIfDirty,
+                SAVE_INTERVAL_TICKS, SAVE_INTERVAL_TICKS);
+    }
+
+    /**
+     * Stop the save task and write the cache if it changed
+     */
+    public void shutdown() {
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+        saveIfDirty();
+    }
+
+    /**
+     * Capture the profile of a joining player, or resolve it in the background
+     *
+     * @param event The PlayerJoinEvent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        PlayerProfile profile = player.getPlayerProfile();
+        if (profile.getTextures().getSkin() != null) {
+            store(player.getUniqueId(), player.getName(), profile.getTextures().getSkin());
+        } else {
+            prefetch(player.getUniqueId(), player.getName());
+        }
+    }
+
+    /**
+     * Get a profile to put on a skull. Never waits for a lookup: if the player is not
+     * cached, a profile without textures is returned and the lookup starts in the background.
+     *
+     * @param uuid The player's UUID
+     * @param name The player's name, or null if unknown
+     * @return A new profile the caller may modify
+     */
+    public PlayerProfile getProfile(UUID uuid, String name) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(uuid);
+        }
+        if (entry == null || System.currentTimeMillis() - entry.resolvedAt > TTL_MILLIS) {
+            prefetch(uuid, name);
+        }
+
+        PlayerProfile profile = Bukkit.createPlayerProfile(uuid, name != null ? name : entry != null ? entry.name : null);
+        if (entry != null && entry.skin != null) {
+            PlayerTextures textures = profile.getTextures();
+            textures.setSkin(entry.skin);
+            profile.setTextures(textures);
+        }
+        return profile;
+    }
+
+    /**
+     * Resolve a profile in the background unless it is cached and fresh or already being resolved
+     *
+     * @param uuid The player's UUID
+     * @param name The player's name, or null if unknown
+     */
+    public void prefetch(UUID uuid, String name) {
+        synchronized (this) {
+            Entry entry = entries.get(uuid);
+            if (entry != null && System.currentTimeMillis() - entry.resolvedAt <= TTL_MILLIS) return;
+            if (!pending.add(uuid)) return;
+        }
+
+        resolver.resolve(uuid, name).whenComplete((profile, error) -> {
+            synchronized (this) {
+                pending.remove(uuid);
+            }
+            if (error != null || profile == null) {
+                // Offline-mode or unknown players; retry once the TTL passes
+                store(uuid, name, null);
+                return;
+            }
+            store(uuid, profile.getName() != null ? profile.getName() : name, profile.getTextures().getSkin());
+        });
+    }
+
+    /**
+     * Get the number of cached profiles
+     *
+     * @return Cached profile count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void store(UUID uuid, String name, URL skin) {
+        boolean skinChanged;
+        synchronized (this) {
+            Entry previous = entries.get(uuid);
+            URL previousSkin = previous == null ? null : previous.skin;
+            if (skin == null) {
+                // Keep the last known skin rather than replacing it with nothing
+                skin = previousSkin;
+            }
+            // Compare as strings; URL.equals resolves host names
+            skinChanged = skin != null && (previousSkin == null || !skin.toExternalForm().equals(previousSkin.toExternalForm()));
+            entries.put(uuid, new Entry(name, skin, System.currentTimeMillis()));
+            dirty = true;
+        }
+        if (!skinChanged) return;
+
+        // Heads built before the textures were known should be rebuilt
+        if (Bukkit.isPrimaryThread()) {
+            plugin.getItemTemplates().invalidate(uuid);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, () -> plugin.getItemTemplates().invalidate(uuid));
+        }
+    }
+
+    private synchronized void load() {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 4) continue;
+                try {
+                    UUID uuid = UUID.fromString(parts[0]);
+                    String name = parts[1].equals("-") ? null : parts[1];
+                    URL skin = parts[2].equals("-") ? null : new URL(parts[2]);
+                    entries.put(uuid, new Entry(name, skin, Long.parseLong(parts[3])));
+                } catch (IllegalArgumentException | MalformedURLException e) {
+                    // Skip damaged lines; the profile is resolved again when needed
+                }
+            }
+            dirty = false;
+        } catch (IOException e) {
+            plugin.getLog().severe(Channel.PROFILES, "Could not read {}", file.getName(), e);
+        }
+    }
+
+    private void saveIfDirty() {
+        synchronized (saveLock) {
+            if (!dirty) return;
+
+            StringBuilder out;
+            synchronized (this) {
+                dirty = false;
+                out = new StringBuilder(entries.size() * 128);
+                for (Map.Entry<UUID, Entry> e : entries.entrySet()) {
+                    Entry entry = e.getValue();
+                    out.append(e.getKey()).append(' ')
+                       .append(entry.name != null ? entry.name : "-").append(' ')
+                       .append(entry.skin != null ? entry.skin.toExternalForm() : "-").append(' ')
+                       .append(entry.resolvedAt).append('\n');
+                }
+            }
+
+            try {
+                DataSaver.writeAtomically(file.toPath(), out.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                dirty = true;
+                plugin.getLog().severe(Channel.PROFILES, "Could not save {}", file.getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.Liyp.clonesmp;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.Bukkit;
+import org.bukkit.profile.PlayerProfile;
+
+/**
+ * Looks up complete player profiles (with skin textures) for {@link ProfileCache}
+ *
+ * Implementations must not block the calling thread; the default one uses
+ * {@link PlayerProfile#update()}, which queries the session server asynchronously.
+ */
+public interface ProfileResolver {
+    /**
+     * The resolver used on a live server
+     */
+    ProfileResolver DEFAULT = (uuid, name) -> Bukkit.createPlayerProfile(uuid, name).update();
+
+    /**
+     * Start resolving a profile
+     *
+     * @param uuid The player's UUID
+     * @param name The player's name, or null if unknown
+     * @return Completes with the profile, or exceptionally if it cannot be resolved
+     */
+    CompletableFuture<PlayerProfile> resolve(UUID uuid, String name);
+}
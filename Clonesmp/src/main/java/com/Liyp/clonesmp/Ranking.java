@@ -0,0 +1,361 @@
+package com.Liyp.clonesmp;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Players ordered by a small non-negative score, with rank and top-N queries
+ *
+ * Scores (death counts, Life Crystals used) take few distinct values, so players
+ * are kept in one linked bucket per score, and a Fenwick tree over the bucket
+ * sizes counts how many players score above or below any value in O(log S), S
+ * being the highest score. A score change moves one player between buckets in
+ * O(log S). Players with the same score share a rank; within a bucket they are
+ * listed in the order they reached the score. Players are found through an
+ * open-addressing index over the UUIDs stored in the nodes, so nothing is boxed
+ * and no query allocates. Only the main server thread may use this class.
+ */
+public final class Ranking {
+    static final int MAX_SCORE = 65535;
+    private static final int MIN_CAPACITY = 64;
+    private static final int NONE = -1;
+
+    // Nodes: one per player, reused through the free list
+    private long[] msbs;
+    private long[] lsbs;
+    private int[] scores;
+    private int[] next;
+    private int[] prev;
+    private int nodeCount;
+    private int freeList = NONE;
+    private int size;
+
+    // index[slot] = node + 1, or 0 if the slot is empty
+    private int[] index;
+
+    // Per score: first and last node of its bucket, and the Fenwick tree of bucket sizes
+    private int[] heads;
+    private int[] tails;
+    private int[] tree;
+
+    /**
+     * Receives players during {@link Ranking#top}
+     */
+    public interface EntryVisitor {
+        void visit(long mostSigBits, long leastSigBits, int score);
+    }
+
+    /**
+     * Create an empty ranking sized for an expected number of players
+     *
+     * @param expectedSize Expected number of players
+     */
+    public Ranking(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        scores = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        index = new int[capacity << 1];
+        allocateScores(16);
+    }
+
+    /**
+     * Get the number of ranked players
+     *
+     * @return Player count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a player's score
+     *
+     * @param uuid The player's UUID
+     * @return The score, or -1 if the player is not ranked
+     */
+    public int getScore(UUID uuid) {
+        int node = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return node == NONE ? -1 : scores[node];
+    }
+
+    /**
+     * Set a player's score, adding them if they are not ranked yet
+     *
+     * @param uuid The player's UUID
+     * @param score The score; clamped to 0..{@link #MAX_SCORE}
+     */
+    public void set(UUID uuid, int score) {
+        set(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), score, true);
+    }
+
+    /**
+     * Add a player unless they are already ranked. Used when loading, where a
+     * score set since startup is newer than the stored one.
+     *
+     * @param msb Most significant bits of the UUID
+     * @param lsb Least significant bits of the UUID
+     * @param score The score
+     */
+    void setIfAbsent(long msb, long lsb, int score) {
+        set(msb, lsb, score, false);
+    }
+
+    /**
+     * Remove a player
+     *
+     * @param uuid The player's UUID
+     */
+    public void remove(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int node = find(msb, lsb);
+        if (node == NONE) return;
+
+        unlink(node);
+        removeFromIndex(msb, lsb);
+        next[node] = freeList;
+        freeList = node;
+        size--;
+    }
+
+    /**
+     * Count the players with a higher score
+     *
+     * @param score The score
+     * @return Number of players scoring more
+     */
+    public int countAbove(int score) {
+        return size - countBelow(clamp(score) + 1);
+    }
+
+    /**
+     * Count the players with a lower score
+     *
+     * @param score The score
+     * @return Number of players scoring less
+     */
+    public int countBelow(int score) {
+        int limit = Math.min(clamp(score), tree.length);
+        int count = 0;
+        for (int i = limit; i > 0; i -= i & -i) {
+            count += tree[i - 1];
+        }
+        return count;
+    }
+
+    /**
+     * Visit the players with the highest (or lowest) scores, best first
+     *
+     * @param highestFirst True to start from the highest score
+     * @param limit Maximum number of players to visit
+     * @param visitor The visitor
+     * @return Number of players visited
+     */
+    public int top(boolean highestFirst, int limit, EntryVisitor visitor) {
+        int visited = 0;
+        while (visited < limit && visited < size) {
+            // Bucket holding the next player in order, found without scanning empty scores
+            int score = highestFirst ? select(size - 1 - visited) : select(visited);
+            for (int node = heads[score]; node != NONE && visited < limit; node = next[node]) {
+                visitor.visit(msbs[node], lsbs[node], scores[node]);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Remove every player
+     */
+    void clear() {
+        Arrays.fill(index, 0);
+        nodeCount = 0;
+        freeList = NONE;
+        size = 0;
+        allocateScores(16);
+    }
+
+    private void set(long msb, long lsb, int score, boolean replace) {
+        score = clamp(score);
+        int node = find(msb, lsb);
+        if (node != NONE) {
+            if (!replace || scores[node] == score) return;
+            unlink(node);
+            link(node, score);
+            return;
+        }
+
+        if (freeList != NONE) {
+            node = freeList;
+            freeList = next[node];
+        } else {
+            if (nodeCount == msbs.length) {
+                growNodes();
+            }
+            node = nodeCount++;
+        }
+        msbs[node] = msb;
+        lsbs[node] = lsb;
+        addToIndex(node);
+        link(node, score);
+        size++;
+    }
+
+    /**
+     * Append a node to the end of its score's bucket
+     */
+    private void link(int node, int score) {
+        if (score >= heads.length) {
+            growScores(score + 1);
+        }
+        scores[node] = score;
+        next[node] = NONE;
+        prev[node] = tails[score];
+        if (tails[score] != NONE) {
+            next[tails[score]] = node;
+        } else {
+            heads[score] = node;
+        }
+        tails[score] = node;
+        addCount(score, 1);
+    }
+
+    private void unlink(int node) {
+        int score = scores[node];
+        if (prev[node] != NONE) {
+            next[prev[node]] = next[node];
+        } else {
+            heads[score] = next[node];
+        }
+        if (next[node] != NONE) {
+            prev[next[node]] = prev[node];
+        } else {
+            tails[score] = prev[node];
+        }
+        addCount(score, -1);
+    }
+
+    private void addCount(int score, int delta) {
+        for (int i = score + 1; i <= tree.length; i += i & -i) {
+            tree[i - 1] += delta;
+        }
+    }
+
+    /**
+     * Find the score of the k-th player counted from the lowest score (from 0)
+     */
+    private int select(int k) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(tree.length); step > 0; step >>= 1) {
+            if (position + step <= tree.length && tree[position + step - 1] <= k) {
+                position += step;
+                k -= tree[position - 1];
+            }
+        }
+        return position;
+    }
+
+    private int find(long msb, long lsb) {
+        int mask = index.length - 1;
+        int slot = LivesStore.hash(msb, lsb) & mask;
+        while (index[slot] != 0) {
+            int node = index[slot] - 1;
+            if (msbs[node] == msb && lsbs[node] == lsb) return node;
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    private void addToIndex(int node) {
+        int mask = index.length - 1;
+        int slot = LivesStore.hash(msbs[node], lsbs[node]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = node + 1;
+    }
+
+    private void removeFromIndex(long msb, long lsb) {
+        int mask = index.length - 1;
+        int gap = LivesStore.hash(msb, lsb) & mask;
+        while (msbs[index[gap] - 1] != msb || lsbs[index[gap] - 1] != lsb) {
+            gap = (gap + 1) & mask;
+        }
+
+        // Backward-shift deletion, as in LivesStore
+        int slot = (gap + 1) & mask;
+        while (index[slot] != 0) {
+            int node = index[slot] - 1;
+            int home = LivesStore.hash(msbs[node], lsbs[node]) & mask;
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                index[gap] = index[slot];
+                gap = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        index[gap] = 0;
+    }
+
+    private void growNodes() {
+        int capacity = msbs.length << 1;
+        msbs = Arrays.copyOf(msbs, capacity);
+        lsbs = Arrays.copyOf(lsbs, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+
+        // Keep the index at most half full
+        index = new int[capacity << 1];
+        boolean[] free = new boolean[nodeCount];
+        for (int node = freeList; node != NONE; node = next[node]) {
+            free[node] = true;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            if (!free[node]) {
+                addToIndex(node);
+            }
+        }
+    }
+
+    private void allocateScores(int capacity) {
+        heads = new int[capacity];
+        tails = new int[capacity];
+        tree = new int[capacity];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    private void growScores(int needed) {
+        int capacity = heads.length;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        int old = heads.length;
+        heads = Arrays.copyOf(heads, capacity);
+        tails = Arrays.copyOf(tails, capacity);
+        Arrays.fill(heads, old, capacity, NONE);
+        Arrays.fill(tails, old, capacity, NONE);
+
+        // Rebuild the tree for the new size from the bucket sizes
+        int[] counts = new int[capacity];
+        for (int score = 0; score < old; score++) {
+            counts[score] = countBelow(score + 1) - countBelow(score);
+        }
+        tree = new int[capacity];
+        for (int score = 0; score < old; score++) {
+            if (counts[score] != 0) {
+                addCount(score, counts[score]);
+            }
+        }
+    }
+
+    private static int clamp(int score) {
+        return Math.max(0, Math.min(score, MAX_SCORE));
+    }
+}
@@ -0,0 +1,262 @@
+package com.Liyp.clonesmp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * One validated, immutable snapshot of config.yml
+ *
+ * The plugin publishes the current snapshot through a single volatile field and
+ * replaces it as a whole on reload, so code that reads several settings always
+ * sees values from the same version of the file. Invalid values fall back to
+ * their defaults and are reported through {@link #getWarnings()}.
+ */
+public final class Settings {
+    private final int maxLives;
+    private final boolean broadcastDeaths;
+    private final boolean dropHeadOnDeath;
+    private final boolean lifeCrystalsEnabled;
+    private final int maxLifeCrystals;
+    private final CompiledRecipe lifeCrystalRecipe;
+    private final String storageType;
+    private final long flushIntervalTicks;
+    private final boolean journalEnabled;
+    private final boolean historyEnabled;
+    private final int cacheSize;
+    private final boolean broadcastCrystalUse;
+    private final long announcementWindowTicks;
+    private final LivesHud.Mode hudMode;
+    private final Level[] logLevels;
+    private final boolean metricsEnabled;
+    private final String metricsHost;
+    private final int metricsPort;
+    private final List<String> warnings;
+
+    private Settings(ConfigurationSection config, List<String> warnings) {
+        this.maxLives = atLeast(config, "max-lives", 3, 1, warnings);
+        this.broadcastDeaths = config.getBoolean("broadcast-deaths", true);
+        this.dropHeadOnDeath = config.getBoolean("drop-head-on-death", true);
+        this.lifeCrystalsEnabled = config.getBoolean("life-crystal.enabled", true);
+        this.maxLifeCrystals = atLeast(config, "max-life-crystals", 5, 1, warnings);
+        this.flushIntervalTicks = Math.max(1L, config.getLong("storage.flush-interval-ticks", 100L));
+        this.journalEnabled = config.getBoolean("storage.journal", true);
+        this.historyEnabled = config.getBoolean("storage.history", true);
+        this.cacheSize = atLeast(config, "storage.cache-size", 10000, 0, warnings);
+        this.broadcastCrystalUse = config.getBoolean("life-crystal.effects.broadcast-message", true);
+        this.announcementWindowTicks = Math.max(0L, config.getLong("announcements.window-ticks", 0L));
+        this.metricsEnabled = config.getBoolean("metrics.http.enabled", false);
+        this.metricsHost = config.getString("metrics.http.host", "127.0.0.1");
+
+        int port = config.getInt("metrics.http.port", 9465);
+        if (port < 1 || port > 65535) {
+            warnings.add("metrics.http.port must be between 1 and 65535, using 9465");
+            port = 9465;
+        }
+        this.metricsPort = port;
+
+        // An unquoted off is read by YAML as false
+        String hud = config.getString("hud.mode", "off").toUpperCase(Locale.ROOT);
+        LivesHud.Mode mode = LivesHud.Mode.OFF;
+        try {
+            if (!hud.equals("FALSE")) {
+                mode = LivesHud.Mode.valueOf(hud);
+            }
+        } catch (IllegalArgumentException e) {
+            warnings.add("Unknown HUD mode '" + hud.toLowerCase(Locale.ROOT) + "', using off");
+        }
+        this.hudMode = mode;
+
+        String type = config.getString("storage.type", "yaml").toLowerCase(Locale.ROOT);
+        if (!type.equals("yaml") && !type.equals("sqlite") && !type.equals("mmap") && !type.equals("sharded")) {
+            warnings.add("Unknown storage type '" + type + "', using yaml");
+            type = "yaml";
+        }
+        this.storageType = type;
+
+        CompiledRecipe recipe = null;
+        try {
+            recipe = CompiledRecipe.compile(config.getStringList("life-crystal.recipe"),
+                                            config.getConfigurationSection("life-crystal.ingredients"));
+        } catch (IllegalArgumentException e) {
+            warnings.add("Invalid Life Crystal recipe: " + e.getMessage());
+        }
+        this.lifeCrystalRecipe = recipe;
+
+        Level defaultLevel = level(config.getString("logging.level", "info"), "logging.level", Level.INFO, warnings);
+        this.logLevels = new Level[PluginLog.Channel.values().length];
+        for (PluginLog.Channel channel : PluginLog.Channel.values()) {
+            String path = "logging.channels." + channel.name().toLowerCase(Locale.ROOT);
+            String name = config.getString(path);
+            logLevels[channel.ordinal()] = name == null ? defaultLevel : level(name, path, defaultLevel, warnings);
+        }
+        this.warnings = Collections.unmodifiableList(warnings);
+    }
+
+    /**
+     * Parse and validate a configuration. Safe to call off the main thread
+     * on a configuration no other thread is using.
+     *
+     * @param config The loaded config.yml
+     * @return The settings
+     */
+    public static Settings parse(ConfigurationSection config) {
+        return new Settings(config, new ArrayList<>());
+    }
+
+    private static int atLeast(ConfigurationSection config, String path, int def, int min, List<String> warnings) {
+        int value = config.getInt(path, def);
+        if (value < min) {
+            warnings.add(path + " must be at least " + min + ", using " + def);
+            return def;
+        }
+        return value;
+    }
+
+    private static Level level(String name, String path, Level def, List<String> warnings) {
+        try {
+            return Level.parse(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            warnings.add(path + " has unknown level '" + name + "', using " + def.getName().toLowerCase(Locale.ROOT));
+            return def;
+        }
+    }
+
+    /**
+     * @return Maximum number of lives before ban
+     */
+    public int getMaxLives() {
+        return maxLives;
+    }
+
+    /**
+     * @return True if death messages are broadcast
+     */
+    public boolean shouldBroadcastDeaths() {
+        return broadcastDeaths;
+    }
+
+    /**
+     * @return True if players drop their head on death
+     */
+    public boolean shouldDropHeadOnDeath() {
+        return dropHeadOnDeath;
+    }
+
+    /**
+     * @return True if Life Crystals are enabled
+     */
+    public boolean areLifeCrystalsEnabled() {
+        return lifeCrystalsEnabled;
+    }
+
+    /**
+     * @return Maximum number of lives a player can reach with Life Crystals
+     */
+    public int getMaxLifeCrystals() {
+        return maxLifeCrystals;
+    }
+
+    /**
+     * @return The configured Life Crystal recipe, or null if it is invalid
+     */
+    public CompiledRecipe getLifeCrystalRecipe() {
+        return lifeCrystalRecipe;
+    }
+
+    /**
+     * @return The lives storage type (yaml, sqlite, mmap or sharded); only read at startup
+     */
+    public String getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * @return Ticks between background writes of lives changes
+     */
+    public long getFlushIntervalTicks() {
+        return flushIntervalTicks;
+    }
+
+    /**
+     * @return True if lives changes are journaled; only read at startup
+     */
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * @return True if deaths, Life Crystals, resets and unbans are added to player histories
+     */
+    public boolean isHistoryEnabled() {
+        return historyEnabled;
+    }
+
+    /**
+     * @return Offline players whose records stay in memory with sharded or mmap storage
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @return True if Life Crystal use is announced to everyone
+     */
+    public boolean shouldBroadcastCrystalUse() {
+        return broadcastCrystalUse;
+    }
+
+    /**
+     * @return Ticks to collect announcements before sending them as one digest (0 = same tick)
+     */
+    public long getAnnouncementWindowTicks() {
+        return announcementWindowTicks;
+    }
+
+    /**
+     * @return Where players see their own lives
+     */
+    public LivesHud.Mode getHudMode() {
+        return hudMode;
+    }
+
+    /**
+     * @param channel A log channel
+     * @return Lowest level logged for the channel
+     */
+    public Level getLogLevel(PluginLog.Channel channel) {
+        return logLevels[channel.ordinal()];
+    }
+
+    /**
+     * @return True if metrics are served over HTTP
+     */
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    /**
+     * @return Address the metrics endpoint binds to
+     */
+    public String getMetricsHost() {
+        return metricsHost;
+    }
+
+    /**
+     * @return Port of the metrics endpoint
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * @return Problems found while parsing, already replaced by defaults
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+}
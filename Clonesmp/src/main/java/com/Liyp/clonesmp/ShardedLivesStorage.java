@@ -0,0 +1,201 @@
+package com.Liyp.clonesmp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Stores death counts in small shard files under players/, split by UUID prefix
+ *
+ * A player's record lives in players/&lt;xx&gt;/&lt;xxyy&gt;.dat, where xxyy are the
+ * first four hex digits of their UUID, so 65536 shards hold a million players
+ * at about fifteen records each. Reading one player reads one shard, and a flush
+ * rewrites only the shards of the players that changed. This is a lazy storage:
+ * nothing is read at startup, see {@link PlayerRecords}.
+ *
+ * Shard file: magic, version, record count, records, CRC32 of everything before it.
+ * Record (20 bytes): UUID most/least significant bits, deaths.
+ */
+public class ShardedLivesStorage implements LivesStorage {
+    private static final int MAGIC = 0x43534852; // "CSHR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int RECORD_SIZE = 20;
+    private static final String SUFFIX = ".dat";
+
+    private final File directory;
+
+    /**
+     * Constructor
+     *
+     * @param directory The players/ directory
+     */
+    public ShardedLivesStorage(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public String getType() {
+        return "sharded";
+    }
+
+    @Override
+    public File getFile() {
+        return directory;
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+    }
+
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public void load(LivesStore store) throws IOException {
+        scan(store::restore);
+    }
+
+    @Override
+    public int read(UUID uuid) throws IOException {
+        ByteBuffer shard = readShard(shardFile(shardOf(uuid)));
+        if (shard == null) return -1;
+
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int offset = HEADER_SIZE; offset < shard.limit() - 4; offset += RECORD_SIZE) {
+            if (shard.getLong(offset) == msb && shard.getLong(offset + 8) == lsb) {
+                return shard.getInt(offset + 16);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void scan(LivesStore.EntryVisitor visitor) throws IOException {
+        // Shards are replaced by rename, so a scan sees each one whole, before or after a write
+        String[] prefixes = directory.list();
+        if (prefixes == null) return;
+        Arrays.sort(prefixes);
+        for (String prefix : prefixes) {
+            String[] names = new File(directory, prefix).list();
+            if (names == null) continue;
+            Arrays.sort(names);
+            for (String name : names) {
+                if (!name.endsWith(SUFFIX)) continue;
+
+                ByteBuffer shard = readShard(new File(new File(directory, prefix), name));
+                if (shard == null) continue;
+                for (int offset = HEADER_SIZE; offset < shard.limit() - 4; offset += RECORD_SIZE) {
+                    visitor.visit(shard.getLong(offset), shard.getLong(offset + 8), shard.getInt(offset + 16));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void write(UUID[] uuids, int[] deaths) throws IOException {
+        // Group the batch by shard; a later entry for the same player wins
+        Map<Integer, Map<UUID, Integer>> shards = new HashMap<>();
+        for (int i = 0; i < uuids.length; i++) {
+            shards.computeIfAbsent(shardOf(uuids[i]), s -> new HashMap<>()).put(uuids[i], deaths[i]);
+        }
+
+        for (Map.Entry<Integer, Map<UUID, Integer>> entry : shards.entrySet()) {
+            File file = shardFile(entry.getKey());
+            Map<UUID, Integer> changes = entry.getValue();
+
+            // Keep the shard's other records, in their order, then append new players
+            ByteBuffer old = readShard(file);
+            int oldCount = old == null ? 0 : (old.limit() - HEADER_SIZE - 4) / RECORD_SIZE;
+            ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + (oldCount + changes.size()) * RECORD_SIZE + 4);
+            out.position(HEADER_SIZE);
+            int count = 0;
+            for (int i = 0; i < oldCount; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                long msb = old.getLong(offset);
+                long lsb = old.getLong(offset + 8);
+                Integer changed = changes.remove(new UUID(msb, lsb));
+                out.putLong(msb).putLong(lsb).putInt(changed != null ? changed : old.getInt(offset + 16));
+                count++;
+            }
+            for (Map.Entry<UUID, Integer> added : changes.entrySet()) {
+                out.putLong(added.getKey().getMostSignificantBits())
+                   .putLong(added.getKey().getLeastSignificantBits())
+                   .putInt(added.getValue());
+                count++;
+            }
+
+            out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, count);
+            int length = out.position();
+            CRC32 crc = new CRC32();
+            crc.update(out.array(), 0, length);
+            out.putInt((int) crc.getValue());
+
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent);
+            }
+            DataSaver.writeAtomically(file.toPath(), Arrays.copyOf(out.array(), out.position()));
+        }
+    }
+
+    @Override
+    public void close() {
+        // Shards are opened per read and write
+    }
+
+    /**
+     * Read and verify a shard file
+     *
+     * @param file The shard file
+     * @return The shard's bytes, or null if it does not exist
+     * @throws IOException If it cannot be read or is corrupt
+     */
+    private static ByteBuffer readShard(File file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        ByteBuffer shard = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE + 4 || shard.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a CloneSMP shard");
+        }
+        if (shard.getInt(4) != VERSION) {
+            throw new IOException(file + " has unsupported version " + shard.getInt(4));
+        }
+        if (bytes.length != HEADER_SIZE + shard.getInt(8) * RECORD_SIZE + 4) {
+            throw new IOException(file + " is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 4);
+        if (shard.getInt(bytes.length - 4) != (int) crc.getValue()) {
+            throw new IOException(file + " is corrupt");
+        }
+        return shard;
+    }
+
+    private static int shardOf(UUID uuid) {
+        return (int) (uuid.getMostSignificantBits() >>> 48);
+    }
+
+    private File shardFile(int shard) {
+        String name = String.format("%04x", shard);
+        return new File(new File(directory, name.substring(0, 2)), name + SUFFIX);
+    }
+}
@@ -0,0 +1,115 @@
+package com.Liyp.clonesmp;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Stores death counts in an embedded SQLite database (lives.db)
+ *
+ * Rows are keyed by the two halves of the UUID, which is the table's primary key,
+ * so lookups and upserts are indexed. Changed records are written as one batched
+ * upsert per flush inside a single transaction. The SQLite driver ships with the server.
+ */
+public class SqliteLivesStorage implements LivesStorage {
+    private static final String UPSERT =
+        "INSERT INTO lives (uuid_msb, uuid_lsb, deaths) VALUES (?, ?, ?) " +
+        "ON CONFLICT (uuid_msb, uuid_lsb) DO UPDATE SET deaths = excluded.deaths";
+
+    private final File file;
+    private Connection connection;
+    private PreparedStatement upsert;
+
+    /**
+     * Constructor
+     *
+     * @param file The database file
+     */
+    public SqliteLivesStorage(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getType() {
+        return "sqlite";
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("PRAGMA synchronous=NORMAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS lives (" +
+                                  "uuid_msb INTEGER NOT NULL, " +
+                                  "uuid_lsb INTEGER NOT NULL, " +
+                                  "deaths INTEGER NOT NULL, " +
+                                  "PRIMARY KEY (uuid_msb, uuid_lsb)) WITHOUT ROWID");
+            }
+            connection.setAutoCommit(false);
+            upsert = connection.prepareStatement(UPSERT);
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IOException("Could not open " + file.getName(), e);
+        }
+    }
+
+    @Override
+    public void load(LivesStore store) throws IOException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT uuid_msb, uuid_lsb, deaths FROM lives")) {
+            while (rs.next()) {
+                store.restore(rs.getLong(1), rs.getLong(2), rs.getInt(3));
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Could not read " + file.getName(), e);
+        }
+    }
+
+    @Override
+    public void write(UUID[] uuids, int[] deaths) throws IOException {
+        try {
+            for (int i = 0; i < uuids.length; i++) {
+                upsert.setLong(1, uuids[i].getMostSignificantBits());
+                upsert.setLong(2, uuids[i].getLeastSignificantBits());
+                upsert.setInt(3, deaths[i]);
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+                // The original error is more useful
+            }
+            throw new IOException("Could not write " + file.getName(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (upsert != null) upsert.close();
+            if (connection != null) connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Could not close " + file.getName(), e);
+        } finally {
+            upsert = null;
+            connection = null;
+        }
+    }
+}
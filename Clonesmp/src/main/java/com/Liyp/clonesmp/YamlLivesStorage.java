@@ -0,0 +1,80 @@
+package com.Liyp.clonesmp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import com.Liyp.clonesmp.PluginLog.Channel;
+
+/**
+ * Stores death counts in data.yml under deaths.&lt;uuid&gt;
+ *
+ * Every write re-serializes the whole document, so this is best suited to small servers.
+ */
+public class YamlLivesStorage implements LivesStorage {
+    private final File file;
+    private final PluginLog log;
+    private YamlConfiguration data;
+
+    /**
+     * Constructor
+     *
+     * @param file The data.yml file
+     * @param log Log for skipped entries
+     */
+    public YamlLivesStorage(File file, PluginLog log) {
+        this.file = file;
+        this.log = log;
+    }
+
+    @Override
+    public String getType() {
+        return "yaml";
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!file.exists()) {
+            file.createNewFile();
+        }
+        data = YamlConfiguration.loadConfiguration(file);
+    }
+
+    @Override
+    public void load(LivesStore store) {
+        ConfigurationSection deaths = data.getConfigurationSection("deaths");
+        if (deaths == null) return;
+
+        Set<String> keys = deaths.getKeys(false);
+        for (String key : keys) {
+            try {
+                UUID uuid = UUID.fromString(key);
+                store.restore(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), deaths.getInt(key));
+            } catch (IllegalArgumentException e) {
+                log.warning(Channel.STORAGE, "Skipping invalid UUID in {}: {}", file.getName(), key);
+            }
+        }
+    }
+
+    @Override
+    public void write(UUID[] uuids, int[] deaths) throws IOException {
+        for (int i = 0; i < uuids.length; i++) {
+            data.set("deaths." + uuids[i], deaths[i]);
+        }
+        DataSaver.writeAtomically(file.toPath(), data.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        data = null;
+    }
+}